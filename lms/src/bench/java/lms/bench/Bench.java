@@ -0,0 +1,39 @@
+package lms.bench;
+
+import java.util.Locale;
+
+/** Tiny timing helpers shared by the benchmarks (warm up, then report the best of a few runs). */
+final class Bench {
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    private Bench() {}
+
+    /** Times {@code task}, which performs {@code ops} operations per run, and prints the best run. */
+    static double time(String label, long ops, ThrowingRunnable task) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            task.run();
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        double nsPerOp = (double) best / ops;
+        System.out.printf(Locale.ROOT, "%-45s %12.1f ms %14.1f ns/op%n", label, best / 1e6, nsPerOp);
+        return nsPerOp;
+    }
+
+    static int intArg(String[] args, int index, int fallback) {
+        return args.length > index ? Integer.parseInt(args[index]) : fallback;
+    }
+
+    @FunctionalInterface
+    interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
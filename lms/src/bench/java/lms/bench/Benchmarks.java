@@ -0,0 +1,37 @@
+package lms.bench;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Entry point for the benchmark source set: {@code gradlew bench --args="db 50000"}.
+ */
+public class Benchmarks {
+
+    private static final Map<String, Benchmark> BENCHMARKS = new LinkedHashMap<>();
+
+    static {
+        BENCHMARKS.put("db", new LibraryDbBenchmark());
+        BENCHMARKS.put("lookup", new LookupBenchmark());
+        BENCHMARKS.put("concurrency", new ConcurrencyBenchmark());
+        BENCHMARKS.put("catalog", new CatalogBenchmark());
+        BENCHMARKS.put("search", new SearchBenchmark());
+        BENCHMARKS.put("edt", new EdtBenchmark());
+        BENCHMARKS.put("journal", new JournalBenchmark());
+        BENCHMARKS.put("storage", new StorageBenchmark());
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !BENCHMARKS.containsKey(args[0])) {
+            System.out.println("Usage: bench <name> [options]");
+            System.out.println("Available: " + String.join(", ", BENCHMARKS.keySet()));
+            return;
+        }
+        BENCHMARKS.get(args[0]).run(Arrays.copyOfRange(args, 1, args.length));
+    }
+
+    interface Benchmark {
+        void run(String[] args) throws Exception;
+    }
+}
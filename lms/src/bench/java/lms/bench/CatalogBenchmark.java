@@ -0,0 +1,183 @@
+package lms.bench;
+
+import lms.catalog.BookCatalog;
+import lms.catalog.ColumnarBookCatalog;
+import lms.catalog.ObjectBookCatalog;
+import lms.catalog.OffHeapBookCatalog;
+import lms.model.Book;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Heap and GC cost of holding a large catalog: one {@link Book} object per row
+ * ({@link ObjectBookCatalog}), primitive columns ({@link ColumnarBookCatalog}) and
+ * off-heap records ({@link OffHeapBookCatalog}). For each it reports retained heap, a
+ * full GC with the catalog live, the GC time spent while the application churns through
+ * short-lived garbage, and lookup speed from one and from several reader threads.
+ * The off-heap catalog is also written to a mapped file and reopened.
+ *
+ * <p>{@code gradlew bench --args="catalog [books]"}
+ */
+class CatalogBenchmark implements Benchmarks.Benchmark {
+
+    private static final int AUTHORS = 20_000;
+    private static final long CHURN_BYTES = 4L << 30;
+    private static final int READER_THREADS = 4;
+
+    private long sink;
+
+    @Override
+    public void run(String[] args) throws Exception {
+        int count = Bench.intArg(args, 0, 10_000_000);
+        System.out.printf(Locale.ROOT, "%,d books, %,d distinct authors%n", count, AUTHORS);
+
+        measure("object (Book per row)", ObjectBookCatalog::new, count);
+        measure("columnar", () -> new ColumnarBookCatalog(count), count);
+        measure("off-heap", () -> OffHeapBookCatalog.inMemory(count), count);
+        reopenMapped(count);
+        System.out.println("\n(checksum " + sink + ")");
+    }
+
+    private void measure(String name, Supplier<BookCatalog> factory, int count) throws Exception {
+        System.out.printf("%n--- %s ---%n", name);
+        long before = usedHeapAfterGc();
+
+        BookCatalog catalog = factory.get();
+        fill(catalog, count);
+
+        long retained = usedHeapAfterGc() - before;
+        System.out.printf(Locale.ROOT, "%-45s %12.1f MB %14.1f bytes/book%n",
+                "retained heap", retained / 1e6, (double) retained / count);
+        if (catalog instanceof OffHeapBookCatalog offHeap) {
+            System.out.printf(Locale.ROOT, "%-45s %12.1f MB %14.1f bytes/book%n",
+                    "off-heap", offHeap.offHeapBytes() / 1e6, (double) offHeap.offHeapBytes() / count);
+        }
+
+        long fullGcStart = System.nanoTime();
+        System.gc();
+        System.out.printf(Locale.ROOT, "%-45s %12.1f ms%n", "full GC with catalog live", (System.nanoTime() - fullGcStart) / 1e6);
+
+        long[] gcBefore = gcTimeAndCount();
+        churn();
+        long[] gcAfter = gcTimeAndCount();
+        System.out.printf(Locale.ROOT, "%-45s %12d ms %14d collections%n",
+                "GC during " + (CHURN_BYTES >> 30) + " GB of allocation churn",
+                gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+
+        SplittableRandom random = new SplittableRandom(7);
+        int lookups = 1_000_000;
+        Bench.time("get(id) + read title", lookups, () -> {
+            for (int i = 0; i < lookups; i++) {
+                sink += catalog.get(1 + random.nextInt(count)).getTitle().length();
+            }
+        });
+        Bench.time("titleAt(row) column read", lookups, () -> {
+            for (int i = 0; i < lookups; i++) {
+                sink += catalog.titleAt(random.nextInt(count)).length();
+            }
+        });
+
+        parallelReads(catalog, count);
+
+        // Keep the catalog reachable until all measurements are done
+        sink += catalog.size();
+        catalog.close();
+    }
+
+    private static void fill(BookCatalog catalog, int count) {
+        for (int i = 1; i <= count; i++) {
+            catalog.put(new Book(i, "Title number " + i, "Author " + (i % AUTHORS), 1.0 + (i % 7) * 0.5, i % 3 != 0));
+        }
+    }
+
+    /** Column reads from several threads at once; catalogs have no locking of their own. */
+    private void parallelReads(BookCatalog catalog, int count) throws Exception {
+        int threads = READER_THREADS;
+        int perThread = 1_000_000;
+        Bench.time("titleAt(row), " + threads + " reader threads", (long) threads * perThread, () -> {
+            try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+                List<Future<Long>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    SplittableRandom random = new SplittableRandom(t);
+                    results.add(pool.submit(() -> {
+                        long n = 0;
+                        for (int i = 0; i < perThread; i++) {
+                            n += catalog.titleAt(random.nextInt(count)).length();
+                        }
+                        return n;
+                    }));
+                }
+                for (Future<Long> f : results) {
+                    sink += f.get();
+                }
+            }
+        });
+    }
+
+    /** Writes an off-heap catalog to a mapped file, then times reopening it. */
+    private void reopenMapped(int count) throws Exception {
+        System.out.printf("%n--- off-heap, memory-mapped file ---%n");
+        Path dir = Files.createTempDirectory("lms-catalog");
+        Path file = dir.resolve("books.catalog");
+        try {
+            long start = System.nanoTime();
+            try (OffHeapBookCatalog catalog = OffHeapBookCatalog.open(file)) {
+                fill(catalog, count);
+            }
+            System.out.printf(Locale.ROOT, "%-45s %12.1f ms%n", "build + close", (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            try (OffHeapBookCatalog catalog = OffHeapBookCatalog.open(file)) {
+                sink += catalog.size();
+                System.out.printf(Locale.ROOT, "%-45s %12.1f ms %14s%n",
+                        "reopen (remap + rebuild id index)", (System.nanoTime() - start) / 1e6,
+                        String.format(Locale.ROOT, "%,d books", catalog.size()));
+            }
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : files.toList()) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private void churn() {
+        // Parked in a ring so the allocations escape and really reach the young generation
+        Object[] ring = new Object[4096];
+        int i = 0;
+        for (long allocated = 0; allocated < CHURN_BYTES; allocated += 1024) {
+            ring[i++ & (ring.length - 1)] = new byte[1024];
+        }
+        sink += ring.length;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long[] gcTimeAndCount() {
+        long time = 0;
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return new long[] {time, count};
+    }
+}
@@ -0,0 +1,162 @@
+package lms.bench;
+
+import lms.LibraryService;
+import lms.model.Book;
+import lms.model.Borrower;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checkout/return throughput on a shared {@link LibraryService} from 1 to 32 threads.
+ * In the partitioned runs each thread cycles through its own slice of the catalog, so
+ * they measure the service's locking; the mixed run adds nine id lookups per checkout
+ * or return, closer to what a UI or API does. The contended run has every thread
+ * fighting over the same few books, so most checkouts come back as conflicts.
+ *
+ * <p>{@code gradlew bench --args="concurrency [books] [cyclesPerThread]"}
+ */
+class ConcurrencyBenchmark implements Benchmarks.Benchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+    private static final int READS_PER_WRITE = 9;
+    private static final int CONTENDED_BOOKS = 16;
+
+    @Override
+    public void run(String[] args) throws Exception {
+        int bookCount = Bench.intArg(args, 0, 100_000);
+        int cycles = Bench.intArg(args, 1, 200_000);
+
+        System.out.printf(Locale.ROOT, "%,d books, %,d checkout+return cycles per thread%n%n", bookCount, cycles);
+        System.out.printf(Locale.ROOT, "%-8s %22s %16s %18s %10s%n",
+                "threads", "checkout/return ops/s", "mixed ops/s", "contended ops/s", "conflicts");
+
+        for (int threads : THREADS) {
+            if (threads > bookCount) break;
+            double writeOnly = throughput(bookCount, threads, cycles, 0);
+            double mixed = throughput(bookCount, threads, cycles / 4, READS_PER_WRITE);
+            Contended contended = contended(threads, cycles);
+            System.out.printf(Locale.ROOT, "%-8d %,22.0f %,16.0f %,18.0f %9.1f%%%n",
+                    threads, writeOnly, mixed, contended.opsPerSecond(), contended.conflictPercent());
+        }
+    }
+
+    /** Operations per second; every checkout, return and lookup counts as one. */
+    private static double throughput(int bookCount, int threads, int cycles, int readsPerWrite) throws Exception {
+        LibraryService service = seeded(bookCount, threads);
+        int slice = bookCount / threads;
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = 1 + t * slice;
+                int borrowerId = t + 1;
+                int firstLoanId = 1 + t * cycles;
+                results.add(pool.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(first);
+                    long sink = 0;
+                    start.await();
+                    for (int i = 0; i < cycles; i++) {
+                        int bookId = first + i % slice;
+
+                        int loanId = firstLoanId + i;
+
+                        service.checkout(loanId, bookId, borrowerId, LocalDate.now(), 14);
+                        sink += lookups(service, random, bookCount, readsPerWrite);
+
+                        service.returnLoan(loanId);
+                        sink += lookups(service, random, bookCount, readsPerWrite);
+                    }
+                    return sink;
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<Long> f : results) {
+                f.get();
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            long ops = (long) threads * cycles * 2 * (1 + readsPerWrite);
+            return ops * 1e9 / elapsed;
+        }
+    }
+
+    private record Contended(double opsPerSecond, double conflictPercent) {}
+
+    /** Every thread tries to check out random books from a tiny shared set. */
+    private static Contended contended(int threads, int attempts) throws Exception {
+        LibraryService service = seeded(CONTENDED_BOOKS, threads);
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int borrowerId = t + 1;
+                int firstLoanId = 1 + t * attempts;
+                results.add(pool.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(borrowerId);
+                    long ops = 0;
+                    long conflicts = 0;
+                    start.await();
+                    for (int i = 0; i < attempts; i++) {
+                        int loanId = firstLoanId + i;
+                        int bookId = 1 + random.nextInt(CONTENDED_BOOKS);
+                        ops++;
+                        if (service.checkout(loanId, bookId, borrowerId, LocalDate.now(), 14).succeeded()) {
+                            service.returnLoan(loanId);
+                            ops++;
+                        } else {
+                            conflicts++;
+                        }
+                    }
+                    return new long[] {ops, conflicts};
+                }));
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            long ops = 0;
+            long conflicts = 0;
+            for (Future<long[]> f : results) {
+                long[] r = f.get();
+                ops += r[0];
+                conflicts += r[1];
+            }
+            long elapsed = System.nanoTime() - begin;
+
+            return new Contended(ops * 1e9 / elapsed, 100.0 * conflicts / ((long) threads * attempts));
+        }
+    }
+
+    private static long lookups(LibraryService service, SplittableRandom random, int bookCount, int n) {
+        long found = 0;
+        for (int i = 0; i < n; i++) {
+            if (service.findBook(1 + random.nextInt(bookCount)).isPresent()) found++;
+        }
+        return found;
+    }
+
+    private static LibraryService seeded(int bookCount, int borrowerCount) {
+        LibraryService service = new LibraryService();
+        List<Book> books = new ArrayList<>(bookCount);
+        for (int i = 1; i <= bookCount; i++) {
+            books.add(new Book(i, "Title " + i, "Author", 2.0, true));
+        }
+        List<Borrower> borrowers = new ArrayList<>(borrowerCount);
+        for (int i = 1; i <= borrowerCount; i++) {
+            borrowers.add(new Borrower(i, "Borrower " + i, "b" + i + "@example.com"));
+        }
+        service.replaceAll(books, borrowers, List.of());
+        return service;
+    }
+}
@@ -0,0 +1,141 @@
+package lms.bench;
+
+import lms.LibraryService;
+import lms.catalog.BookColumns;
+import lms.model.Book;
+import lms.ui.AsyncRowSorter;
+import lms.ui.EdtLatencyProbe;
+import lms.ui.SimpleDocumentListener;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableRowSorter;
+
+/**
+ * Event-thread latency while a user types a search into a large books table: the
+ * original regex filter and the index-backed filter, both run by a TableRowSorter on
+ * the EDT, against the debounced {@link AsyncRowSorter} the panels use now.
+ *
+ * <p>Runs headless (no window is shown). {@code gradlew bench --args="edt [books]"}
+ */
+class EdtBenchmark implements Benchmarks.Benchmark {
+
+    private static final String QUERY = "shadow of";
+    private static final int KEYSTROKE_MS = 80;
+
+    @Override
+    public void run(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        int size = Bench.intArg(args, 0, 1_000_000);
+
+        LibraryService service = new LibraryService();
+        service.addLoadedBooks(books(size));
+        BooksModel model = new BooksModel(service);
+        int expected = service.matchingBookIds(QUERY).length;
+        System.out.printf("%,d books, typing \"%s\" at one key per %d ms (%,d matches)%n%n",
+                size, QUERY, KEYSTROKE_MS, expected);
+
+        try (EdtLatencyProbe probe = new EdtLatencyProbe(5)) {
+            TableRowSorter<BooksModel> regex = new TableRowSorter<>(model);
+            type("TableRowSorter, regex (before)", probe, regex, expected,
+                    text -> regex.setRowFilter(RowFilter.regexFilter("(?i)" + text)));
+
+            TableRowSorter<BooksModel> indexed = new TableRowSorter<>(model);
+            type("TableRowSorter, search index", probe, indexed, expected,
+                    text -> indexed.setRowFilter(idFilter(service.matchingBookIds(text))));
+
+            AsyncRowSorter<BooksModel> async = new AsyncRowSorter<>(model);
+            String[] latest = {""};
+            SimpleDocumentListener debounced = SimpleDocumentListener.debounced(SimpleDocumentListener.SEARCH_DELAY_MS,
+                    () -> async.setRowFilter(() -> idFilter(service.matchingBookIds(latest[0]))));
+            type("AsyncRowSorter, debounced (now)", probe, async, expected, text -> {
+                latest[0] = text;
+                debounced.update(null);
+            });
+        }
+    }
+
+    /** Types {@link #QUERY} one key at a time on the EDT, then waits for the final result. */
+    private static void type(String label, EdtLatencyProbe probe, RowSorter<?> sorter, int expected,
+                             Consumer<String> onText) throws Exception {
+        Thread.sleep(200);
+        probe.reset();
+        long start = System.nanoTime();
+        for (int i = 1; i <= QUERY.length(); i++) {
+            String text = QUERY.substring(0, i);
+            EventQueue.invokeLater(() -> onText.accept(text));
+            Thread.sleep(KEYSTROKE_MS);
+        }
+
+        int[] rows = new int[1];
+        do {
+            Thread.sleep(5);
+            EventQueue.invokeAndWait(() -> rows[0] = sorter.getViewRowCount());
+        } while (rows[0] != expected);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf(Locale.ROOT, "%-34s %s; results after %.0f ms%n", label, probe.stats(), elapsed / 1e6);
+    }
+
+    private static RowFilter<Object, Integer> idFilter(int[] ids) {
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        return new RowFilter<>() {
+            @Override
+            public boolean include(Entry<?, ? extends Integer> entry) {
+                return Arrays.binarySearch(sorted, (Integer) entry.getValue(0)) >= 0;
+            }
+        };
+    }
+
+    private static List<Book> books(int n) {
+        String[] words = {"shadow", "river", "garden", "winter", "empire", "glass", "north", "harbor", "paper", "stone"};
+        List<Book> books = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            String title = words[i % words.length] + " of the " + words[(i / 10) % words.length] + " " + i;
+            books.add(new Book(i, title, "Author " + (i % 997), 1.0 + (i % 5), true));
+        }
+        return books;
+    }
+
+    /** Same columns as the Books tab, read straight from the service. */
+    private static final class BooksModel extends AbstractTableModel {
+
+        private final LibraryService service;
+
+        BooksModel(LibraryService service) {
+            this.service = service;
+        }
+
+        @Override public int getRowCount() { return service.readBooks(BookColumns::size); }
+        @Override public int getColumnCount() { return 5; }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return service.readBooks(books -> switch (column) {
+                case 0 -> books.idAt(row);
+                case 1 -> books.titleAt(row);
+                case 2 -> books.authorAt(row);
+                case 3 -> books.pricePerDayAt(row);
+                default -> books.availableAt(row);
+            });
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return switch (column) {
+                case 0 -> Integer.class;
+                case 3 -> Double.class;
+                case 4 -> Boolean.class;
+                default -> String.class;
+            };
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package lms.bench;
+
+import lms.LibraryChange;
+import lms.LibraryService;
+import lms.journal.Journal;
+import lms.model.Book;
+import lms.model.Borrower;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The {@link Journal}: checkout/return throughput with every mutation journaled and
+ * synced (group commit shares a sync between threads), and recovery time for a
+ * journal of {@code events} book updates, replayed with and without a snapshot. Also
+ * checks that a reload (Clear, a DB load) survives a crash before its snapshot.
+ *
+ * <p>{@code gradlew bench --args="journal [events] [books] [cyclesPerThread] [dir]"}
+ */
+class JournalBenchmark implements Benchmarks.Benchmark {
+
+    private static final int[] THREADS = {1, 4, 16};
+
+    @Override
+    public void run(String[] args) throws Exception {
+        int events = Bench.intArg(args, 0, 10_000_000);
+        int bookCount = Bench.intArg(args, 1, 100_000);
+        int cycles = Bench.intArg(args, 2, 20_000);
+        Path base = args.length > 3 ? Path.of(args[3]) : Files.createTempDirectory("lms-journal");
+
+        System.out.printf(Locale.ROOT, "%-8s %22s %16s%n", "threads", "checkout/return ops/s", "frames/sync");
+        for (int threads : THREADS) {
+            Path dir = base.resolve("append-" + threads);
+            appendThroughput(dir, bookCount, threads, cycles);
+            delete(dir);
+        }
+
+        System.out.printf(Locale.ROOT, "%nRecovery of %,d book updates over %,d books%n", events, bookCount);
+        Path dir = base.resolve("recovery");
+        long start = System.nanoTime();
+        try (Journal journal = Journal.open(dir, Long.MAX_VALUE)) {
+            for (int i = 0; i < events; i++) {
+                int id = 1 + i % bookCount;
+                Book b = new Book(id, "Title " + id, "Author " + (id % 997), 0.5 + (i & 7), (i & 1) == 0);
+                journal.libraryChanged(new LibraryChange(LibraryChange.Kind.UPDATED, LibraryChange.Entity.BOOK, id, id - 1, b));
+            }
+            journal.flush(1, TimeUnit.MINUTES);
+            System.out.printf(Locale.ROOT, "%-45s %12.1f ms  (%s)%n", "append " + events + " events",
+                    (System.nanoTime() - start) / 1e6, journal.stats());
+        }
+        System.out.printf(Locale.ROOT, "%-45s %,12d bytes%n", "journal size", size(dir));
+
+        Journal.Recovered replayed;
+        try (Journal journal = Journal.open(dir, Long.MAX_VALUE)) {
+            replayed = journal.recovered();
+            System.out.printf(Locale.ROOT, "%-45s %12.1f ms  (%s)%n", "recover from journal only",
+                    replayed.elapsedNanos() / 1e6, replayed);
+
+            // Snapshot the recovered state; the next open maps it and replays nothing
+            LibraryService service = new LibraryService();
+            journal.attach(service);
+            journal.snapshot();
+        }
+        try (Journal journal = Journal.open(dir, Long.MAX_VALUE)) {
+            Journal.Recovered fromSnapshot = journal.recovered();
+            System.out.printf(Locale.ROOT, "%-45s %12.1f ms  (%s)%n", "recover from snapshot",
+                    fromSnapshot.elapsedNanos() / 1e6, fromSnapshot);
+            if (!sameBooks(fromSnapshot.books(), replayed.books())) throw new IllegalStateException("Snapshot differs from replay");
+        }
+        System.out.printf(Locale.ROOT, "%-45s %,12d bytes%n", "snapshot size", size(dir));
+
+        // A reload journaled with no snapshot after it: the recovered base must not come back
+        try (Journal journal = Journal.open(dir, Long.MAX_VALUE)) {
+            LibraryService service = new LibraryService();
+            service.addListener(journal); // not attached, so no snapshot source
+            service.replaceAll(List.of(new Book(1, "Reloaded", "Author", 1.0, true)), List.of(), List.of());
+            service.addBook(new Book(2, "Added after", "Author", 1.0, true));
+            journal.flush(1, TimeUnit.MINUTES);
+        }
+        try (Journal journal = Journal.open(dir, Long.MAX_VALUE)) {
+            Journal.Recovered afterReload = journal.recovered();
+            System.out.printf(Locale.ROOT, "%-45s %12.1f ms  (%s)%n", "recover after reload",
+                    afterReload.elapsedNanos() / 1e6, afterReload);
+            if (afterReload.books().size() != 2) throw new IllegalStateException("Reload not replayed: " + afterReload);
+        }
+        delete(base);
+    }
+
+    private static void appendThroughput(Path dir, int bookCount, int threads, int cycles) throws Exception {
+        LibraryService service = new LibraryService();
+        for (int i = 1; i <= bookCount; i++) {
+            service.addBook(new Book(i, "Title " + i, "Author " + (i % 997), 1.0, true));
+        }
+        for (int t = 1; t <= threads; t++) {
+            service.addBorrower(new Borrower(t, "Borrower " + t, "b" + t + "@example.com"));
+        }
+
+        try (Journal journal = Journal.open(dir, Long.MAX_VALUE)) {
+            journal.attach(service);
+            int slice = bookCount / threads;
+            long start;
+            try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<?>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int first = 1 + t * slice;
+                    int borrowerId = t + 1;
+                    int firstLoanId = 1 + t * cycles;
+                    results.add(pool.submit(() -> {
+                        go.await();
+                        for (int i = 0; i < cycles; i++) {
+                            service.checkout(firstLoanId + i, first + i % slice, borrowerId, LocalDate.now(), 14);
+                            service.returnLoan(firstLoanId + i);
+                        }
+                        return null;
+                    }));
+                }
+                start = System.nanoTime();
+                go.countDown();
+                for (Future<?> f : results) f.get();
+            }
+            // Durable means synced, so the time includes waiting for the last sync
+            journal.flush(1, TimeUnit.MINUTES);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Journal.Stats stats = journal.stats();
+            System.out.printf(Locale.ROOT, "%-8d %,22.0f %16.1f%n", threads, 2.0 * threads * cycles / seconds,
+                    stats.syncs() == 0 ? 0.0 : (double) stats.frames() / stats.syncs());
+            service.removeListener(journal);
+        }
+    }
+
+    private static boolean sameBooks(List<Book> a, List<Book> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            Book x = a.get(i);
+            Book y = b.get(i);
+            if (x.getId() != y.getId() || x.isAvailable() != y.isAvailable()
+                    || x.getPricePerDay() != y.getPricePerDay() || !x.getTitle().equals(y.getTitle())) return false;
+        }
+        return true;
+    }
+
+    private static long size(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.mapToLong(f -> f.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path f : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(f);
+        }
+    }
+}
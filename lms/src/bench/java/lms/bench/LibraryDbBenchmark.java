@@ -0,0 +1,150 @@
+package lms.bench;
+
+import lms.LibraryDB;
+import lms.LibraryService;
+import lms.PagedTable;
+import lms.model.Book;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the original persistence path (a fresh DriverManager connection per call,
+ * default PRAGMAs, delete-all-and-reinsert saves) with the pooled WAL connections
+ * and incremental saves in {@link LibraryDB}.
+ *
+ * <p>Args: {@code [books=50000] [lookups=5000]}
+ */
+class LibraryDbBenchmark implements Benchmarks.Benchmark {
+
+    @Override
+    public void run(String[] args) throws Exception {
+        int bookCount = Bench.intArg(args, 0, 50_000);
+        int lookups = Bench.intArg(args, 1, 5_000);
+
+        Path dir = Files.createTempDirectory("lms-bench");
+        String legacyUrl = "jdbc:sqlite:" + dir.resolve("legacy.db");
+        String pooledUrl = "jdbc:sqlite:" + dir.resolve("pooled.db");
+
+        LibraryService service = new LibraryService();
+        for (int i = 1; i <= bookCount; i++) {
+            service.addBook(new Book(i, "Title " + i, "Author " + (i % 997), 1.0 + (i % 5), true));
+        }
+        List<Book> books = List.copyOf(service.getBooks());
+
+        System.out.printf("LibraryDB benchmark: %d books, %d point lookups%n", bookCount, lookups);
+
+        try (LibraryDB db = new LibraryDB(pooledUrl)) {
+            db.saveChanges(service.takeChanges());
+            legacySaveAll(legacyUrl, books);
+
+            // Save after a single-book edit
+            Bench.time("save 1 change   (legacy rewrite-all)", 1, () -> legacySaveAll(legacyUrl, books));
+            Bench.time("save 1 change   (pooled + change set)", 1, () -> {
+                service.setBookAvailable(1 + ThreadLocalRandom.current().nextInt(bookCount), false);
+                db.saveChanges(service.takeChanges());
+            });
+
+            Bench.time("load all        (legacy)", bookCount, () -> legacyLoad(legacyUrl));
+            Bench.time("load all        (pooled)", bookCount, db::loadAll);
+
+            Bench.time("point lookup    (legacy)", lookups, () -> {
+                for (int i = 0; i < lookups; i++) {
+                    legacyFind(legacyUrl, 1 + ThreadLocalRandom.current().nextInt(bookCount));
+                }
+            });
+            Bench.time("point lookup    (pooled)", lookups, () -> {
+                for (int i = 0; i < lookups; i++) {
+                    db.findBook(1 + ThreadLocalRandom.current().nextInt(bookCount));
+                }
+            });
+
+            // A page of 20 results for a two-word prefix query
+            Bench.time("search page     (LIKE scan)", 1, () -> legacySearch(legacyUrl, "%Author 99%", 20));
+            Bench.time("search page     (FTS5 + bm25)", 1, () -> db.searchBooks("author 99", 20, 0));
+
+            // One 200-row window of a paged table sorted by title: deep OFFSET against a keyset seek
+            PagedTable<Book> paged = db.pagedBooks();
+            PagedTable.Order byTitle = new PagedTable.Order(1, false);
+            int deep = Math.max(0, bookCount - 400);
+            Book anchor = paged.page("", byTitle, deep, 200).getLast();
+            Bench.time("page by title   (OFFSET " + deep + ")", 1, () -> paged.page("", byTitle, deep + 200, 200));
+            Bench.time("page by title   (keyset seek)", 1, () -> paged.pageAfter("", byTitle, anchor, 200));
+        }
+    }
+
+    // --- The pre-pooling code paths, reproduced for comparison ---
+
+    private static void legacySaveAll(String url, List<Book> books) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("""
+                        CREATE TABLE IF NOT EXISTS books (
+                            id INTEGER PRIMARY KEY, title TEXT NOT NULL, author TEXT NOT NULL,
+                            pricePerDay REAL NOT NULL, available INTEGER NOT NULL)
+                        """);
+            }
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DELETE FROM books");
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO books (id, title, author, pricePerDay, available) VALUES (?, ?, ?, ?, ?)")) {
+                for (Book b : books) {
+                    ps.setInt(1, b.getId());
+                    ps.setString(2, b.getTitle());
+                    ps.setString(3, b.getAuthor());
+                    ps.setDouble(4, b.getPricePerDay());
+                    ps.setInt(5, b.isAvailable() ? 1 : 0);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    private static int legacyLoad(String url) throws SQLException {
+        int rows = 0;
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, title, author, pricePerDay, available FROM books")) {
+            while (rs.next()) {
+                new Book(rs.getInt("id"), rs.getString("title"), rs.getString("author"),
+                        rs.getDouble("pricePerDay"), rs.getInt("available") == 1);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static int legacySearch(String url, String pattern, int limit) throws SQLException {
+        int rows = 0;
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT id, title, author, pricePerDay, available FROM books "
+                             + "WHERE title LIKE ? OR author LIKE ? ORDER BY id LIMIT ?")) {
+            ps.setString(1, pattern);
+            ps.setString(2, pattern);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static boolean legacyFind(String url, int id) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT id, title, author, pricePerDay, available FROM books WHERE id = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
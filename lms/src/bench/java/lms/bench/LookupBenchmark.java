@@ -0,0 +1,82 @@
+package lms.bench;
+
+import lms.LibraryService;
+import lms.model.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Id lookups on {@link LibraryService} as the catalog grows from 1k to 10M books:
+ * the hash index against the linear scan it replaced, plus remove/re-add churn.
+ *
+ * <p>{@code gradlew bench --args="lookup [maxBooks] [lookupsPerRun]"}
+ */
+class LookupBenchmark implements Benchmarks.Benchmark {
+
+    // A linear scan over more rows than this takes minutes per run
+    private static final int LINEAR_SCAN_LIMIT = 100_000;
+
+    private long sink;
+
+    @Override
+    public void run(String[] args) throws Exception {
+        int maxBooks = Bench.intArg(args, 0, 10_000_000);
+        int lookups = Bench.intArg(args, 1, 100_000);
+
+        for (int size = 1_000; size <= maxBooks; size *= 10) {
+            System.out.printf("%n--- %,d books ---%n", size);
+            LibraryService service = new LibraryService();
+            service.addLoadedBooks(books(size));
+
+            int[] ids = randomIds(size, lookups);
+
+            Bench.time("findBook (hash index)", lookups, () -> {
+                for (int id : ids) {
+                    sink += service.findBook(id).map(Book::getId).orElse(0);
+                }
+            });
+
+            if (size <= LINEAR_SCAN_LIMIT) {
+                List<Book> rows = service.getBooks();
+                int scans = Math.min(lookups, 1_000);
+                Bench.time("linear scan (previous findBook)", scans, () -> {
+                    for (int i = 0; i < scans; i++) {
+                        int id = ids[i];
+                        sink += rows.stream().filter(b -> b.getId() == id).findFirst().map(Book::getId).orElse(0);
+                    }
+                });
+            }
+
+            int churn = Math.min(lookups, size);
+            Bench.time("removeBook + addBook", churn, () -> {
+                for (int i = 0; i < churn; i++) {
+                    Book b = service.findBook(ids[i]).orElseThrow();
+                    service.removeBook(b.getId());
+                    service.addBook(b);
+                }
+                service.takeChanges();
+            });
+        }
+        System.out.println("\n(checksum " + sink + ")");
+    }
+
+    private static List<Book> books(int n) {
+        List<Book> books = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            // Shared strings keep 10M books inside the bench heap
+            books.add(new Book(i, "Title", "Author", 1.0 + (i % 5), true));
+        }
+        return books;
+    }
+
+    private static int[] randomIds(int size, int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = 1 + random.nextInt(size);
+        }
+        return ids;
+    }
+}
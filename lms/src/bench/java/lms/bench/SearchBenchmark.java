@@ -0,0 +1,95 @@
+package lms.bench;
+
+import lms.LibraryService;
+import lms.model.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Search-as-you-type over the book catalog: the {@link LibraryService} text index
+ * against the case-insensitive regex scan the panels used to run on every keystroke,
+ * plus the cost of keeping the index up to date.
+ *
+ * <p>{@code gradlew bench --args="search [books] [updates]"}
+ */
+class SearchBenchmark implements Benchmarks.Benchmark {
+
+    private static final String[] WORDS = {
+            "the", "river", "shadow", "garden", "winter", "silent", "empire", "glass", "north", "orchard",
+            "letters", "kingdom", "harbor", "midnight", "paper", "salt", "stone", "iron", "crown", "forest",
+    };
+    private static final String[] SURNAMES = {
+            "Tolkien", "Austen", "Morrison", "Okafor", "Lindqvist", "Tanaka", "Moreau", "Novak", "Haddad", "Silva",
+    };
+    // From a keystroke (one letter, a word prefix) to a whole word, a phrase and a miss
+    private static final String[] QUERIES = {"s", "sh", "sha", "shadow", "tolk", "of the river", "qzx"};
+
+    private long sink;
+
+    @Override
+    public void run(String[] args) throws Exception {
+        int size = Bench.intArg(args, 0, 1_000_000);
+        int updates = Bench.intArg(args, 1, 100_000);
+
+        LibraryService service = new LibraryService();
+        List<Book> books = books(size);
+        long start = System.nanoTime();
+        service.addLoadedBooks(books);
+        System.out.printf("Loaded and indexed %,d books in %.0f ms%n%n", size, (System.nanoTime() - start) / 1e6);
+
+        for (String query : QUERIES) {
+            int hits = service.matchingBookIds(query).length;
+            Bench.time(String.format("index \"%s\" (%,d hits)", query, hits), 1, () -> {
+                sink += service.matchingBookIds(query).length;
+            });
+        }
+
+        System.out.println();
+        for (String query : new String[] {"sha", "of the river"}) {
+            Pattern p = Pattern.compile("(?i)" + query);
+            Bench.time(String.format("regex scan \"%s\" (previous filter)", query), 1, () -> {
+                for (Book b : service.getBooks()) {
+                    if (p.matcher(Integer.toString(b.getId())).find() || p.matcher(b.getTitle()).find()
+                            || p.matcher(b.getAuthor()).find()) {
+                        sink++;
+                    }
+                }
+            });
+        }
+
+        System.out.println();
+        SplittableRandom random = new SplittableRandom(7);
+        int n = Math.min(updates, size);
+        Bench.time("addBook (retitle, re-index)", n, () -> {
+            for (int i = 0; i < n; i++) {
+                Book b = books.get(random.nextInt(size));
+                service.addBook(new Book(b.getId(), title(random), b.getAuthor(), b.getPricePerDay(), b.isAvailable()));
+            }
+            service.takeChanges();
+        });
+        Bench.time("index \"shadow\" after updates", 1, () -> {
+            sink += service.matchingBookIds("shadow").length;
+        });
+
+        System.out.println("\n(checksum " + sink + ")");
+    }
+
+    private static List<Book> books(int n) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Book> books = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            String author = SURNAMES[random.nextInt(SURNAMES.length)] + " " + (char) ('A' + random.nextInt(26)) + ".";
+            books.add(new Book(i, title(random), author, 1.0 + (i % 5), true));
+        }
+        return books;
+    }
+
+    private static String title(SplittableRandom random) {
+        String w1 = WORDS[random.nextInt(WORDS.length)];
+        String w2 = WORDS[random.nextInt(WORDS.length)];
+        return Character.toUpperCase(w1.charAt(0)) + w1.substring(1) + " of the " + w2 + " " + random.nextInt(1000);
+    }
+}
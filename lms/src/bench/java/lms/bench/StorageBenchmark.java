@@ -0,0 +1,93 @@
+package lms.bench;
+
+import lms.LibraryService;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.storage.CachedSqliteStorage;
+import lms.storage.StorageEngine;
+import lms.storage.StorageEngines;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The same workload against each {@link StorageEngine}: an initial bulk save, small
+ * incremental saves (a checkout and a return), a full load, point lookups, a stream
+ * over every book, and reopening the engine. For {@code sqlite-mapped} the first
+ * load writes the startup snapshot, and reopening must map the one written at close.
+ *
+ * <p>{@code gradlew bench --args="storage [books] [lookups] [engines=memory,snapshot,sqlite,sqlite-mapped]"}
+ */
+class StorageBenchmark implements Benchmarks.Benchmark {
+
+    @Override
+    public void run(String[] args) throws Exception {
+        int bookCount = Bench.intArg(args, 0, 200_000);
+        int lookups = Bench.intArg(args, 1, 10_000);
+        List<String> engines = List.of((args.length > 2 ? args[2] : "memory,snapshot,sqlite,sqlite-mapped").split(","));
+
+        System.out.printf(Locale.ROOT, "Storage benchmark: %,d books, %,d point lookups%n", bookCount, lookups);
+        for (String engine : engines) {
+            System.out.printf(Locale.ROOT, "%n[%s]%n", engine);
+            run(engine, bookCount, lookups);
+        }
+    }
+
+    private static void run(String engine, int bookCount, int lookups) throws Exception {
+        Path dir = Files.createTempDirectory("lms-storage");
+        String location = dir.resolve(engine.startsWith(StorageEngines.SQLITE) ? "library.db" : "data").toString();
+
+        LibraryService service = new LibraryService();
+        for (int i = 1; i <= bookCount; i++) {
+            service.addBook(new Book(i, "Title " + i, "Author " + (i % 997), 1.0 + (i % 5), true));
+        }
+        service.addBorrower(new Borrower(1, "Borrower", "borrower@example.com"));
+
+        try (StorageEngine db = StorageEngines.open(engine, location)) {
+            long start = System.nanoTime();
+            db.saveChanges(service.takeChanges());
+            System.out.printf(Locale.ROOT, "%-45s %12.1f ms%n", "save " + bookCount + " books", (System.nanoTime() - start) / 1e6);
+
+            AtomicInteger loanId = new AtomicInteger();
+            Bench.time("save checkout + return", 2, () -> {
+                int id = loanId.incrementAndGet();
+                service.checkout(id, 1 + ThreadLocalRandom.current().nextInt(bookCount), 1, LocalDate.now(), 14);
+                db.saveChanges(service.takeChanges());
+                service.returnLoan(id);
+                db.saveChanges(service.takeChanges());
+            });
+
+            Bench.time("load all", bookCount, db::loadAll);
+            Bench.time("point lookup", lookups, () -> {
+                for (int i = 0; i < lookups; i++) {
+                    db.findBook(1 + ThreadLocalRandom.current().nextInt(bookCount));
+                }
+            });
+            Bench.time("stream books", bookCount, () -> {
+                try (var books = db.streamBooks()) {
+                    books.count();
+                }
+            });
+        }
+
+        // What a restart costs: open the engine and load everything back
+        if (!engine.equals(StorageEngines.MEMORY)) {
+            long start = System.nanoTime();
+            try (StorageEngine db = StorageEngines.open(engine, location)) {
+                int rows = db.loadAll().rowCount();
+                System.out.printf(Locale.ROOT, "%-45s %12.1f ms  (%,d rows)%n", "reopen + load all",
+                        (System.nanoTime() - start) / 1e6, rows);
+                // Every loan was returned, so this also reopens a snapshot whose loan table is empty
+                if (rows != bookCount + 1) throw new IllegalStateException("Reopened with " + rows + " rows");
+                if (db instanceof CachedSqliteStorage cached && !cached.lastLoad().startsWith("snapshot")) {
+                    throw new IllegalStateException("Reopen fell back to SQLite: " + cached.lastError());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package lms;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lms.storage.StorageEngine;
+import lms.storage.StorageEngine.ProgressListener;
+
+/**
+ * Periodic checkpoints for when write-behind is off: every {@code intervalMillis} the
+ * changes made since the previous checkpoint are taken from the service and saved in
+ * one transaction on a background thread. An edit therefore waits at most one
+ * interval for its checkpoint to start, and is on disk once that checkpoint commits:
+ * the data-loss window is the interval plus the checkpoint's own cost.
+ *
+ * <p>A checkpoint costs what changed, not the size of the library, and an idle
+ * library costs nothing. A failed checkpoint hands its changes back to the service,
+ * so the next one retries them. "Save to DB" goes through {@link #checkpoint} too,
+ * so checkpoints never overtake each other and write older values last.
+ */
+public class Autosave implements AutoCloseable {
+
+    public static final long DEFAULT_INTERVAL_MILLIS = 5_000;
+
+    private final LibraryService service;
+    private final StorageEngine db;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    private volatile Consumer<Checkpoint> listener = c -> {};
+
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong savedChanges = new AtomicLong();
+    private volatile long lastCostNanos;
+    private volatile long maxCostNanos;
+    private volatile String lastError;
+
+    /** @param intervalMillis time between checkpoints; 0 saves only when {@link #checkpoint} is called */
+    public Autosave(LibraryService service, StorageEngine db, long intervalMillis) {
+        if (intervalMillis < 0) throw new IllegalArgumentException("intervalMillis must not be negative");
+        this.service = service;
+        this.db = db;
+        this.intervalMillis = intervalMillis;
+
+        if (intervalMillis == 0) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> Thread.ofPlatform()
+                .name("lms-autosave").daemon().unstarted(r));
+        // Fixed rate: a checkpoint starts every interval, however long the last one took
+        scheduler.scheduleAtFixedRate(this::scheduledCheckpoint, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Called on the autosave thread after every checkpoint that saved something or failed. */
+    public void setListener(Consumer<Checkpoint> listener) {
+        this.listener = listener;
+    }
+
+    private void scheduledCheckpoint() {
+        try {
+            Checkpoint c = checkpoint(ProgressListener.NONE);
+            if (c.changes() > 0) listener.accept(c);
+        } catch (RuntimeException e) {
+            // Already recorded and the changes handed back; keep the schedule running
+            listener.accept(new Checkpoint(0, 0, e.getMessage()));
+        }
+    }
+
+    /**
+     * Saves every change made since the last checkpoint, now. Interrupting the caller
+     * rolls the save back. Throws if the save fails; its changes are kept for the next one.
+     */
+    public Checkpoint checkpoint(ProgressListener progress) {
+        checkpointLock.lock();
+        try {
+            ChangeSet changes = service.takeChanges();
+            if (changes.isEmpty()) return new Checkpoint(0, 0, null);
+
+            long start = System.nanoTime();
+            try {
+                db.saveChanges(changes, progress);
+            } catch (RuntimeException e) {
+                service.restoreChanges(changes);
+                lastError = e.getMessage();
+                throw e;
+            }
+            long cost = System.nanoTime() - start;
+
+            checkpoints.incrementAndGet();
+            savedChanges.addAndGet(changes.size());
+            lastCostNanos = cost;
+            if (cost > maxCostNanos) maxCostNanos = cost;
+            lastError = null;
+            return new Checkpoint(changes.size(), cost, null);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    public long intervalMillis() {
+        return intervalMillis;
+    }
+
+    public Stats stats() {
+        return new Stats(intervalMillis, checkpoints.get(), savedChanges.get(),
+                lastCostNanos / 1e6, maxCostNanos / 1e6, lastError);
+    }
+
+    /** Stops the schedule and saves what is left. */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            checkpoint(ProgressListener.NONE);
+        } catch (RuntimeException ignored) {
+            // Recorded in lastError; nothing more we can do while shutting down
+        }
+    }
+
+    /** One checkpoint: how many changes it saved and how long the save took (error set if it failed). */
+    public record Checkpoint(int changes, long costNanos, String error) {
+        public double costMillis() {
+            return costNanos / 1e6;
+        }
+    }
+
+    public record Stats(
+            long intervalMillis,
+            long checkpoints,
+            long savedChanges,
+            double lastCostMillis,
+            double maxCostMillis,
+            String lastError
+    ) {
+        /**
+         * Longest an edit can wait to reach the database: until the next checkpoint
+         * starts (an interval, or the slowest checkpoint if that is longer), plus that
+         * checkpoint's own cost.
+         */
+        public double maxLossWindowMillis() {
+            return Math.max(intervalMillis, maxCostMillis) + maxCostMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "interval=%.1f s, checkpoints=%d, changes=%d, last checkpoint=%.1f ms, max=%.1f ms, loss window<=%.1f s%s",
+                    intervalMillis / 1e3, checkpoints, savedChanges, lastCostMillis, maxCostMillis,
+                    maxLossWindowMillis() / 1e3, lastError == null ? "" : ", last error=" + lastError);
+        }
+    }
+}
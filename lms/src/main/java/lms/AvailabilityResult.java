@@ -0,0 +1,19 @@
+package lms;
+
+import lms.model.Book;
+import lms.model.Loan;
+
+/** Outcome of {@link LibraryService#setBookAvailable}: the book as it is now, or why it was refused. */
+public sealed interface AvailabilityResult {
+
+    record Updated(Book book) implements AvailabilityResult {}
+
+    record BookNotFound(int bookId) implements AvailabilityResult {}
+
+    /** The book cannot be made available while {@code heldBy} is out; return the loan instead. */
+    record OnLoan(int bookId, Loan heldBy) implements AvailabilityResult {}
+
+    default boolean succeeded() {
+        return this instanceof Updated;
+    }
+}
@@ -0,0 +1,114 @@
+package lms;
+
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pending changes since the last save: entities that were inserted or updated
+ * (persisted as UPSERTs) and ids that were deleted. Upserting an id cancels an
+ * earlier delete of the same id and vice versa, so each id appears at most once.
+ */
+public class ChangeSet {
+
+    private final Map<Integer, Book> books = new LinkedHashMap<>();
+    private final Map<Integer, Borrower> borrowers = new LinkedHashMap<>();
+    private final Map<Integer, Loan> loans = new LinkedHashMap<>();
+
+    private final Set<Integer> deletedBooks = new LinkedHashSet<>();
+    private final Set<Integer> deletedBorrowers = new LinkedHashSet<>();
+    private final Set<Integer> deletedLoans = new LinkedHashSet<>();
+
+    void bookUpserted(Book book) {
+        deletedBooks.remove(book.getId());
+        books.put(book.getId(), book);
+    }
+
+    void bookDeleted(int id) {
+        books.remove(id);
+        deletedBooks.add(id);
+    }
+
+    void borrowerUpserted(Borrower borrower) {
+        deletedBorrowers.remove(borrower.getId());
+        borrowers.put(borrower.getId(), borrower);
+    }
+
+    void borrowerDeleted(int id) {
+        borrowers.remove(id);
+        deletedBorrowers.add(id);
+    }
+
+    void loanUpserted(Loan loan) {
+        deletedLoans.remove(loan.getId());
+        loans.put(loan.getId(), loan);
+    }
+
+    void loanDeleted(int id) {
+        loans.remove(id);
+        deletedLoans.add(id);
+    }
+
+    public Collection<Book> upsertedBooks() { return books.values(); }
+    public Collection<Borrower> upsertedBorrowers() { return borrowers.values(); }
+    public Collection<Loan> upsertedLoans() { return loans.values(); }
+
+    public Collection<Integer> deletedBookIds() { return deletedBooks; }
+    public Collection<Integer> deletedBorrowerIds() { return deletedBorrowers; }
+    public Collection<Integer> deletedLoanIds() { return deletedLoans; }
+
+    public int size() {
+        return books.size() + borrowers.size() + loans.size()
+                + deletedBooks.size() + deletedBorrowers.size() + deletedLoans.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Folds an older change set underneath this one (used when a save fails and
+     * its changes must be retried). Ids touched by this set win.
+     */
+    void mergeOlder(ChangeSet older) {
+        older.books.forEach((id, b) -> { if (!touchesBook(id)) books.put(id, b); });
+        older.deletedBooks.forEach(id -> { if (!touchesBook(id)) deletedBooks.add(id); });
+
+        older.borrowers.forEach((id, b) -> { if (!touchesBorrower(id)) borrowers.put(id, b); });
+        older.deletedBorrowers.forEach(id -> { if (!touchesBorrower(id)) deletedBorrowers.add(id); });
+
+        older.loans.forEach((id, l) -> { if (!touchesLoan(id)) loans.put(id, l); });
+        older.deletedLoans.forEach(id -> { if (!touchesLoan(id)) deletedLoans.add(id); });
+    }
+
+    /** A change set that records nothing, for a service whose changes are persisted elsewhere. */
+    static ChangeSet discarding() {
+        return new ChangeSet() {
+            @Override void bookUpserted(Book book) {}
+            @Override void bookDeleted(int id) {}
+            @Override void borrowerUpserted(Borrower borrower) {}
+            @Override void borrowerDeleted(int id) {}
+            @Override void loanUpserted(Loan loan) {}
+            @Override void loanDeleted(int id) {}
+            @Override void mergeOlder(ChangeSet older) {}
+        };
+    }
+
+    private boolean touchesBook(int id) { return books.containsKey(id) || deletedBooks.contains(id); }
+    private boolean touchesBorrower(int id) { return borrowers.containsKey(id) || deletedBorrowers.contains(id); }
+    private boolean touchesLoan(int id) { return loans.containsKey(id) || deletedLoans.contains(id); }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{books=" + books.size() + "/-" + deletedBooks.size() +
+                ", borrowers=" + borrowers.size() + "/-" + deletedBorrowers.size() +
+                ", loans=" + loans.size() + "/-" + deletedLoans.size() +
+                '}';
+    }
+}
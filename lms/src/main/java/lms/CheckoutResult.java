@@ -0,0 +1,22 @@
+package lms;
+
+import lms.model.Loan;
+
+/** Outcome of {@link LibraryService#checkout}: the new loan, or why it was refused. */
+public sealed interface CheckoutResult {
+
+    record CheckedOut(Loan loan) implements CheckoutResult {}
+
+    record BookNotFound(int bookId) implements CheckoutResult {}
+
+    record BorrowerNotFound(int borrowerId) implements CheckoutResult {}
+
+    /** Someone else has the book; {@code heldBy} is their loan, if the book has one. */
+    record BookUnavailable(int bookId, Loan heldBy) implements CheckoutResult {}
+
+    record LoanIdTaken(int loanId) implements CheckoutResult {}
+
+    default boolean succeeded() {
+        return this instanceof CheckedOut;
+    }
+}
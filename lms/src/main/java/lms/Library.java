@@ -1,5 +1,6 @@
 package lms;
 
+import lms.io.ExportCommand;
 import lms.ui.LibraryUI;
 
 import javax.swing.*;
@@ -7,6 +8,16 @@ import javax.swing.*;
 public class Library {
 
     public static void main(String[] args) {
+        // Headless entry point: never touches Swing
+        if (args.length > 0 && args[0].equals("--export")) {
+            System.exit(ExportCommand.run(args));
+        }
+
+        // --storage <engine> is the same as -Dlms.storage=<engine>
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--storage")) System.setProperty("lms.storage", args[i + 1]);
+        }
+
         // Optional modern look (works if FlatLaf is on the classpath, otherwise ignored)
         try {
             Class<?> laf = Class.forName("com.formdev.flatlaf.FlatLightLaf");
@@ -0,0 +1,55 @@
+package lms;
+
+import java.util.List;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+/**
+ * A single mutation published by {@link LibraryService}.
+ *
+ * @param kind   what happened
+ * @param entity which table it happened to
+ * @param id     primary key of the affected row ({@code -1} for {@link Kind#RELOADED})
+ * @param row    position of the row in its table: where it now is for INSERTED/UPDATED,
+ *               where it was for DELETED. Tables insert at the end and delete by moving
+ *               the last row into the gap. For {@link Kind#RELOADED}, the table's row
+ *               count afterwards.
+ * @param value  the inserted/updated entity; a {@link Loaded} for RELOADED; {@code null}
+ *               for DELETED
+ */
+public record LibraryChange(Kind kind, Entity entity, int id, int row, Object value) {
+
+    public enum Kind {
+        INSERTED,
+        UPDATED,
+        DELETED,
+        /** Bulk replace/append with data that is already persisted (e.g. a DB load). */
+        RELOADED
+    }
+
+    public enum Entity { BOOK, BORROWER, LOAN }
+
+    /**
+     * What a RELOADED event loaded. The loaded rows are the table's last ones; when
+     * {@code ids} covers the whole table, the load replaced what was there before.
+     *
+     * @param ids  the ids of the table's loaded rows, in row order
+     * @param rows the rows as they were handed to the service, in that order
+     */
+    public record Loaded(int[] ids, List<?> rows) {}
+
+    static LibraryChange inserted(Book b, int row) { return new LibraryChange(Kind.INSERTED, Entity.BOOK, b.getId(), row, b); }
+    static LibraryChange inserted(Borrower b, int row) { return new LibraryChange(Kind.INSERTED, Entity.BORROWER, b.getId(), row, b); }
+    static LibraryChange inserted(Loan l, int row) { return new LibraryChange(Kind.INSERTED, Entity.LOAN, l.getId(), row, l); }
+
+    static LibraryChange updated(Book b, int row) { return new LibraryChange(Kind.UPDATED, Entity.BOOK, b.getId(), row, b); }
+    static LibraryChange updated(Borrower b, int row) { return new LibraryChange(Kind.UPDATED, Entity.BORROWER, b.getId(), row, b); }
+    static LibraryChange updated(Loan l, int row) { return new LibraryChange(Kind.UPDATED, Entity.LOAN, l.getId(), row, l); }
+
+    static LibraryChange deleted(Entity entity, int id, int row) { return new LibraryChange(Kind.DELETED, entity, id, row, null); }
+
+    static LibraryChange reloaded(Entity entity, int rows, int[] loadedIds, List<?> loaded) {
+        return new LibraryChange(Kind.RELOADED, entity, -1, rows, new Loaded(loadedIds, loaded));
+    }
+}
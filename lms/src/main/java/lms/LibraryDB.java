@@ -1,197 +1,753 @@
 package lms;
 
+import lms.ResultSetSpliterator.RowReader;
+import lms.SqliteConnections.PooledConnection;
 import lms.model.Book;
 import lms.model.Borrower;
 import lms.model.Loan;
+import lms.storage.StorageEngine;
 
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class LibraryDB {
+/** The SQLite {@link StorageEngine}, plus the SQL-only paging, search and import paths. */
+public class LibraryDB implements StorageEngine {
 
-    private static final String URL = "jdbc:sqlite:library.db";
+    public static final String DEFAULT_URL = "jdbc:sqlite:library.db";
 
-    public LibraryDB() {
-        createTables();
-    }
+    private static final String BOOK_COLUMNS = "id, title, author, pricePerDay, available";
+    private static final String BORROWER_COLUMNS = "id, name, email";
+    private static final String LOAN_COLUMNS = "id, bookId, borrowerId, startDate, duration";
 
-    private Connection connect() throws SQLException {
-        return DriverManager.getConnection(URL);
-    }
+    public static final int DEFAULT_FETCH_SIZE = 1000;
 
-    private void createTables() {
-        String createBooks = """
-                CREATE TABLE IF NOT EXISTS books (
-                    id INTEGER PRIMARY KEY,
-                    title TEXT NOT NULL,
-                    author TEXT NOT NULL,
-                    pricePerDay REAL NOT NULL,
-                    available INTEGER NOT NULL
-                );
-                """;
+    // Tables bigger than this are read as several id ranges in parallel
+    private static final long PARALLEL_SPLIT_ROWS = 100_000;
+    private static final int PARALLEL_PARTS = Runtime.getRuntime().availableProcessors();
 
-        String createBorrowers = """
-                CREATE TABLE IF NOT EXISTS borrowers (
-                    id INTEGER PRIMARY KEY,
-                    name TEXT NOT NULL,
-                    email TEXT NOT NULL
-                );
-                """;
+    // Saves and loads report progress (and notice an interrupt) every this many rows
+    private static final int PROGRESS_ROWS = 5_000;
 
-        String createLoans = """
-                CREATE TABLE IF NOT EXISTS loans (
-                    id INTEGER PRIMARY KEY,
-                    bookId INTEGER NOT NULL,
-                    borrowerId INTEGER NOT NULL,
-                    startDate TEXT NOT NULL,
-                    duration INTEGER NOT NULL,
-                    FOREIGN KEY(bookId) REFERENCES books(id),
-                    FOREIGN KEY(borrowerId) REFERENCES borrowers(id)
-                );
-                """;
+    private final SqliteConnections connections;
+    private volatile int fetchSize = DEFAULT_FETCH_SIZE;
 
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement()) {
+    public LibraryDB() {
+        this(DEFAULT_URL);
+    }
 
-            stmt.execute(createBooks);
-            stmt.execute(createBorrowers);
-            stmt.execute(createLoans);
+    public LibraryDB(String url) {
+        this.connections = new SqliteConnections(url, SqliteConnections.DEFAULT_READERS);
+        migrateSchema();
+    }
 
+    private void migrateSchema() {
+        try {
+            SchemaMigrations.migrate(connections);
         } catch (SQLException e) {
-            throw new RuntimeException("Failed creating tables", e);
+            throw new RuntimeException("Failed migrating database schema", e);
         }
     }
 
-    public void saveAll(List<Book> books, List<Borrower> borrowers, List<Loan> loans) {
-        try (Connection conn = connect()) {
-            conn.setAutoCommit(false);
-            clearAll(conn);
+    /**
+     * Persists only what changed since the last save: deletes first, then
+     * UPSERTs, all in one transaction. Cost grows with the change count,
+     * not with the size of the tables.
+     */
+    @Override
+    public void saveChanges(ChangeSet changes) {
+        saveChanges(changes, ProgressListener.NONE);
+    }
+
+    /**
+     * As {@link #saveChanges(ChangeSet)}, reporting rows written as it goes. Interrupting
+     * the calling thread rolls the transaction back and throws.
+     */
+    @Override
+    public void saveChanges(ChangeSet changes, ProgressListener listener) {
+        if (changes.isEmpty()) return;
 
-            saveBooks(conn, books);
-            saveBorrowers(conn, borrowers);
-            saveLoans(conn, loans);
+        RowProgress progress = new RowProgress(listener, changes.size());
+        try {
+            connections.write(conn -> {
+                deleteByIds(conn, "loans", changes.deletedLoanIds(), progress);
+                deleteByIds(conn, "borrowers", changes.deletedBorrowerIds(), progress);
+                deleteByIds(conn, "books", changes.deletedBookIds(), progress);
 
-            conn.commit();
+                upsertBooks(conn, changes.upsertedBooks(), progress);
+                upsertBorrowers(conn, changes.upsertedBorrowers(), progress);
+                upsertLoans(conn, changes.upsertedLoans(), progress);
+                bumpGeneration(conn);
+                return null;
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Failed saving to DB", e);
         }
     }
 
+    /**
+     * Loads the three tables concurrently on virtual threads, each on its own read
+     * connection. A large table is further split into id ranges that are read in
+     * parallel. Any failure (or interrupt) cancels the whole load.
+     *
+     * <p>Each of those reads sees the database as of its own start, so a write that
+     * commits in between would leave the result mixing two states (a loan whose book
+     * still shows as available). The {@link #generation()} is compared before and after;
+     * if a write landed, the tables are read again, one after the other, in a single
+     * read transaction.
+     */
+    @Override
     public LoadedData loadAll() {
-        try (Connection conn = connect()) {
-            List<Book> books = loadBooks(conn);
-            List<Borrower> borrowers = loadBorrowers(conn);
-            List<Loan> loans = loadLoans(conn);
-            return new LoadedData(books, borrowers, loans);
+        return loadAll(ProgressListener.NONE);
+    }
+
+    /**
+     * As {@link #loadAll()}, reporting rows read as it goes (from several threads at
+     * once). Interrupting the calling thread cancels the load and throws.
+     */
+    @Override
+    public LoadedData loadAll(ProgressListener listener) {
+        long generation = generation();
+        LoadedData data = loadParallel(listener);
+        if (generation() == generation) return data;
+        return loadInOneTransaction(listener);
+    }
+
+    private LoadedData loadParallel(ProgressListener listener) {
+        try (TaskGroup group = new TaskGroup()) {
+            RowProgress progress = new RowProgress(listener, listener == ProgressListener.NONE ? 0 : countAll());
+            Future<List<Book>> books = group.fork(() -> loadTable("books", BOOK_COLUMNS, LibraryDB::readBook, progress));
+            Future<List<Borrower>> borrowers = group.fork(() -> loadTable("borrowers", BORROWER_COLUMNS, LibraryDB::readBorrower, progress));
+            Future<List<Loan>> loans = group.fork(() -> loadTable("loans", LOAN_COLUMNS, LibraryDB::readLoan, progress));
+            group.join();
+            return new LoadedData(books.resultNow(), borrowers.resultNow(), loans.resultNow());
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed loading from DB", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted loading from DB", e);
+        }
+    }
+
+    private LoadedData loadInOneTransaction(ProgressListener listener) {
+        try {
+            return connections.read(conn -> {
+                RowProgress progress = new RowProgress(listener, listener == ProgressListener.NONE ? 0 : countAll(conn));
+                List<Book> books = readRange(conn, "books", BOOK_COLUMNS, Long.MIN_VALUE, Long.MAX_VALUE, 0, LibraryDB::readBook, progress);
+                List<Borrower> borrowers = readRange(conn, "borrowers", BORROWER_COLUMNS, Long.MIN_VALUE, Long.MAX_VALUE, 0, LibraryDB::readBorrower, progress);
+                List<Loan> loans = readRange(conn, "loans", LOAN_COLUMNS, Long.MIN_VALUE, Long.MAX_VALUE, 0, LibraryDB::readLoan, progress);
+                return new LoadedData(books, borrowers, loans);
+            });
         } catch (SQLException e) {
             throw new RuntimeException("Failed loading from DB", e);
         }
     }
 
-    private void clearAll(Connection conn) throws SQLException {
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute("DELETE FROM loans");
-            stmt.execute("DELETE FROM borrowers");
-            stmt.execute("DELETE FROM books");
+    private long countAll() {
+        try {
+            return connections.read(LibraryDB::countAll);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed counting rows", e);
         }
     }
 
-    private void saveBooks(Connection conn, List<Book> books) throws SQLException {
-        String sql = "INSERT INTO books (id, title, author, pricePerDay, available) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            for (Book b : books) {
-                ps.setInt(1, b.getId());
-                ps.setString(2, b.getTitle());
-                ps.setString(3, b.getAuthor());
-                ps.setDouble(4, b.getPricePerDay());
-                ps.setInt(5, b.isAvailable() ? 1 : 0);
-                ps.addBatch();
+    private static long countAll(PooledConnection conn) throws SQLException {
+        try (ResultSet rs = conn.prepare("""
+                SELECT (SELECT COUNT(*) FROM books) + (SELECT COUNT(*) FROM borrowers)
+                     + (SELECT COUNT(*) FROM loans)
+                """).executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private <T> List<T> loadTable(String table, String columns, RowReader<T> reader, RowProgress progress) throws Exception {
+        long[] bounds = connections.read(conn -> {
+            try (ResultSet rs = conn.prepare("SELECT MIN(id), MAX(id), COUNT(*) FROM " + table).executeQuery()) {
+                rs.next();
+                return new long[] {rs.getLong(1), rs.getLong(2), rs.getLong(3)};
             }
-            ps.executeBatch();
+        });
+        long minId = bounds[0], maxId = bounds[1], rows = bounds[2];
+
+        int parts = (int) Math.min(PARALLEL_PARTS, rows / PARALLEL_SPLIT_ROWS + 1);
+        if (parts <= 1) {
+            return readRange(table, columns, minId, maxId, (int) rows, reader, progress);
+        }
+
+        // Split by id range; ids are usually dense enough for this to balance well
+        long span = (maxId - minId) / parts + 1;
+        try (TaskGroup group = new TaskGroup()) {
+            List<Future<List<T>>> ranges = new ArrayList<>(parts);
+            for (int i = 0; i < parts; i++) {
+                long from = minId + i * span;
+                long to = Math.min(maxId, from + span - 1);
+                ranges.add(group.fork(() -> readRange(table, columns, from, to, (int) (rows / parts), reader, progress)));
+            }
+            group.join();
+
+            List<T> out = new ArrayList<>((int) rows);
+            ranges.forEach(r -> out.addAll(r.resultNow()));
+            return out;
         }
     }
 
-    private void saveBorrowers(Connection conn, List<Borrower> borrowers) throws SQLException {
-        String sql = "INSERT INTO borrowers (id, name, email) VALUES (?, ?, ?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            for (Borrower b : borrowers) {
-                ps.setInt(1, b.getId());
-                ps.setString(2, b.getName());
-                ps.setString(3, b.getEmail());
-                ps.addBatch();
+    private <T> List<T> readRange(String table, String columns, long fromId, long toId,
+                                  int expectedRows, RowReader<T> reader, RowProgress progress) throws SQLException {
+        return connections.read(conn -> readRange(conn, table, columns, fromId, toId, expectedRows, reader, progress));
+    }
+
+    private <T> List<T> readRange(PooledConnection conn, String table, String columns, long fromId, long toId,
+                                  int expectedRows, RowReader<T> reader, RowProgress progress) throws SQLException {
+        PreparedStatement ps = conn.prepare(
+                "SELECT " + columns + " FROM " + table + " WHERE id BETWEEN ? AND ? ORDER BY id");
+        ps.setLong(1, fromId);
+        ps.setLong(2, toId);
+        ps.setFetchSize(fetchSize);
+
+        List<T> out = new ArrayList<>(expectedRows);
+        int unreported = 0;
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new SQLException("Load cancelled");
+                }
+                out.add(reader.read(rs));
+                if (++unreported == PROGRESS_ROWS) {
+                    progress.add(unreported);
+                    unreported = 0;
+                }
             }
-            ps.executeBatch();
         }
+        progress.add(unreported);
+        return out;
+    }
+
+    /** Rows the driver pulls per round trip when streaming. */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) throw new IllegalArgumentException("fetchSize must be positive");
+        this.fetchSize = fetchSize;
+    }
+
+    // --- Keyset pagination: the next {@code limit} rows with id > afterId, in id order ---
+
+    public List<Book> loadBooksPage(int afterId, int limit) {
+        return readPage("SELECT " + BOOK_COLUMNS + " FROM books WHERE id > ? ORDER BY id LIMIT ?",
+                afterId, limit, LibraryDB::readBook);
+    }
+
+    public List<Borrower> loadBorrowersPage(int afterId, int limit) {
+        return readPage("SELECT " + BORROWER_COLUMNS + " FROM borrowers WHERE id > ? ORDER BY id LIMIT ?",
+                afterId, limit, LibraryDB::readBorrower);
+    }
+
+    public List<Loan> loadLoansPage(int afterId, int limit) {
+        return readPage("SELECT " + LOAN_COLUMNS + " FROM loans WHERE id > ? ORDER BY id LIMIT ?",
+                afterId, limit, LibraryDB::readLoan);
+    }
+
+    private <T> List<T> readPage(String sql, int afterId, int limit, RowReader<T> reader) {
+        try {
+            return connections.read(conn -> {
+                PreparedStatement ps = conn.prepare(sql);
+                ps.setInt(1, afterId);
+                ps.setInt(2, limit);
+                List<T> out = new ArrayList<>(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(reader.read(rs));
+                    }
+                }
+                return out;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed reading page from DB", e);
+        }
+    }
+
+    // --- Paging views for the UI tables: filtering and sorting run in SQL ---
+
+    public PagedTable<Book> pagedBooks() {
+        return new PagedTable<>(connections, "books", BOOK_COLUMNS, LibraryDB::readBook,
+                List.of(Book::getId, Book::getTitle, Book::getAuthor, Book::getPricePerDay, b -> b.isAvailable() ? 1 : 0),
+                LibraryDB::bookSearch);
+    }
+
+    public PagedTable<Borrower> pagedBorrowers() {
+        return new PagedTable<>(connections, "borrowers", BORROWER_COLUMNS, LibraryDB::readBorrower,
+                List.of(Borrower::getId, Borrower::getName, Borrower::getEmail),
+                LibraryDB::borrowerSearch);
+    }
+
+    public PagedTable<Loan> pagedLoans() {
+        return new PagedTable<>(connections, "loans", LOAN_COLUMNS, LibraryDB::readLoan,
+                List.of(Loan::getId, Loan::getBookId, Loan::getBorrowerId, Loan::getStartEpochDay, Loan::getDurationDays),
+                LibraryDB::loanSearch);
+    }
+
+    // Words of the search as title/author prefixes (books_fts), or the book id
+    private static PagedTable.Where bookSearch(String text) {
+        String match = ftsQuery(text);
+        if (match.isEmpty()) return PagedTable.Where.NO_ROWS;
+
+        String fts = "id IN (SELECT rowid FROM books_fts WHERE books_fts MATCH ?)";
+        Integer id = parseId(text);
+        return id == null
+                ? new PagedTable.Where(fts, List.of(match))
+                : new PagedTable.Where("id = ? OR " + fts, List.of(id, match));
+    }
+
+    // Substring of name or email (a scan; borrowers have no text index), or the borrower id
+    private static PagedTable.Where borrowerSearch(String text) {
+        String like = "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        String sql = "name LIKE ? ESCAPE '\\' OR email LIKE ? ESCAPE '\\'";
+        Integer id = parseId(text);
+        return id == null
+                ? new PagedTable.Where(sql, List.of(like, like))
+                : new PagedTable.Where(sql + " OR id = ?", List.of(like, like, id));
+    }
+
+    // Loan, book or borrower id, or a start date as shown in the table (DD-MM-YYYY)
+    private static PagedTable.Where loanSearch(String text) {
+        Integer id = parseId(text);
+        if (id != null) {
+            return new PagedTable.Where("id = ? OR bookId = ? OR borrowerId = ?", List.of(id, id, id));
+        }
+        try {
+            long epochDay = LocalDate.parse(text, Loan.UI_DATE_FORMAT).toEpochDay();
+            return new PagedTable.Where("startDate = ?", List.of(epochDay));
+        } catch (DateTimeParseException e) {
+            return PagedTable.Where.NO_ROWS;
+        }
+    }
+
+    private static Integer parseId(String text) {
+        try {
+            return Integer.valueOf(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // --- Full-text search over title and author (books_fts, kept in sync by triggers) ---
+
+    /**
+     * Books matching every word of {@code query}, each word as a prefix ("tolk ring"
+     * finds "The Lord of the Rings" by Tolkien), best BM25 match first with title hits
+     * weighted above author hits. Returns rows {@code offset} to {@code offset + limit}.
+     */
+    public List<Book> searchBooks(String query, int limit, int offset) {
+        String match = ftsQuery(query);
+        if (match.isEmpty()) return List.of();
+
+        try {
+            return connections.read(conn -> {
+                PreparedStatement ps = conn.prepare("""
+                        SELECT b.id, b.title, b.author, b.pricePerDay, b.available
+                        FROM books_fts JOIN books b ON b.id = books_fts.rowid
+                        WHERE books_fts MATCH ?
+                        ORDER BY bm25(books_fts, 2.0, 1.0), b.id
+                        LIMIT ? OFFSET ?
+                        """);
+                ps.setString(1, match);
+                ps.setInt(2, limit);
+                ps.setInt(3, offset);
+                List<Book> out = new ArrayList<>(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(readBook(rs));
+                    }
+                }
+                return out;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed searching books", e);
+        }
+    }
+
+    /**
+     * Turns free text into an FTS5 query: every word becomes a quoted prefix term and
+     * all must match. Punctuation is dropped, so user input cannot inject FTS5 syntax.
+     */
+    private static String ftsQuery(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) continue;
+            if (!match.isEmpty()) match.append(" AND ");
+            match.append('"').append(word).append("\"*");
+        }
+        return match.toString();
+    }
+
+    // --- Streaming: rows are read lazily from one read transaction. Close the stream when done. ---
+
+    @Override
+    public Stream<Book> streamBooks() {
+        return stream("SELECT " + BOOK_COLUMNS + " FROM books ORDER BY id", LibraryDB::readBook);
+    }
+
+    @Override
+    public Stream<Borrower> streamBorrowers() {
+        return stream("SELECT " + BORROWER_COLUMNS + " FROM borrowers ORDER BY id", LibraryDB::readBorrower);
+    }
+
+    @Override
+    public Stream<Loan> streamLoans() {
+        return stream("SELECT " + LOAN_COLUMNS + " FROM loans ORDER BY id", LibraryDB::readLoan);
+    }
+
+    private <T> Stream<T> stream(String sql, RowReader<T> reader) {
+        PooledConnection conn;
+        try {
+            conn = connections.borrowReader();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed opening stream", e);
+        }
+
+        try {
+            PreparedStatement ps = conn.prepare(sql);
+            ps.setFetchSize(fetchSize);
+            ResultSet rs = ps.executeQuery();
+            return StreamSupport.stream(new ResultSetSpliterator<>(rs, reader), false)
+                    .onClose(() -> {
+                        try {
+                            rs.close();
+                        } catch (SQLException ignored) {
+                        } finally {
+                            connections.release(conn);
+                        }
+                    });
+        } catch (SQLException e) {
+            connections.release(conn);
+            throw new RuntimeException("Failed opening stream", e);
+        }
+    }
+
+    // --- Bulk import: one transaction per chunk, existing ids are skipped rather than overwritten ---
+
+    /** Inserts a chunk of new books; {@code result[i]} is false if row i's id already existed. */
+    @Override
+    public boolean[] insertNewBooks(List<Book> books) {
+        return insertNew("INSERT INTO books (id, title, author, pricePerDay, available) VALUES (?, ?, ?, ?, ?) "
+                + "ON CONFLICT(id) DO NOTHING", books, (ps, b) -> {
+            ps.setInt(1, b.getId());
+            ps.setString(2, b.getTitle());
+            ps.setString(3, b.getAuthor());
+            ps.setDouble(4, b.getPricePerDay());
+            ps.setInt(5, b.isAvailable() ? 1 : 0);
+        }, null);
+    }
+
+    @Override
+    public boolean[] insertNewBorrowers(List<Borrower> borrowers) {
+        return insertNew("INSERT INTO borrowers (id, name, email) VALUES (?, ?, ?) ON CONFLICT(id) DO NOTHING",
+                borrowers, (ps, b) -> {
+                    ps.setInt(1, b.getId());
+                    ps.setString(2, b.getName());
+                    ps.setString(3, b.getEmail());
+                }, null);
     }
 
-    private void saveLoans(Connection conn, List<Loan> loans) throws SQLException {
-        String sql = "INSERT INTO loans (id, bookId, borrowerId, startDate, duration) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            for (Loan l : loans) {
-                ps.setInt(1, l.getId());
-                ps.setInt(2, l.getBookId());
-                ps.setInt(3, l.getBorrowerId());
-                ps.setString(4, l.getStartDate().toString());
-                ps.setInt(5, l.getDurationDays());
+    /** Inserts a chunk of new loans and marks the loaned books unavailable in the same transaction. */
+    @Override
+    public boolean[] insertNewLoans(List<Loan> loans) {
+        return insertNew("INSERT INTO loans (id, bookId, borrowerId, startDate, duration) VALUES (?, ?, ?, ?, ?) "
+                + "ON CONFLICT(id) DO NOTHING", loans, (ps, l) -> {
+            ps.setInt(1, l.getId());
+            ps.setInt(2, l.getBookId());
+            ps.setInt(3, l.getBorrowerId());
+            ps.setInt(4, l.getStartEpochDay());
+            ps.setInt(5, l.getDurationDays());
+        }, (conn, inserted) -> {
+            PreparedStatement ps = conn.prepare("UPDATE books SET available = 0 WHERE id = ?");
+            for (Loan l : inserted) {
+                ps.setInt(1, l.getBookId());
                 ps.addBatch();
             }
             ps.executeBatch();
+        });
+    }
+
+    private <T> boolean[] insertNew(String sql, List<T> rows, RowBinder<T> binder, AfterInsert<T> afterInsert) {
+        try {
+            return connections.write(conn -> {
+                PreparedStatement ps = conn.prepare(sql);
+                for (T row : rows) {
+                    binder.bind(ps, row);
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+
+                boolean[] inserted = new boolean[rows.size()];
+                List<T> insertedRows = new ArrayList<>(rows.size());
+                for (int i = 0; i < counts.length; i++) {
+                    inserted[i] = counts[i] > 0;
+                    if (inserted[i]) insertedRows.add(rows.get(i));
+                }
+                if (afterInsert != null && !insertedRows.isEmpty()) {
+                    afterInsert.run(conn, insertedRows);
+                }
+                bumpGeneration(conn);
+                return inserted;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed importing rows", e);
         }
     }
 
-    private List<Book> loadBooks(Connection conn) throws SQLException {
-        List<Book> out = new ArrayList<>();
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT id, title, author, pricePerDay, available FROM books")) {
+    private static void bumpGeneration(PooledConnection conn) throws SQLException {
+        conn.prepare("UPDATE write_generation SET generation = generation + 1").executeUpdate();
+    }
 
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String title = rs.getString("title");
-                String author = rs.getString("author");
-                double pricePerDay = rs.getDouble("pricePerDay");
-                boolean available = rs.getInt("available") == 1;
+    /**
+     * Goes up by one with every committed write transaction made through this class
+     * (saves and imports). Equal generations mean equal table contents.
+     */
+    public long generation() {
+        try {
+            return connections.read(conn -> {
+                try (ResultSet rs = conn.prepare("SELECT generation FROM write_generation").executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed reading write generation", e);
+        }
+    }
 
-                out.add(new Book(id, title, author, pricePerDay, available));
-            }
+    private void deleteByIds(PooledConnection conn, String table, Collection<Integer> ids, RowProgress progress) throws SQLException {
+        if (ids.isEmpty()) return;
+
+        PreparedStatement ps = conn.prepare("DELETE FROM " + table + " WHERE id = ?");
+        int batched = 0;
+        for (int id : ids) {
+            ps.setInt(1, id);
+            batched = addBatch(ps, batched, progress);
         }
-        return out;
+        executeBatch(ps, batched, progress);
     }
 
-    private List<Borrower> loadBorrowers(Connection conn) throws SQLException {
-        List<Borrower> out = new ArrayList<>();
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT id, name, email FROM borrowers")) {
+    // Sends the batch every PROGRESS_ROWS rows, so a long save reports progress and notices a cancel
+    private static int addBatch(PreparedStatement ps, int batched, RowProgress progress) throws SQLException {
+        ps.addBatch();
+        if (++batched < PROGRESS_ROWS) return batched;
+        executeBatch(ps, batched, progress);
+        return 0;
+    }
 
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                String email = rs.getString("email");
+    private static void executeBatch(PreparedStatement ps, int batched, RowProgress progress) throws SQLException {
+        if (Thread.currentThread().isInterrupted()) throw new SQLException("Save cancelled");
+        ps.executeBatch();
+        progress.add(batched);
+    }
 
-                out.add(new Borrower(id, name, email));
-            }
+    private void upsertBooks(PooledConnection conn, Collection<Book> books, RowProgress progress) throws SQLException {
+        if (books.isEmpty()) return;
+
+        String sql = """
+                INSERT INTO books (id, title, author, pricePerDay, available) VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT(id) DO UPDATE SET
+                    title = excluded.title,
+                    author = excluded.author,
+                    pricePerDay = excluded.pricePerDay,
+                    available = excluded.available
+                """;
+        PreparedStatement ps = conn.prepare(sql);
+        int batched = 0;
+        for (Book b : books) {
+            ps.setInt(1, b.getId());
+            ps.setString(2, b.getTitle());
+            ps.setString(3, b.getAuthor());
+            ps.setDouble(4, b.getPricePerDay());
+            ps.setInt(5, b.isAvailable() ? 1 : 0);
+            batched = addBatch(ps, batched, progress);
         }
-        return out;
+        executeBatch(ps, batched, progress);
     }
 
-    private List<Loan> loadLoans(Connection conn) throws SQLException {
-        List<Loan> out = new ArrayList<>();
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT id, bookId, borrowerId, startDate, duration FROM loans")) {
+    private void upsertBorrowers(PooledConnection conn, Collection<Borrower> borrowers, RowProgress progress) throws SQLException {
+        if (borrowers.isEmpty()) return;
 
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                int bookId = rs.getInt("bookId");
-                int borrowerId = rs.getInt("borrowerId");
-                LocalDate startDate = LocalDate.parse(rs.getString("startDate"));
-                int duration = rs.getInt("duration");
+        String sql = """
+                INSERT INTO borrowers (id, name, email) VALUES (?, ?, ?)
+                ON CONFLICT(id) DO UPDATE SET
+                    name = excluded.name,
+                    email = excluded.email
+                """;
+        PreparedStatement ps = conn.prepare(sql);
+        int batched = 0;
+        for (Borrower b : borrowers) {
+            ps.setInt(1, b.getId());
+            ps.setString(2, b.getName());
+            ps.setString(3, b.getEmail());
+            batched = addBatch(ps, batched, progress);
+        }
+        executeBatch(ps, batched, progress);
+    }
+
+    private void upsertLoans(PooledConnection conn, Collection<Loan> loans, RowProgress progress) throws SQLException {
+        if (loans.isEmpty()) return;
+
+        String sql = """
+                INSERT INTO loans (id, bookId, borrowerId, startDate, duration) VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT(id) DO UPDATE SET
+                    bookId = excluded.bookId,
+                    borrowerId = excluded.borrowerId,
+                    startDate = excluded.startDate,
+                    duration = excluded.duration
+                """;
+        PreparedStatement ps = conn.prepare(sql);
+        int batched = 0;
+        for (Loan l : loans) {
+            ps.setInt(1, l.getId());
+            ps.setInt(2, l.getBookId());
+            ps.setInt(3, l.getBorrowerId());
+            ps.setInt(4, l.getStartEpochDay());
+            ps.setInt(5, l.getDurationDays());
+            batched = addBatch(ps, batched, progress);
+        }
+        executeBatch(ps, batched, progress);
+    }
 
-                out.add(new Loan(id, bookId, borrowerId, startDate, duration));
+    /** Loans held by a borrower (seeks idx_loans_borrowerId). */
+    public List<Loan> loansForBorrower(int borrowerId) {
+        return readLoans("SELECT " + LOAN_COLUMNS + " FROM loans WHERE borrowerId = ?", ps -> ps.setInt(1, borrowerId));
+    }
+
+    /** Loans of a book (seeks idx_loans_bookId). */
+    public List<Loan> loansForBook(int bookId) {
+        return readLoans("SELECT " + LOAN_COLUMNS + " FROM loans WHERE bookId = ?", ps -> ps.setInt(1, bookId));
+    }
+
+    /** Loans whose due date is before {@code today}, oldest first (range scan on idx_loans_dueDate). */
+    public List<Loan> overdueLoans(LocalDate today) {
+        return readLoans("SELECT " + LOAN_COLUMNS + " FROM loans WHERE dueDate < ? ORDER BY dueDate",
+                ps -> ps.setLong(1, today.toEpochDay()));
+    }
+
+    private List<Loan> readLoans(String sql, Binder binder) {
+        try {
+            return connections.read(conn -> {
+                PreparedStatement ps = conn.prepare(sql);
+                binder.bind(ps);
+                return queryLoans(ps);
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed reading loans", e);
+        }
+    }
+
+    private static List<Loan> queryLoans(PreparedStatement ps) throws SQLException {
+        List<Loan> out = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(readLoan(rs));
             }
         }
         return out;
     }
 
-    public record LoadedData(List<Book> books, List<Borrower> borrowers, List<Loan> loans) {}
+    private static Book readBook(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        String title = rs.getString("title");
+        String author = rs.getString("author");
+        double pricePerDay = rs.getDouble("pricePerDay");
+        boolean available = rs.getInt("available") == 1;
+
+        return new Book(id, title, author, pricePerDay, available);
+    }
+
+    private static Borrower readBorrower(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        String name = rs.getString("name");
+        String email = rs.getString("email");
+
+        return new Borrower(id, name, email);
+    }
+
+    private static Loan readLoan(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        int bookId = rs.getInt("bookId");
+        int borrowerId = rs.getInt("borrowerId");
+        int startEpochDay = rs.getInt("startDate");
+        int duration = rs.getInt("duration");
+
+        return new Loan(id, bookId, borrowerId, startEpochDay, duration);
+    }
+
+    // --- Point lookups by primary key on a pooled reader ---
+
+    @Override
+    public Optional<Book> findBook(int id) {
+        return findById("books", BOOK_COLUMNS, id, LibraryDB::readBook);
+    }
+
+    @Override
+    public Optional<Borrower> findBorrower(int id) {
+        return findById("borrowers", BORROWER_COLUMNS, id, LibraryDB::readBorrower);
+    }
+
+    @Override
+    public Optional<Loan> findLoan(int id) {
+        return findById("loans", LOAN_COLUMNS, id, LibraryDB::readLoan);
+    }
+
+    private <T> Optional<T> findById(String table, String columns, int id, RowReader<T> reader) {
+        try {
+            return connections.read(conn -> {
+                PreparedStatement ps = conn.prepare("SELECT " + columns + " FROM " + table + " WHERE id = ?");
+                ps.setInt(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? Optional.of(reader.read(rs)) : Optional.<T>empty();
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed reading " + table + " row " + id, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        connections.close();
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface AfterInsert<T> {
+        void run(PooledConnection conn, List<T> inserted) throws SQLException;
+    }
+
+    // Shared by the threads of one save or load
+    private static final class RowProgress {
+        private final ProgressListener listener;
+        private final long totalRows;
+        private final AtomicLong rowsDone = new AtomicLong();
+
+        RowProgress(ProgressListener listener, long totalRows) {
+            this.listener = listener;
+            this.totalRows = totalRows;
+        }
+
+        void add(long rows) {
+            if (rows > 0) listener.progress(rowsDone.addAndGet(rows), totalRows);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package lms;
+
+import java.util.List;
+
+/** Receives every mutation of a {@link LibraryService}, on the thread that made it. */
+@FunctionalInterface
+public interface LibraryListener {
+
+    void libraryChanged(LibraryChange change);
+
+    /**
+     * Changes made by one atomic operation (e.g. a checkout updates the book and inserts
+     * the loan). Listeners that persist should write them in the same transaction.
+     */
+    default void libraryChanged(List<LibraryChange> changes) {
+        changes.forEach(this::libraryChanged);
+    }
+}
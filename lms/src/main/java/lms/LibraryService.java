@@ -1,46 +1,705 @@
 package lms;
 
+import lms.LibraryChange.Entity;
 import lms.model.Book;
 import lms.model.Borrower;
 import lms.model.Loan;
+import lms.catalog.BookCatalog;
+import lms.catalog.BookColumns;
+import lms.catalog.ColumnarBookCatalog;
+import lms.catalog.ObjectBookCatalog;
+import lms.catalog.OffHeapBookCatalog;
+import lms.search.TextIndex;
+import lms.util.EntityTable;
+import lms.util.IntIndexedSet;
+import lms.util.IntMultimap;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 
+/**
+ * In-memory library state, safe to use from any thread.
+ *
+ * <p>All state sits behind one {@link StampedLock}. Point reads (find, contains, index
+ * lookups) first try an optimistic read and only take the read lock if a writer got in
+ * the way. List getters return immutable snapshots that are cached until the next
+ * mutation of that table, so iterating never sees a concurrent change.
+ */
 public class LibraryService {
 
-    private final ArrayList<Book> books = new ArrayList<>();
-    private final ArrayList<Borrower> borrowers = new ArrayList<>();
-    private final ArrayList<Loan> loans = new ArrayList<>();
+    private final StampedLock lock = new StampedLock();
 
-    public List<Book> getBooks() { return books; }
-    public List<Borrower> getBorrowers() { return borrowers; }
-    public List<Loan> getLoans() { return loans; }
+    // Row order for the table models plus an O(1) id index
+    private final BookCatalog books;
+    private final EntityTable<Borrower> borrowers = new EntityTable<>(Borrower::getId);
+    private final EntityTable<Loan> loans = new EntityTable<>(Loan::getId);
 
-    public void addBook(Book book) { books.add(book); }
-    public void addBorrower(Borrower borrower) { borrowers.add(borrower); }
-    public void addLoan(Loan loan) { loans.add(loan); }
+    // Secondary indexes, kept in step with the tables by every mutator below
+    private final IntMultimap<Loan> loansByBorrower = new IntMultimap<>();
+    private final IntMultimap<Loan> loansByBook = new IntMultimap<>();
+    private final IntIndexedSet availableBookIds = new IntIndexedSet();
 
-    public void removeBook(int id) { books.removeIf(b -> b.getId() == id); }
-    public void removeBorrower(int id) { borrowers.removeIf(b -> b.getId() == id); }
-    public void removeLoan(int id) { loans.removeIf(l -> l.getId() == id); }
+    // Search-as-you-type indexes over the text the tables show
+    private final TextIndex bookSearch = new TextIndex();
+    // False until the first book search indexes a catalog that came with rows; until
+    // then mutations leave bookSearch alone. Set under the write lock.
+    private volatile boolean bookSearchBuilt;
+    private final TextIndex borrowerSearch = new TextIndex();
+    private final TextIndex loanSearch = new TextIndex();
+
+    private final Snapshot<Book> booksSnapshot;
+    private final Snapshot<Borrower> borrowersSnapshot = new Snapshot<>(borrowers::rows);
+    private final Snapshot<Loan> loansSnapshot = new Snapshot<>(loans::rows);
+    private final Snapshot<Book> availableSnapshot = new Snapshot<>(this::availableBooks);
+
+    // Everything mutated since the last successful save (unless tracking is off)
+    private boolean trackChanges = true;
+    private ChangeSet changes = new ChangeSet();
+
+    private final List<LibraryListener> listeners = new CopyOnWriteArrayList<>();
+
+    public LibraryService() {
+        this(new ObjectBookCatalog());
+    }
+
+    /**
+     * Uses {@code books} as the book store, e.g. a {@link ColumnarBookCatalog} for huge
+     * catalogs. Books already in it (a remapped {@link OffHeapBookCatalog}) count as loaded.
+     * Their titles and authors are not read until the first book search, so opening a big
+     * remapped catalog stays cheap; that first search pays for indexing them.
+     */
+    public LibraryService(BookCatalog books) {
+        this.books = books;
+        this.booksSnapshot = new Snapshot<>(books::rows);
+        for (int row = 0; row < books.size(); row++) {
+            if (books.availableAt(row)) availableBookIds.add(books.idAt(row));
+        }
+        this.bookSearchBuilt = books.size() == 0;
+    }
+
+    /**
+     * Listeners run on the mutating thread while the write lock is held, so they see
+     * changes in the order they were applied. They must not call back into the service;
+     * hand the work to another thread (a queue, {@code invokeLater}) instead.
+     */
+    public void addListener(LibraryListener listener) { listeners.add(listener); }
+    public void removeListener(LibraryListener listener) { listeners.remove(listener); }
+
+    private void fire(LibraryChange change) {
+        for (LibraryListener l : listeners) {
+            l.libraryChanged(change);
+        }
+    }
+
+    private void fireTogether(LibraryChange... group) {
+        List<LibraryChange> changes = List.of(group);
+        for (LibraryListener l : listeners) {
+            l.libraryChanged(changes);
+        }
+    }
+
+    // Immutable snapshots in row order; removing a row moves the last row into its place.
+    // The columnar catalogs hand out copies, so availability changes invalidate the books too
+    public List<Book> getBooks() { return booksSnapshot.get(); }
+    public List<Borrower> getBorrowers() { return borrowersSnapshot.get(); }
+    public List<Loan> getLoans() { return loansSnapshot.get(); }
+
+    /** Books that can be checked out, kept up to date as availability changes. */
+    public List<Book> getAvailableBooks() { return availableSnapshot.get(); }
+
+    /**
+     * Runs {@code reader} against the book columns under the service's read protocol,
+     * so a view can read single fields by row without copying the catalog. Keep it short:
+     * it may run twice, and writers wait while it holds the read lock.
+     */
+    public <R> R readBooks(Function<BookColumns, R> reader) {
+        return read(() -> reader.apply(books));
+    }
+
+    public int bookCount() { return read(books::size); }
+    public int borrowerCount() { return read(borrowers::size); }
+    public int loanCount() { return read(loans::size); }
+
+    /** The ids of one table's rows, in row order; a table model starts from these. */
+    public int[] ids(Entity entity) {
+        return read(() -> idsFrom(entity, 0));
+    }
+
+    public List<Loan> loansForBorrower(int borrowerId) {
+        return read(() -> List.copyOf(loansByBorrower.get(borrowerId)));
+    }
+
+    /** The loan currently holding {@code bookId}; returning a book removes its loan. */
+    public Optional<Loan> activeLoanForBook(int bookId) {
+        return read(() -> {
+            List<Loan> l = loansByBook.get(bookId);
+            return l.isEmpty() ? Optional.empty() : Optional.of(l.getFirst());
+        });
+    }
+
+    public boolean isOnLoan(int bookId) { return read(() -> loansByBook.containsKey(bookId)); }
+
+    // --- Search-as-you-type (see TextIndex for the matching rules) ---
+
+    /** Ids of books whose id, title or author match {@code query}. */
+    public int[] matchingBookIds(String query) {
+        buildBookSearch();
+        return read(() -> bookSearch.search(query));
+    }
+
+    /** Ids of borrowers whose id, name or email match {@code query}. */
+    public int[] matchingBorrowerIds(String query) {
+        return read(() -> borrowerSearch.search(query));
+    }
+
+    /** Whether one book matches {@code query}, by the same rule as {@link #matchingBookIds}. */
+    public boolean bookMatches(int id, String query) {
+        buildBookSearch();
+        return read(() -> bookSearch.matches(id, query));
+    }
+
+    // Indexes the books the service was constructed with, once
+    private void buildBookSearch() {
+        if (bookSearchBuilt) return;
+        long stamp = lock.writeLock();
+        try {
+            if (bookSearchBuilt) return;
+            for (int row = 0; row < books.size(); row++) {
+                bookSearch.put(books.idAt(row), Integer.toString(books.idAt(row)), books.titleAt(row), books.authorAt(row));
+            }
+            bookSearchBuilt = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean borrowerMatches(int id, String query) {
+        return read(() -> borrowerSearch.matches(id, query));
+    }
+
+    public boolean loanMatches(int id, String query) {
+        return read(() -> loanSearch.matches(id, query));
+    }
+
+    /** Ids of loans whose id, book id, borrower id, start date or duration match {@code query}. */
+    public int[] matchingLoanIds(String query) {
+        return read(() -> loanSearch.search(query));
+    }
+
+    /** Adds {@code book}, replacing any book with the same id. */
+    public void addBook(Book book) {
+        long stamp = lock.writeLock();
+        try {
+            Book replaced = books.put(book);
+            indexAvailability(book.getId(), book.isAvailable());
+            indexText(book);
+            booksSnapshot.invalidate();
+            changes.bookUpserted(book);
+            int row = books.rowOf(book.getId());
+            fire(replaced == null ? LibraryChange.inserted(book, row) : LibraryChange.updated(book, row));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void addBorrower(Borrower borrower) {
+        long stamp = lock.writeLock();
+        try {
+            Borrower replaced = borrowers.put(borrower);
+            indexText(borrower);
+            borrowersSnapshot.invalidate();
+            changes.borrowerUpserted(borrower);
+            int row = borrowers.rowOf(borrower.getId());
+            fire(replaced == null ? LibraryChange.inserted(borrower, row) : LibraryChange.updated(borrower, row));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void addLoan(Loan loan) {
+        long stamp = lock.writeLock();
+        try {
+            Loan replaced = loans.put(loan);
+            if (replaced != null) unindexLoan(replaced);
+            indexLoan(loan);
+            loansSnapshot.invalidate();
+            changes.loanUpserted(loan);
+            int row = loans.rowOf(loan.getId());
+            fire(replaced == null ? LibraryChange.inserted(loan, row) : LibraryChange.updated(loan, row));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void removeBook(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int row = books.rowOf(id);
+            if (row >= 0) {
+                books.remove(id);
+                if (bookSearchBuilt) bookSearch.remove(id);
+                if (availableBookIds.remove(id)) availableSnapshot.invalidate();
+                booksSnapshot.invalidate();
+                changes.bookDeleted(id);
+                fire(LibraryChange.deleted(Entity.BOOK, id, row));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void removeBorrower(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int row = borrowers.rowOf(id);
+            if (row >= 0) {
+                borrowers.remove(id);
+                borrowerSearch.remove(id);
+                borrowersSnapshot.invalidate();
+                changes.borrowerDeleted(id);
+                fire(LibraryChange.deleted(Entity.BORROWER, id, row));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void removeLoan(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int row = loans.rowOf(id);
+            Loan removed = loans.remove(id);
+            if (removed != null) {
+                unindexLoan(removed);
+                loansSnapshot.invalidate();
+                changes.loanDeleted(id);
+                fire(LibraryChange.deleted(Entity.LOAN, id, row));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Book fields are mutable; edits must go through here so they get persisted. A book
+     * that is out on loan stays unavailable until the loan is returned.
+     */
+    public AvailabilityResult setBookAvailable(int id, boolean available) {
+        long stamp = lock.writeLock();
+        try {
+            return setAvailableLocked(id, available);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Flips a book's availability. The current value is read under the same lock as the
+     * write, so two toggles of one book never apply the same flip twice.
+     */
+    public AvailabilityResult toggleBookAvailable(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int row = books.rowOf(id);
+            if (row < 0) return new AvailabilityResult.BookNotFound(id);
+            return setAvailableLocked(id, !books.availableAt(row));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private AvailabilityResult setAvailableLocked(int id, boolean available) {
+        if (available && loansByBook.containsKey(id)) {
+            return new AvailabilityResult.OnLoan(id, loansByBook.get(id).getFirst());
+        }
+        if (!books.setAvailable(id, available)) return new AvailabilityResult.BookNotFound(id);
+        indexAvailability(id, available);
+        booksSnapshot.invalidate();
+        int row = books.rowOf(id);
+        Book b = books.bookAt(row);
+        changes.bookUpserted(b);
+        fire(LibraryChange.updated(b, row));
+        return new AvailabilityResult.Updated(b);
+    }
+
+    /**
+     * Lends a book as one atomic step: the book must exist and be available, the borrower
+     * must exist and the loan id must be unused. Concurrent checkouts of the same book
+     * get exactly one {@link CheckoutResult.CheckedOut}; the rest get a conflict result.
+     */
+    public CheckoutResult checkout(int loanId, int bookId, int borrowerId, LocalDate startDate, int durationDays) {
+        // Under contention most losers are turned away here, without queueing for the write lock
+        CheckoutResult conflict = read(() -> checkoutConflict(loanId, bookId, borrowerId));
+        if (conflict != null) return conflict;
+
+        long stamp = lock.writeLock();
+        try {
+            conflict = checkoutConflict(loanId, bookId, borrowerId);
+            if (conflict != null) return conflict;
+
+            books.setAvailable(bookId, false);
+            indexAvailability(bookId, false);
+            booksSnapshot.invalidate();
+            int bookRow = books.rowOf(bookId);
+            Book book = books.bookAt(bookRow);
+
+            Loan loan = new Loan(loanId, bookId, borrowerId, startDate, durationDays);
+            loans.put(loan);
+            indexLoan(loan);
+            loansSnapshot.invalidate();
+
+            changes.bookUpserted(book);
+            changes.loanUpserted(loan);
+            fireTogether(LibraryChange.updated(book, bookRow), LibraryChange.inserted(loan, loans.rowOf(loanId)));
+            return new CheckoutResult.CheckedOut(loan);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private CheckoutResult checkoutConflict(int loanId, int bookId, int borrowerId) {
+        int row = books.rowOf(bookId);
+        if (row < 0) return new CheckoutResult.BookNotFound(bookId);
+        // A loan holds the book even if its flag was set back to available by hand
+        if (!books.availableAt(row) || loansByBook.containsKey(bookId)) {
+            List<Loan> held = loansByBook.get(bookId);
+            return new CheckoutResult.BookUnavailable(bookId, held.isEmpty() ? null : held.getFirst());
+        }
+        if (!borrowers.contains(borrowerId)) return new CheckoutResult.BorrowerNotFound(borrowerId);
+        if (loans.contains(loanId)) return new CheckoutResult.LoanIdTaken(loanId);
+        return null;
+    }
+
+    /** Ends a loan and makes its book available again, as one atomic step. */
+    public ReturnResult returnLoan(int loanId) {
+        long stamp = lock.writeLock();
+        try {
+            int loanRow = loans.rowOf(loanId);
+            Loan loan = loans.remove(loanId);
+            if (loan == null) return new ReturnResult.LoanNotFound(loanId);
+            unindexLoan(loan);
+            loansSnapshot.invalidate();
+            changes.loanDeleted(loanId);
+
+            if (!books.setAvailable(loan.getBookId(), true)) {
+                fire(LibraryChange.deleted(Entity.LOAN, loanId, loanRow));
+            } else {
+                indexAvailability(loan.getBookId(), true);
+                booksSnapshot.invalidate();
+                int bookRow = books.rowOf(loan.getBookId());
+                Book book = books.bookAt(bookRow);
+                changes.bookUpserted(book);
+                fireTogether(LibraryChange.deleted(Entity.LOAN, loanId, loanRow), LibraryChange.updated(book, bookRow));
+            }
+            return new ReturnResult.Returned(loan);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
 
     public Optional<Book> findBook(int id) {
-        return books.stream().filter(b -> b.getId() == id).findFirst();
+        return Optional.ofNullable(read(() -> books.get(id)));
     }
 
     public Optional<Borrower> findBorrower(int id) {
-        return borrowers.stream().filter(b -> b.getId() == id).findFirst();
+        return Optional.ofNullable(read(() -> borrowers.get(id)));
     }
 
     public Optional<Loan> findLoan(int id) {
-        return loans.stream().filter(l -> l.getId() == id).findFirst();
+        return Optional.ofNullable(read(() -> loans.get(id)));
+    }
+
+    public boolean containsBook(int id) { return read(() -> books.contains(id)); }
+    public boolean containsBorrower(int id) { return read(() -> borrowers.contains(id)); }
+    public boolean containsLoan(int id) { return read(() -> loans.contains(id)); }
+
+    /** Whether the book exists and can be checked out (no loan holds it). */
+    public boolean isBookAvailable(int id) {
+        return read(() -> availableBookIds.contains(id) && !loansByBook.containsKey(id));
     }
 
     public void clearAll() {
+        long stamp = lock.writeLock();
+        try {
+            // Last row first, so each delete leaves the rows before it where they are
+            List<LibraryChange> deleted = new ArrayList<>(books.size() + borrowers.size() + loans.size());
+            for (int row = books.size() - 1; row >= 0; row--) {
+                int id = books.idAt(row);
+                changes.bookDeleted(id);
+                deleted.add(LibraryChange.deleted(Entity.BOOK, id, row));
+            }
+            for (int row = borrowers.size() - 1; row >= 0; row--) {
+                int id = borrowers.at(row).getId();
+                changes.borrowerDeleted(id);
+                deleted.add(LibraryChange.deleted(Entity.BORROWER, id, row));
+            }
+            for (int row = loans.size() - 1; row >= 0; row--) {
+                int id = loans.at(row).getId();
+                changes.loanDeleted(id);
+                deleted.add(LibraryChange.deleted(Entity.LOAN, id, row));
+            }
+
+            clearTables();
+            deleted.forEach(this::fire);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the in-memory state with data that is already persisted
+     * (e.g. a DB load), so nothing is marked dirty.
+     */
+    public void replaceAll(List<Book> books, List<Borrower> borrowers, List<Loan> loans) {
+        long stamp = lock.writeLock();
+        try {
+            clearTables();
+            putBooks(books);
+            putBorrowers(borrowers);
+            putLoans(loans);
+
+            changes = freshChanges();
+            fireTogether(
+                    LibraryChange.reloaded(Entity.BOOK, this.books.size(), idsFrom(Entity.BOOK, 0), books),
+                    LibraryChange.reloaded(Entity.BORROWER, this.borrowers.size(), idsFrom(Entity.BORROWER, 0), borrowers),
+                    LibraryChange.reloaded(Entity.LOAN, this.loans.size(), idsFrom(Entity.LOAN, 0), loans));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Bulk appends for rows that came from the DB (chunked loads); not marked dirty
+    public void addLoadedBooks(List<Book> loaded) {
+        appendLoaded(Entity.BOOK, loaded, () -> putBooks(loaded), books::size);
+    }
+
+    public void addLoadedBorrowers(List<Borrower> loaded) {
+        appendLoaded(Entity.BORROWER, loaded, () -> putBorrowers(loaded), borrowers::size);
+    }
+
+    public void addLoadedLoans(List<Loan> loaded) {
+        appendLoaded(Entity.LOAN, loaded, () -> putLoans(loaded), loans::size);
+    }
+
+    private void appendLoaded(Entity entity, List<?> loaded, Runnable put, IntSupplier size) {
+        if (loaded.isEmpty()) return;
+        long stamp = lock.writeLock();
+        try {
+            int before = size.getAsInt();
+            put.run();
+            fire(LibraryChange.reloaded(entity, size.getAsInt(), idsFrom(entity, before), loaded));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Whether mutations are recorded for {@link #takeChanges}. Turn it off when a listener
+     * persists every change itself (write-behind), so nothing piles up that no one takes.
+     * Turning it off drops what was recorded.
+     */
+    public void setChangeTracking(boolean track) {
+        long stamp = lock.writeLock();
+        try {
+            if (track == trackChanges) return;
+            trackChanges = track;
+            changes = freshChanges();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private ChangeSet freshChanges() {
+        return trackChanges ? new ChangeSet() : ChangeSet.discarding();
+    }
+
+    public boolean hasUnsavedChanges() {
+        return read(() -> !changes.isEmpty());
+    }
+
+    /** Hands the pending changes to the caller and starts tracking afresh. */
+    public ChangeSet takeChanges() {
+        long stamp = lock.writeLock();
+        try {
+            ChangeSet taken = changes;
+            changes = freshChanges();
+            return taken;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Puts back changes whose save failed; anything changed since takes precedence. */
+    public void restoreChanges(ChangeSet failed) {
+        long stamp = lock.writeLock();
+        try {
+            changes.mergeOlder(failed);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // --- Locking ---
+
+    /**
+     * Runs {@code reader} without locking and keeps the result if no writer ran
+     * meanwhile. A writer can leave the tables half-updated under an optimistic
+     * reader, which may then throw; either way it retries under the read lock.
+     */
+    private <R> R read(Supplier<R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                R result = reader.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException torn) {
+                // Inconsistent view of a concurrent write; fall through
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Immutable copy of a table, rebuilt on the first read after a mutation. */
+    private final class Snapshot<T> {
+        private final Supplier<List<T>> source;
+        private volatile List<T> rows;
+
+        Snapshot(Supplier<List<T>> source) {
+            this.source = source;
+        }
+
+        List<T> get() {
+            List<T> snap = rows;
+            if (snap != null) return snap;
+
+            // Writers invalidate under the write lock, so a copy published under the
+            // read lock can never outlive the state it was taken from
+            long stamp = lock.readLock();
+            try {
+                snap = List.copyOf(source.get());
+                rows = snap;
+                return snap;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Caller holds the write lock
+        void invalidate() {
+            rows = null;
+        }
+    }
+
+    // --- Index maintenance; callers hold the write lock ---
+
+    private void putBooks(List<Book> loaded) {
+        for (Book b : loaded) {
+            books.put(b);
+            indexAvailability(b.getId(), b.isAvailable());
+            indexText(b);
+        }
+        booksSnapshot.invalidate();
+    }
+
+    private void putBorrowers(List<Borrower> loaded) {
+        for (Borrower b : loaded) {
+            borrowers.put(b);
+            indexText(b);
+        }
+        borrowersSnapshot.invalidate();
+    }
+
+    private void putLoans(List<Loan> loaded) {
+        for (Loan l : loaded) {
+            Loan replaced = loans.put(l);
+            if (replaced != null) unindexLoan(replaced);
+            indexLoan(l);
+        }
+        loansSnapshot.invalidate();
+    }
+
+    // Ids of the rows from fromRow to the end of the table; called under the lock
+    private int[] idsFrom(Entity entity, int fromRow) {
+        int size = switch (entity) {
+            case BOOK -> books.size();
+            case BORROWER -> borrowers.size();
+            case LOAN -> loans.size();
+        };
+        int[] ids = new int[Math.max(0, size - fromRow)];
+        for (int i = 0; i < ids.length; i++) {
+            int row = fromRow + i;
+            ids[i] = switch (entity) {
+                case BOOK -> books.idAt(row);
+                case BORROWER -> borrowers.at(row).getId();
+                case LOAN -> loans.at(row).getId();
+            };
+        }
+        return ids;
+    }
+
+    private void indexAvailability(int bookId, boolean available) {
+        boolean changed = available ? availableBookIds.add(bookId) : availableBookIds.remove(bookId);
+        if (changed) availableSnapshot.invalidate();
+    }
+
+    private List<Book> availableBooks() {
+        List<Book> list = new ArrayList<>(availableBookIds.size());
+        for (int i = 0; i < availableBookIds.size(); i++) {
+            list.add(books.get(availableBookIds.get(i)));
+        }
+        return list;
+    }
+
+    private void indexLoan(Loan l) {
+        loansByBorrower.put(l.getBorrowerId(), l);
+        loansByBook.put(l.getBookId(), l);
+        loanSearch.put(l.getId(), Integer.toString(l.getId()), Integer.toString(l.getBookId()),
+                Integer.toString(l.getBorrowerId()), Loan.formatUiDate(l.getStartEpochDay()),
+                Integer.toString(l.getDurationDays()));
+    }
+
+    private void unindexLoan(Loan l) {
+        loansByBorrower.remove(l.getBorrowerId(), l);
+        loansByBook.remove(l.getBookId(), l);
+        loanSearch.remove(l.getId());
+    }
+
+    // Same fields as the table columns, so search finds what the user can see
+    private void indexText(Book b) {
+        if (bookSearchBuilt) bookSearch.put(b.getId(), Integer.toString(b.getId()), b.getTitle(), b.getAuthor());
+    }
+
+    private void indexText(Borrower b) {
+        borrowerSearch.put(b.getId(), Integer.toString(b.getId()), b.getName(), b.getEmail());
+    }
+
+    private void clearTables() {
         books.clear();
         borrowers.clear();
         loans.clear();
+        loansByBorrower.clear();
+        loansByBook.clear();
+        availableBookIds.clear();
+        bookSearch.clear();
+        bookSearchBuilt = true;
+        borrowerSearch.clear();
+        loanSearch.clear();
+
+        booksSnapshot.invalidate();
+        borrowersSnapshot.invalidate();
+        loansSnapshot.invalidate();
+        availableSnapshot.invalidate();
     }
-}
\ No newline at end of file
+}
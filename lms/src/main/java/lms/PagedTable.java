@@ -0,0 +1,136 @@
+package lms;
+
+import lms.ResultSetSpliterator.RowReader;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One table as a paging view sees it: the rows matching a search, ordered by one
+ * column (then id), read a window at a time. Filtering and sorting run in SQL, so
+ * only the requested window ever leaves the database.
+ *
+ * <p>Columns are addressed by index, in the order the UI tables show them; column 0
+ * is the id. Every sortable column has an index (schema version 5), so a window
+ * costs a seek rather than a sort, and {@link #pageAfter} continues from the last
+ * row of the previous window without skipping over the rows before it.
+ */
+public final class PagedTable<T> {
+
+    private final SqliteConnections connections;
+    private final String table;
+    private final List<String> columns;
+    private final RowReader<T> reader;
+    private final List<Function<T, Object>> values;
+    private final Function<String, Where> search;
+
+    PagedTable(SqliteConnections connections, String table, String columns, RowReader<T> reader,
+               List<Function<T, Object>> values, Function<String, Where> search) {
+        this.connections = connections;
+        this.table = table;
+        this.columns = List.of(columns.split(",\\s*"));
+        this.reader = reader;
+        this.values = values;
+        this.search = search;
+    }
+
+    /** Number of rows matching {@code text} (all rows if blank). */
+    public int count(String text) {
+        Where where = where(text);
+        String sql = "SELECT COUNT(*) FROM " + table + (where == null ? "" : " WHERE " + where.sql());
+        try {
+            return connections.read(conn -> {
+                PreparedStatement ps = conn.prepare(sql);
+                if (where != null) bind(ps, 1, where.args());
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed counting " + table, e);
+        }
+    }
+
+    /** Rows {@code offset} to {@code offset + limit} of the matching rows in {@code order}. */
+    public List<T> page(String text, Order order, int offset, int limit) {
+        return query(where(text), order, null, limit, offset);
+    }
+
+    /** The {@code limit} matching rows that follow {@code last} in {@code order} (a keyset seek). */
+    public List<T> pageAfter(String text, Order order, T last, int limit) {
+        return query(where(text), order, last, limit, 0);
+    }
+
+    private List<T> query(Where where, Order order, T after, int limit, int offset) {
+        String column = columns.get(order.column());
+        String dir = order.descending() ? " DESC" : "";
+        String cmp = order.descending() ? " < " : " > ";
+
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (where != null) {
+            conditions.add("(" + where.sql() + ")");
+            args.addAll(where.args());
+        }
+        if (after != null) {
+            // Row-value comparison walks the (column, id) index from the previous window's last row
+            if (order.column() == 0) {
+                conditions.add("id" + cmp + "?");
+            } else {
+                conditions.add("(" + column + ", id)" + cmp + "(?, ?)");
+                args.add(values.get(order.column()).apply(after));
+            }
+            args.add(values.getFirst().apply(after));
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", columns)).append(" FROM ").append(table);
+        if (!conditions.isEmpty()) sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        sql.append(" ORDER BY ").append(column).append(dir);
+        if (order.column() != 0) sql.append(", id").append(dir);
+        sql.append(after == null ? " LIMIT ? OFFSET ?" : " LIMIT ?");
+
+        args.add(limit);
+        if (after == null) args.add(offset);
+
+        try {
+            return connections.read(conn -> {
+                PreparedStatement ps = conn.prepare(sql.toString());
+                bind(ps, 1, args);
+                List<T> out = new ArrayList<>(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(reader.read(rs));
+                    }
+                }
+                return out;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed reading page of " + table, e);
+        }
+    }
+
+    private Where where(String text) {
+        return text == null || text.isBlank() ? null : search.apply(text.trim());
+    }
+
+    private static void bind(PreparedStatement ps, int first, List<Object> args) throws SQLException {
+        for (int i = 0; i < args.size(); i++) {
+            ps.setObject(first + i, args.get(i));
+        }
+    }
+
+    /** Sort by column {@code column} (an index into the table's columns), ties broken by id. */
+    public record Order(int column, boolean descending) {
+        public static final Order BY_ID = new Order(0, false);
+    }
+
+    /** A search as an SQL condition over the table's columns, with its parameters. */
+    record Where(String sql, List<Object> args) {
+        static final Where NO_ROWS = new Where("0", List.of());
+    }
+}
@@ -0,0 +1,40 @@
+package lms;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Walks an open {@link ResultSet} one row at a time, so a query can be consumed
+ * as a {@code Stream} without first materializing every row. Closing the stream
+ * (not this class) is responsible for closing the result set.
+ */
+final class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private final ResultSet rs;
+    private final RowReader<T> reader;
+
+    ResultSetSpliterator(ResultSet rs, RowReader<T> reader) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        this.rs = rs;
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        try {
+            if (!rs.next()) return false;
+            action.accept(reader.read(rs));
+            return true;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed reading row", e);
+        }
+    }
+
+    @FunctionalInterface
+    interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+}
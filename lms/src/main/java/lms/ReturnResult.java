@@ -0,0 +1,16 @@
+package lms;
+
+import lms.model.Loan;
+
+/** Outcome of {@link LibraryService#returnLoan}. */
+public sealed interface ReturnResult {
+
+    record Returned(Loan loan) implements ReturnResult {}
+
+    /** Unknown id, or the loan was already returned (possibly by another clerk). */
+    record LoanNotFound(int loanId) implements ReturnResult {}
+
+    default boolean succeeded() {
+        return this instanceof Returned;
+    }
+}
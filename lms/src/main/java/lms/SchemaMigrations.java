@@ -0,0 +1,189 @@
+package lms;
+
+import lms.SqliteConnections.PooledConnection;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Versioned schema changes. The applied version is kept in {@code schema_version};
+ * on startup every newer migration runs in its own transaction, so an existing
+ * library.db is upgraded in place.
+ *
+ * <p>Migrations are append-only: never edit one that has shipped, add a new one.
+ */
+final class SchemaMigrations {
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "base tables", """
+                    CREATE TABLE IF NOT EXISTS books (
+                        id INTEGER PRIMARY KEY,
+                        title TEXT NOT NULL,
+                        author TEXT NOT NULL,
+                        pricePerDay REAL NOT NULL,
+                        available INTEGER NOT NULL
+                    );
+                    CREATE TABLE IF NOT EXISTS borrowers (
+                        id INTEGER PRIMARY KEY,
+                        name TEXT NOT NULL,
+                        email TEXT NOT NULL
+                    );
+                    CREATE TABLE IF NOT EXISTS loans (
+                        id INTEGER PRIMARY KEY,
+                        bookId INTEGER NOT NULL,
+                        borrowerId INTEGER NOT NULL,
+                        startDate TEXT NOT NULL,
+                        duration INTEGER NOT NULL,
+                        FOREIGN KEY(bookId) REFERENCES books(id),
+                        FOREIGN KEY(borrowerId) REFERENCES borrowers(id)
+                    );
+                    """),
+
+            new Migration(2, "loan lookup and due-date indexes", """
+                    CREATE INDEX IF NOT EXISTS idx_loans_bookId ON loans(bookId);
+                    CREATE INDEX IF NOT EXISTS idx_loans_borrowerId ON loans(borrowerId);
+                    ALTER TABLE loans ADD COLUMN dueDate TEXT
+                        GENERATED ALWAYS AS (date(startDate, '+' || duration || ' days')) VIRTUAL;
+                    CREATE INDEX IF NOT EXISTS idx_loans_dueDate ON loans(dueDate);
+                    """),
+
+            // SQLite cannot change a column's type in place, so the loans table is rebuilt.
+            // Rows written before this version hold ISO-8601 TEXT; convert them to epoch days.
+            new Migration(3, "loan dates as INTEGER epoch days", """
+                    CREATE TABLE loans_v3 (
+                        id INTEGER PRIMARY KEY,
+                        bookId INTEGER NOT NULL,
+                        borrowerId INTEGER NOT NULL,
+                        startDate INTEGER NOT NULL,
+                        duration INTEGER NOT NULL,
+                        dueDate INTEGER GENERATED ALWAYS AS (startDate + duration) STORED,
+                        FOREIGN KEY(bookId) REFERENCES books(id),
+                        FOREIGN KEY(borrowerId) REFERENCES borrowers(id)
+                    );
+                    INSERT INTO loans_v3 (id, bookId, borrowerId, startDate, duration)
+                        SELECT id, bookId, borrowerId,
+                               CASE typeof(startDate)
+                                   WHEN 'integer' THEN startDate
+                                   ELSE CAST(julianday(startDate) - 2440587.5 AS INTEGER)
+                               END,
+                               duration
+                        FROM loans;
+                    DROP TABLE loans;
+                    ALTER TABLE loans_v3 RENAME TO loans;
+                    CREATE INDEX idx_loans_bookId ON loans(bookId);
+                    CREATE INDEX idx_loans_borrowerId ON loans(borrowerId);
+                    CREATE INDEX idx_loans_dueDate ON loans(dueDate);
+                    """),
+
+            // External-content FTS5 index over books: it stores only the index, and the
+            // triggers keep it in step with every write path (saves, imports, deletes).
+            new Migration(4, "full-text index over book title and author", """
+                    CREATE VIRTUAL TABLE books_fts USING fts5(
+                        title, author,
+                        content = 'books', content_rowid = 'id',
+                        tokenize = 'unicode61 remove_diacritics 2',
+                        prefix = '2 3'
+                    );
+                    INSERT INTO books_fts (books_fts) VALUES ('rebuild');
+                    CREATE TRIGGER books_fts_insert AFTER INSERT ON books BEGIN
+                        INSERT INTO books_fts (rowid, title, author) VALUES (new.id, new.title, new.author);
+                    END;
+                    CREATE TRIGGER books_fts_delete AFTER DELETE ON books BEGIN
+                        INSERT INTO books_fts (books_fts, rowid, title, author) VALUES ('delete', old.id, old.title, old.author);
+                    END;
+                    CREATE TRIGGER books_fts_update AFTER UPDATE OF title, author ON books
+                    WHEN old.title IS NOT new.title OR old.author IS NOT new.author BEGIN
+                        INSERT INTO books_fts (books_fts, rowid, title, author) VALUES ('delete', old.id, old.title, old.author);
+                        INSERT INTO books_fts (rowid, title, author) VALUES (new.id, new.title, new.author);
+                    END;
+                    """),
+
+            // Paged table views sort by any column; an index per column turns each
+            // window into a seek instead of sorting the whole table.
+            new Migration(5, "indexes for sorted table views", """
+                    CREATE INDEX IF NOT EXISTS idx_books_title ON books(title);
+                    CREATE INDEX IF NOT EXISTS idx_books_author ON books(author);
+                    CREATE INDEX IF NOT EXISTS idx_books_pricePerDay ON books(pricePerDay);
+                    CREATE INDEX IF NOT EXISTS idx_books_available ON books(available);
+                    CREATE INDEX IF NOT EXISTS idx_borrowers_name ON borrowers(name);
+                    CREATE INDEX IF NOT EXISTS idx_borrowers_email ON borrowers(email);
+                    CREATE INDEX IF NOT EXISTS idx_loans_startDate ON loans(startDate);
+                    CREATE INDEX IF NOT EXISTS idx_loans_duration ON loans(duration);
+                    """),
+
+            // Bumped by every LibraryDB write transaction, so a copy of the tables taken at
+            // generation N (a startup snapshot) can tell whether it is still current.
+            new Migration(6, "write generation counter", """
+                    CREATE TABLE write_generation (
+                        id INTEGER PRIMARY KEY CHECK (id = 1),
+                        generation INTEGER NOT NULL
+                    );
+                    INSERT INTO write_generation (id, generation) VALUES (1, 0);
+                    """)
+    );
+
+    private SchemaMigrations() {}
+
+    static int latestVersion() {
+        return MIGRATIONS.getLast().version();
+    }
+
+    /** Brings the schema up to {@link #latestVersion()}; returns the version it started from. */
+    static int migrate(SqliteConnections connections) throws SQLException {
+        int current = connections.write(conn -> {
+            try (Statement stmt = conn.connection().createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (version INTEGER NOT NULL)");
+            }
+            return currentVersion(conn);
+        });
+
+        for (Migration m : MIGRATIONS) {
+            if (m.version() <= current) continue;
+
+            connections.write(conn -> {
+                // Re-check inside the transaction in case another process migrated first
+                if (currentVersion(conn) >= m.version()) return null;
+
+                try (Statement stmt = conn.connection().createStatement()) {
+                    for (String sql : statements(m.sql())) {
+                        stmt.execute(sql);
+                    }
+                    stmt.execute("DELETE FROM schema_version");
+                    stmt.execute("INSERT INTO schema_version (version) VALUES (" + m.version() + ")");
+                }
+                return null;
+            });
+        }
+        return current;
+    }
+
+    /** Splits a migration on ';', keeping each CREATE TRIGGER ... END body in one statement. */
+    private static List<String> statements(String script) {
+        List<String> out = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String part : script.split(";")) {
+            current.append(part);
+            String sql = current.toString().strip().toUpperCase(Locale.ROOT);
+            if (sql.startsWith("CREATE TRIGGER") && !sql.endsWith("END")) {
+                current.append(';');
+                continue;
+            }
+            if (!sql.isEmpty()) out.add(current.toString());
+            current.setLength(0);
+        }
+        return out;
+    }
+
+    private static int currentVersion(PooledConnection conn) throws SQLException {
+        try (Statement stmt = conn.connection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private record Migration(int version, String description, String sql) {}
+}
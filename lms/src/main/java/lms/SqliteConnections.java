@@ -0,0 +1,178 @@
+package lms;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived SQLite connections: one writer plus a small pool of readers.
+ * The database runs in WAL mode so readers never block the writer (and vice versa).
+ * Each connection caches its prepared statements, so repeated SQL is only compiled once.
+ */
+public class SqliteConnections implements AutoCloseable {
+
+    // Enough readers for a parallel load to keep every core busy
+    public static final int DEFAULT_READERS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final PooledConnection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final List<PooledConnection> readers = new ArrayList<>();
+    private final BlockingQueue<PooledConnection> idleReaders;
+
+    private volatile boolean closed;
+
+    public SqliteConnections(String url, int readerCount) {
+        try {
+            // The writer goes first: switching to WAL is persistent and must happen before readers attach
+            writer = new PooledConnection(DriverManager.getConnection(url));
+            tune(writer.connection, false);
+            writer.connection.setAutoCommit(false);
+
+            idleReaders = new ArrayBlockingQueue<>(readerCount);
+            for (int i = 0; i < readerCount; i++) {
+                PooledConnection reader = new PooledConnection(DriverManager.getConnection(url));
+                tune(reader.connection, true);
+                // Each read() runs in one read transaction, so multi-statement reads see one snapshot
+                reader.connection.setAutoCommit(false);
+                readers.add(reader);
+                idleReaders.add(reader);
+            }
+        } catch (SQLException e) {
+            close();
+            throw new RuntimeException("Failed opening database " + url, e);
+        }
+    }
+
+    private static void tune(Connection conn, boolean readOnly) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (!readOnly) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+                // NORMAL is durable in WAL mode except for the last commits on power loss
+                stmt.execute("PRAGMA synchronous = NORMAL");
+            }
+            stmt.execute("PRAGMA busy_timeout = 5000");
+            stmt.execute("PRAGMA cache_size = -32768");      // 32 MiB page cache
+            stmt.execute("PRAGMA mmap_size = 268435456");    // 256 MiB memory-mapped I/O
+            stmt.execute("PRAGMA temp_store = MEMORY");
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = 1");
+            }
+        }
+    }
+
+    /**
+     * Runs {@code work} as one transaction on the writer connection.
+     * Writers are serialized; the transaction is rolled back if {@code work} throws.
+     */
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        ensureOpen();
+        writeLock.lock();
+        try {
+            try {
+                T result = work.run(writer);
+                writer.connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                writer.connection.rollback();
+                throw e;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Runs {@code work} on a pooled read-only connection, waiting if all readers are busy. */
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        ensureOpen();
+        PooledConnection reader = borrowReader();
+        try {
+            return work.run(reader);
+        } finally {
+            release(reader);
+        }
+    }
+
+    /**
+     * Hands out a read-only connection for work that outlives a single call
+     * (e.g. a lazily consumed result set). It must be returned with {@link #release}.
+     */
+    public PooledConnection borrowReader() throws SQLException {
+        ensureOpen();
+        try {
+            return idleReaders.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a read connection", e);
+        }
+    }
+
+    public void release(PooledConnection reader) {
+        try {
+            // Ends the read transaction so the WAL can be checkpointed past it
+            reader.connection.rollback();
+        } catch (SQLException ignored) {
+        } finally {
+            idleReaders.add(reader);
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Connections are closed");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (writer != null) writer.close();
+        readers.forEach(PooledConnection::close);
+    }
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(PooledConnection conn) throws SQLException;
+    }
+
+    /** A connection together with its prepared statement cache. */
+    public static final class PooledConnection {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Returns a cached statement for {@code sql}. Callers must not close it,
+         * but must close any result set they open from it.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                ps = connection.prepareStatement(sql);
+                statements.put(sql, ps);
+            } else {
+                ps.clearParameters();
+            }
+            return ps;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        private void close() {
+            for (PreparedStatement ps : statements.values()) {
+                try { ps.close(); } catch (SQLException ignored) {}
+            }
+            statements.clear();
+            try { connection.close(); } catch (SQLException ignored) {}
+        }
+    }
+}
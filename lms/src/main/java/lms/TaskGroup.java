@@ -0,0 +1,74 @@
+package lms;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs subtasks on virtual threads and treats them as one unit: the first failure
+ * cancels every sibling, {@link #join()} reports that failure, and closing the group
+ * (or interrupting the joiner) cancels whatever is still running.
+ *
+ * <p>This is the shutdown-on-failure policy of {@code StructuredTaskScope}, which is
+ * still a preview API on our Java 22 toolchain.
+ */
+public final class TaskGroup implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public <T> Future<T> fork(Callable<T> task) {
+        Future<T> future = executor.submit(() -> {
+            try {
+                return task.call();
+            } catch (Throwable t) {
+                if (failure.compareAndSet(null, t)) cancelAll();
+                throw t;
+            }
+        });
+        futures.add(future);
+        // A sibling may have failed before this task was registered
+        if (failure.get() != null) future.cancel(true);
+        return future;
+    }
+
+    /**
+     * Waits for every subtask. Throws the first failure, if any; once this returns
+     * normally every forked future holds a result ({@link Future#resultNow()}).
+     */
+    public void join() throws InterruptedException, ExecutionException {
+        try {
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (CancellationException | ExecutionException ignored) {
+                    // Reported below as the group's first failure
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+
+        Throwable t = failure.get();
+        if (t != null) throw new ExecutionException(t);
+    }
+
+    private void cancelAll() {
+        futures.forEach(f -> f.cancel(true));
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        executor.shutdownNow();
+        executor.close();
+    }
+}
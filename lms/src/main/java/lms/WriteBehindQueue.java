@@ -0,0 +1,299 @@
+package lms;
+
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+import lms.storage.StorageEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence: every {@link LibraryService} mutation is queued, and a
+ * background writer coalesces queued changes into a {@link ChangeSet} and commits
+ * it once it holds {@code maxBatch} changes or its oldest change is
+ * {@code maxDelayMillis} old.
+ *
+ * <p>Changes arrive under the service's write lock, often on the EDT, so queueing
+ * never blocks. When the bounded queue is full (the database is slow or failing),
+ * changes are coalesced by id into an overflow {@link ChangeSet} instead, which the
+ * writer picks up once it has drained the queue. Memory then grows with the number of
+ * distinct rows touched, not with the number of edits.
+ */
+public class WriteBehindQueue implements LibraryListener, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_MAX_BATCH = 1_000;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 200;
+
+    private final StorageEngine db;
+    private final BlockingQueue<Object> queue;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread writer;
+
+    // Changes that found the queue full, newer than everything in the queue. While it
+    // holds anything, new items go here too, so the writer sees them in order.
+    private final ReentrantLock overflowLock = new ReentrantLock();
+    private Overflow overflow = new Overflow();
+
+    private volatile boolean running = true;
+
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong flushedChanges = new AtomicLong();
+    private final AtomicLong overflowedChanges = new AtomicLong();
+    private volatile long lastFlushLatencyNanos;
+    private volatile long maxFlushLatencyNanos;
+    private volatile String lastError;
+
+    public WriteBehindQueue(StorageEngine db) {
+        this(db, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public WriteBehindQueue(StorageEngine db, int capacity, int maxBatch, long maxDelayMillis) {
+        this.db = db;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.writer = Thread.ofPlatform().name("lms-write-behind").daemon().start(this::runWriter);
+    }
+
+    @Override
+    public void libraryChanged(LibraryChange change) {
+        // Reloaded data came from the DB, so there is nothing to write back
+        if (change.kind() == LibraryChange.Kind.RELOADED) return;
+        enqueue(new Pending(List.of(snapshot(change)), System.nanoTime()));
+    }
+
+    @Override
+    public void libraryChanged(List<LibraryChange> changes) {
+        // One queue item, so the group always lands in the same batch (= transaction)
+        List<LibraryChange> writes = changes.stream()
+                .filter(c -> c.kind() != LibraryChange.Kind.RELOADED)
+                .map(WriteBehindQueue::snapshot)
+                .toList();
+        if (!writes.isEmpty()) enqueue(new Pending(writes, System.nanoTime()));
+    }
+
+    /**
+     * Durable-flush barrier: blocks until every change queued before this call
+     * has been committed. Returns {@code false} if that did not happen in time
+     * (e.g. the database is failing).
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        Barrier barrier = new Barrier(new CountDownLatch(1));
+        enqueue(barrier);
+        return barrier.done().await(timeout, unit);
+    }
+
+    public Stats stats() {
+        return new Stats(
+                queue.size(),
+                flushedBatches.get(),
+                flushedChanges.get(),
+                lastFlushLatencyNanos / 1e6,
+                maxFlushLatencyNanos / 1e6,
+                overflowedChanges.get(),
+                lastError
+        );
+    }
+
+    /** Flushes what is queued (waiting up to 10s), then stops the writer. */
+    @Override
+    public void close() {
+        try {
+            flush(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running = false;
+            writer.interrupt();
+        }
+    }
+
+    private void enqueue(Object item) {
+        if (!running) throw new IllegalStateException("Write-behind queue is closed");
+        overflowLock.lock();
+        try {
+            if (overflow.isEmpty() && queue.offer(item)) return;
+            switch (item) {
+                case Pending p -> {
+                    if (overflow.changes.isEmpty()) overflow.oldestQueuedAt = p.queuedAt();
+                    p.changes().forEach(c -> apply(overflow.changes, c));
+                    overflowedChanges.addAndGet(p.changes().size());
+                }
+                case Barrier b -> overflow.barriers.add(b);
+                default -> throw new IllegalArgumentException("Unexpected item " + item);
+            }
+        } finally {
+            overflowLock.unlock();
+        }
+    }
+
+    /** The overflow, if the queue has been drained up to it; otherwise null. */
+    private Overflow takeOverflow() {
+        overflowLock.lock();
+        try {
+            if (overflow.isEmpty() || !queue.isEmpty()) return null;
+            Overflow taken = overflow;
+            overflow = new Overflow();
+            return taken;
+        } finally {
+            overflowLock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        List<Object> drained = new ArrayList<>();
+        List<Barrier> barriers = new ArrayList<>();
+        ChangeSet batch = new ChangeSet();
+        long oldestQueuedAt = 0;
+
+        while (running) {
+            long waitNanos = batch.isEmpty()
+                    ? maxDelayNanos
+                    : Math.max(0, oldestQueuedAt + maxDelayNanos - System.nanoTime());
+            try {
+                Object first = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    drained.add(first);
+                    queue.drainTo(drained, maxBatch);
+                }
+            } catch (InterruptedException e) {
+                continue; // close() interrupts us; the loop condition decides
+            }
+
+            for (Object item : drained) {
+                if (item instanceof Pending p) {
+                    if (batch.isEmpty()) oldestQueuedAt = p.queuedAt();
+                    for (LibraryChange c : p.changes()) {
+                        apply(batch, c);
+                    }
+                } else if (item instanceof Barrier b) {
+                    barriers.add(b);
+                }
+            }
+            drained.clear();
+
+            Overflow spilled = takeOverflow();
+            if (spilled != null) {
+                if (batch.isEmpty()) oldestQueuedAt = spilled.oldestQueuedAt;
+                spilled.changes.mergeOlder(batch);
+                batch = spilled.changes;
+                barriers.addAll(spilled.barriers);
+            }
+
+            boolean due = !batch.isEmpty() && (batch.size() >= maxBatch
+                    || !barriers.isEmpty()
+                    || System.nanoTime() - oldestQueuedAt >= maxDelayNanos);
+
+            if (due && !commit(batch, oldestQueuedAt)) {
+                // Keep the batch (later changes keep coalescing into it) and retry after a pause
+                pause();
+                continue;
+            }
+            if (due) {
+                batch = new ChangeSet();
+            }
+
+            if (batch.isEmpty()) {
+                barriers.forEach(b -> b.done().countDown());
+                barriers.clear();
+            }
+        }
+    }
+
+    private boolean commit(ChangeSet batch, long oldestQueuedAt) {
+        try {
+            db.saveChanges(batch);
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            return false;
+        }
+
+        long latency = System.nanoTime() - oldestQueuedAt;
+        lastFlushLatencyNanos = latency;
+        maxFlushLatencyNanos = Math.max(maxFlushLatencyNanos, latency);
+        flushedBatches.incrementAndGet();
+        flushedChanges.addAndGet(batch.size());
+        lastError = null;
+        return true;
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(maxDelayNanos);
+        } catch (InterruptedException ignored) {
+            // close() wants us to re-check running
+        }
+    }
+
+    private static void apply(ChangeSet batch, LibraryChange change) {
+        switch (change.kind()) {
+            case INSERTED, UPDATED -> {
+                switch (change.value()) {
+                    case Book b -> batch.bookUpserted(b);
+                    case Borrower b -> batch.borrowerUpserted(b);
+                    case Loan l -> batch.loanUpserted(l);
+                    default -> throw new IllegalArgumentException("Unexpected value " + change.value());
+                }
+            }
+            case DELETED -> {
+                switch (change.entity()) {
+                    case BOOK -> batch.bookDeleted(change.id());
+                    case BORROWER -> batch.borrowerDeleted(change.id());
+                    case LOAN -> batch.loanDeleted(change.id());
+                }
+            }
+            case RELOADED -> { }
+        }
+    }
+
+    /** Books and borrowers are mutable, so copy them before they cross to the writer thread. */
+    private static LibraryChange snapshot(LibraryChange change) {
+        Object copy = switch (change.value()) {
+            case Book b -> new Book(b.getId(), b.getTitle(), b.getAuthor(), b.getPricePerDay(), b.isAvailable());
+            case Borrower b -> new Borrower(b.getId(), b.getName(), b.getEmail());
+            case null, default -> change.value();
+        };
+        return new LibraryChange(change.kind(), change.entity(), change.id(), change.row(), copy);
+    }
+
+    private record Pending(List<LibraryChange> changes, long queuedAt) {}
+
+    private record Barrier(CountDownLatch done) {}
+
+    private static final class Overflow {
+        final ChangeSet changes = new ChangeSet();
+        final List<Barrier> barriers = new ArrayList<>();
+        long oldestQueuedAt;
+
+        boolean isEmpty() {
+            return changes.isEmpty() && barriers.isEmpty();
+        }
+    }
+
+    public record Stats(
+            int queueDepth,
+            long flushedBatches,
+            long flushedChanges,
+            double lastFlushLatencyMillis,
+            double maxFlushLatencyMillis,
+            long overflowedChanges,
+            String lastError
+    ) {
+        @Override
+        public String toString() {
+            return String.format("queue depth=%d, batches=%d, changes=%d, last flush latency=%.1f ms, max=%.1f ms%s%s",
+                    queueDepth, flushedBatches, flushedChanges, lastFlushLatencyMillis, maxFlushLatencyMillis,
+                    overflowedChanges == 0 ? "" : ", coalesced while full=" + overflowedChanges,
+                    lastError == null ? "" : ", last error=" + lastError);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package lms.catalog;
+
+import lms.model.Book;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Storage for the book table: rows in order plus a primary-key index on the id.
+ * Like {@code EntityTable}, removing a row moves the last row into its place.
+ * Implementations are not thread-safe; {@code LibraryService} guards them.
+ */
+public interface BookCatalog extends BookColumns, AutoCloseable {
+
+    /** Row holding {@code id}, or -1. */
+    int rowOf(int id);
+
+    default boolean contains(int id) {
+        return rowOf(id) >= 0;
+    }
+
+    /** Book with {@code id}, or {@code null}. */
+    default Book get(int id) {
+        int row = rowOf(id);
+        return row < 0 ? null : bookAt(row);
+    }
+
+    /** Stores {@code book}, replacing the book with the same id in its row. Returns the old one, or {@code null}. */
+    Book put(Book book);
+
+    /** Removes the book with {@code id}; returns it, or {@code null} if absent. */
+    Book remove(int id);
+
+    /** Returns {@code false} if there is no book with {@code id}. */
+    boolean setAvailable(int id, boolean available);
+
+    void clear();
+
+    /** Releases memory or files held outside the heap. */
+    @Override
+    default void close() {}
+
+    /** Read-only live view in row order. */
+    default List<Book> rows() {
+        return new RowView(this);
+    }
+
+    final class RowView extends AbstractList<Book> implements RandomAccess {
+        private final BookColumns columns;
+
+        RowView(BookColumns columns) {
+            this.columns = columns;
+        }
+
+        @Override public Book get(int index) { return columns.bookAt(index); }
+        @Override public int size() { return columns.size(); }
+    }
+}
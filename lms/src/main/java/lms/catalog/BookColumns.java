@@ -0,0 +1,27 @@
+package lms.catalog;
+
+import lms.model.Book;
+
+/**
+ * Column-wise, read-only access to books by row, so views (e.g. the books table)
+ * can read a single field without materialising a {@link Book}.
+ */
+public interface BookColumns {
+
+    int size();
+
+    int idAt(int row);
+
+    String titleAt(int row);
+
+    String authorAt(int row);
+
+    double pricePerDayAt(int row);
+
+    boolean availableAt(int row);
+
+    /** The book at {@code row}; may be the stored instance, so treat it as read-only. */
+    default Book bookAt(int row) {
+        return new Book(idAt(row), titleAt(row), authorAt(row), pricePerDayAt(row), availableAt(row));
+    }
+}
@@ -0,0 +1,124 @@
+package lms.catalog;
+
+import lms.model.Book;
+import lms.util.IntIntHashMap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Books stored column by column: ids and prices in primitive arrays, availability in
+ * a {@link BitSet}, titles and authors as references into a {@link StringPool}. There
+ * is no per-book object, so ten million books are a handful of large arrays for the
+ * GC instead of tens of millions of small objects.
+ *
+ * <p>{@link #bookAt(int)} and {@link #get(int)} build a new {@link Book} each call.
+ * The pool keeps the strings of removed or edited books until {@link #clear()}.
+ */
+public final class ColumnarBookCatalog implements BookCatalog {
+
+    private static final int MISSING = -1;
+
+    private int[] ids;
+    private int[] titles;
+    private int[] authors;
+    private double[] prices;
+    private final BitSet available = new BitSet();
+    private int size;
+
+    private final StringPool strings = new StringPool();
+    private final IntIntHashMap rowById;
+
+    public ColumnarBookCatalog() {
+        this(1024);
+    }
+
+    public ColumnarBookCatalog(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        ids = new int[capacity];
+        titles = new int[capacity];
+        authors = new int[capacity];
+        prices = new double[capacity];
+        rowById = new IntIntHashMap(capacity);
+    }
+
+    @Override public int size() { return size; }
+    @Override public int idAt(int row) { return ids[check(row)]; }
+    @Override public String titleAt(int row) { return strings.get(titles[check(row)]); }
+    @Override public String authorAt(int row) { return strings.get(authors[check(row)]); }
+    @Override public double pricePerDayAt(int row) { return prices[check(row)]; }
+    @Override public boolean availableAt(int row) { return available.get(check(row)); }
+
+    @Override
+    public int rowOf(int id) {
+        return rowById.get(id, MISSING);
+    }
+
+    @Override
+    public Book put(Book book) {
+        int row = rowById.get(book.getId(), MISSING);
+        Book replaced = null;
+        if (row == MISSING) {
+            if (size == ids.length) grow();
+            row = size++;
+            rowById.put(book.getId(), row);
+        } else {
+            replaced = bookAt(row);
+        }
+        write(row, book.getId(), strings.intern(book.getTitle()), strings.intern(book.getAuthor()),
+                book.getPricePerDay(), book.isAvailable());
+        return replaced;
+    }
+
+    @Override
+    public Book remove(int id) {
+        int row = rowById.remove(id, MISSING);
+        if (row == MISSING) return null;
+
+        Book removed = bookAt(row);
+        int last = --size;
+        if (row != last) {
+            write(row, ids[last], titles[last], authors[last], prices[last], available.get(last));
+            rowById.put(ids[row], row);
+        }
+        available.clear(last);
+        return removed;
+    }
+
+    @Override
+    public boolean setAvailable(int id, boolean value) {
+        int row = rowById.get(id, MISSING);
+        if (row == MISSING) return false;
+        available.set(row, value);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        available.clear();
+        rowById.clear();
+        strings.clear();
+    }
+
+    private void write(int row, int id, int title, int author, double price, boolean isAvailable) {
+        ids[row] = id;
+        titles[row] = title;
+        authors[row] = author;
+        prices[row] = price;
+        available.set(row, isAvailable);
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        authors = Arrays.copyOf(authors, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+    }
+
+    private int check(int row) {
+        if (row >= size) throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        return row;
+    }
+}
@@ -0,0 +1,38 @@
+package lms.catalog;
+
+import lms.model.Book;
+import lms.util.EntityTable;
+
+import java.util.List;
+
+/** The default catalog: one {@link Book} object per row. */
+public final class ObjectBookCatalog implements BookCatalog {
+
+    private final EntityTable<Book> table = new EntityTable<>(Book::getId);
+
+    @Override public int size() { return table.size(); }
+    @Override public int idAt(int row) { return table.at(row).getId(); }
+    @Override public String titleAt(int row) { return table.at(row).getTitle(); }
+    @Override public String authorAt(int row) { return table.at(row).getAuthor(); }
+    @Override public double pricePerDayAt(int row) { return table.at(row).getPricePerDay(); }
+    @Override public boolean availableAt(int row) { return table.at(row).isAvailable(); }
+    @Override public Book bookAt(int row) { return table.at(row); }
+
+    @Override public int rowOf(int id) { return table.rowOf(id); }
+    @Override public boolean contains(int id) { return table.contains(id); }
+    @Override public Book get(int id) { return table.get(id); }
+
+    @Override public Book put(Book book) { return table.put(book); }
+    @Override public Book remove(int id) { return table.remove(id); }
+
+    @Override
+    public boolean setAvailable(int id, boolean available) {
+        Book b = table.get(id);
+        if (b == null) return false;
+        b.setAvailable(available);
+        return true;
+    }
+
+    @Override public void clear() { table.clear(); }
+    @Override public List<Book> rows() { return table.rows(); }
+}
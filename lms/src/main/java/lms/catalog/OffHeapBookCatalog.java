@@ -0,0 +1,236 @@
+package lms.catalog;
+
+import lms.model.Book;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Books stored outside the Java heap with the Foreign Memory API: fixed-width records
+ * in one region, UTF-8 titles and authors appended to a second one, and the id index
+ * in a third. A multi-gigabyte catalog then costs the GC nothing.
+ *
+ * <p>{@link #open(Path)} maps the records and strings to {@code <file>} and
+ * {@code <file>.strings}. Reopening remaps them and rebuilds only the id index, which
+ * is much faster than reading the books back from SQLite. The files are not crash-safe:
+ * a catalog that was not {@linkplain #close() closed} may be stale or torn.
+ *
+ * <p>Not thread-safe; {@code LibraryService} guards it. Segments are shared, so readers
+ * on any thread may use it under that protocol. Strings of removed or edited books stay
+ * in the string region until {@link #clear()}.
+ */
+public final class OffHeapBookCatalog implements BookCatalog {
+
+    private static final int MAGIC = 0x4C4D5342; // "LMSB"
+    private static final int VERSION = 1;
+
+    // Header at the start of the records region
+    private static final long H_MAGIC = 0;
+    private static final long H_VERSION = 4;
+    private static final long H_SIZE = 8;
+    private static final long H_STRINGS_USED = 16;
+    private static final long HEADER_BYTES = 64;
+
+    // One record per row
+    private static final long R_ID = 0;
+    private static final long R_AVAILABLE = 4;
+    private static final long R_PRICE = 8;
+    private static final long R_TITLE_OFFSET = 16;
+    private static final long R_AUTHOR_OFFSET = 24;
+    private static final long R_TITLE_LENGTH = 32;
+    private static final long R_AUTHOR_LENGTH = 36;
+    private static final long RECORD_BYTES = 40;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE;
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private final OffHeapRegion records;
+    private final OffHeapRegion strings;
+    private final OffHeapIdIndex index;
+
+    private int size;
+    private long stringsUsed;
+
+    private OffHeapBookCatalog(OffHeapRegion records, OffHeapRegion strings, int expectedRows) {
+        this.records = records;
+        this.strings = strings;
+        this.index = new OffHeapIdIndex(expectedRows);
+
+        MemorySegment r = records.segment();
+        boolean existing = r.byteSize() >= HEADER_BYTES
+                && r.get(INT, H_MAGIC) == MAGIC
+                && r.get(INT, H_VERSION) == VERSION;
+        if (existing) {
+            size = r.get(INT, H_SIZE);
+            stringsUsed = r.get(LONG, H_STRINGS_USED);
+            if (HEADER_BYTES + size * RECORD_BYTES > r.byteSize() || stringsUsed > strings.segment().byteSize()) {
+                throw new IllegalStateException("Catalog file is truncated");
+            }
+            for (int row = 0; row < size; row++) {
+                index.put(idAt(row), row);
+            }
+        } else {
+            r.set(INT, H_MAGIC, MAGIC);
+            r.set(INT, H_VERSION, VERSION);
+            writeHeader();
+        }
+    }
+
+    /** An anonymous off-heap catalog; its memory is released on {@link #close()}. */
+    public static OffHeapBookCatalog inMemory(int expectedRows) {
+        int rows = Math.max(INITIAL_ROWS, expectedRows);
+        return new OffHeapBookCatalog(
+                OffHeapRegion.anonymous(HEADER_BYTES + rows * RECORD_BYTES),
+                OffHeapRegion.anonymous(rows * 32L),
+                rows);
+    }
+
+    /** Maps {@code file} (and {@code file.strings}), creating them if needed. */
+    public static OffHeapBookCatalog open(Path file) {
+        return new OffHeapBookCatalog(
+                OffHeapRegion.mapped(file, HEADER_BYTES + INITIAL_ROWS * RECORD_BYTES),
+                OffHeapRegion.mapped(file.resolveSibling(file.getFileName() + ".strings"), INITIAL_ROWS * 32L),
+                INITIAL_ROWS);
+    }
+
+    /** Off-heap bytes in use: records, string data and the id index. */
+    public long offHeapBytes() {
+        return HEADER_BYTES + size * RECORD_BYTES + stringsUsed + index.byteSize();
+    }
+
+    @Override public int size() { return size; }
+
+    @Override public int idAt(int row) { return records.segment().get(INT, offset(row) + R_ID); }
+    @Override public boolean availableAt(int row) { return records.segment().get(INT, offset(row) + R_AVAILABLE) != 0; }
+    @Override public double pricePerDayAt(int row) { return records.segment().get(DOUBLE, offset(row) + R_PRICE); }
+
+    @Override
+    public String titleAt(int row) {
+        MemorySegment r = records.segment();
+        long at = offset(row);
+        return readString(r.get(LONG, at + R_TITLE_OFFSET), r.get(INT, at + R_TITLE_LENGTH));
+    }
+
+    @Override
+    public String authorAt(int row) {
+        MemorySegment r = records.segment();
+        long at = offset(row);
+        return readString(r.get(LONG, at + R_AUTHOR_OFFSET), r.get(INT, at + R_AUTHOR_LENGTH));
+    }
+
+    @Override
+    public int rowOf(int id) {
+        return index.get(id);
+    }
+
+    @Override
+    public Book put(Book book) {
+        int row = index.get(book.getId());
+        Book replaced = null;
+        if (row < 0) {
+            records.ensureCapacity(HEADER_BYTES + (size + 1L) * RECORD_BYTES);
+            row = size++;
+            index.put(book.getId(), row);
+        } else {
+            replaced = bookAt(row);
+        }
+
+        byte[] title = book.getTitle().getBytes(StandardCharsets.UTF_8);
+        byte[] author = book.getAuthor().getBytes(StandardCharsets.UTF_8);
+        long titleOffset = appendString(title);
+        long authorOffset = appendString(author);
+
+        MemorySegment r = records.segment();
+        long at = offset(row);
+        r.set(INT, at + R_ID, book.getId());
+        r.set(INT, at + R_AVAILABLE, book.isAvailable() ? 1 : 0);
+        r.set(DOUBLE, at + R_PRICE, book.getPricePerDay());
+        r.set(LONG, at + R_TITLE_OFFSET, titleOffset);
+        r.set(LONG, at + R_AUTHOR_OFFSET, authorOffset);
+        r.set(INT, at + R_TITLE_LENGTH, title.length);
+        r.set(INT, at + R_AUTHOR_LENGTH, author.length);
+        writeHeader();
+        return replaced;
+    }
+
+    @Override
+    public Book remove(int id) {
+        int row = index.remove(id);
+        if (row < 0) return null;
+
+        Book removed = bookAt(row);
+        int last = --size;
+        if (row != last) {
+            MemorySegment r = records.segment();
+            MemorySegment.copy(r, recordAt(last), r, recordAt(row), RECORD_BYTES);
+            index.put(idAt(row), row);
+        }
+        writeHeader();
+        return removed;
+    }
+
+    @Override
+    public boolean setAvailable(int id, boolean available) {
+        int row = index.get(id);
+        if (row < 0) return false;
+        records.segment().set(INT, offset(row) + R_AVAILABLE, available ? 1 : 0);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        stringsUsed = 0;
+        index.clear();
+        writeHeader();
+    }
+
+    /** Flushes a file-backed catalog to disk; no-op in memory. */
+    public void force() {
+        records.force();
+        strings.force();
+    }
+
+    @Override
+    public void close() {
+        writeHeader();
+        index.close();
+        records.close();
+        strings.close();
+    }
+
+    private long appendString(byte[] utf8) {
+        long at = stringsUsed;
+        strings.ensureCapacity(at + utf8.length);
+        MemorySegment.copy(utf8, 0, strings.segment(), BYTE, at, utf8.length);
+        stringsUsed += utf8.length;
+        return at;
+    }
+
+    private String readString(long at, int length) {
+        byte[] utf8 = new byte[length];
+        MemorySegment.copy(strings.segment(), BYTE, at, utf8, 0, length);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private void writeHeader() {
+        MemorySegment r = records.segment();
+        r.set(INT, H_SIZE, size);
+        r.set(LONG, H_STRINGS_USED, stringsUsed);
+    }
+
+    private long offset(int row) {
+        if (row >= size) throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        return recordAt(row);
+    }
+
+    private static long recordAt(int row) {
+        return HEADER_BYTES + row * RECORD_BYTES;
+    }
+}
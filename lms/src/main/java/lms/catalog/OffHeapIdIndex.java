@@ -0,0 +1,117 @@
+package lms.catalog;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Id-to-row hash index in off-heap memory, so a huge catalog adds nothing to the heap.
+ * Same scheme as {@code IntIntHashMap} (linear probing, backward-shift deletes), with
+ * each slot holding the id and {@code row + 1} so that zero marks an empty slot.
+ * It is rebuilt from the records when a catalog file is reopened. Not thread-safe.
+ */
+final class OffHeapIdIndex implements AutoCloseable {
+
+    private static final long SLOT_BYTES = 8;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+
+    private OffHeapRegion region;
+    private long mask;
+    private int size;
+
+    OffHeapIdIndex(int expectedSize) {
+        long slots = tableSizeFor(expectedSize);
+        region = OffHeapRegion.anonymous(slots * SLOT_BYTES);
+        mask = slots - 1;
+    }
+
+    /** Row for {@code id}, or -1. */
+    int get(int id) {
+        MemorySegment s = region.segment();
+        long slot = slotOf(s, id);
+        int stored = s.get(INT, slot * SLOT_BYTES + 4);
+        return stored - 1; // -1 when the slot is empty
+    }
+
+    void put(int id, int row) {
+        MemorySegment s = region.segment();
+        long slot = slotOf(s, id);
+        boolean added = s.get(INT, slot * SLOT_BYTES + 4) == 0;
+        s.set(INT, slot * SLOT_BYTES, id);
+        s.set(INT, slot * SLOT_BYTES + 4, row + 1);
+        if (added && ++size * 2 > mask + 1) rehash();
+    }
+
+    /** Removes {@code id}; returns its row, or -1. */
+    int remove(int id) {
+        MemorySegment s = region.segment();
+        long gap = slotOf(s, id);
+        int stored = s.get(INT, gap * SLOT_BYTES + 4);
+        if (stored == 0) return -1;
+
+        long i = (gap + 1) & mask;
+        while (s.get(INT, i * SLOT_BYTES + 4) != 0) {
+            int key = s.get(INT, i * SLOT_BYTES);
+            long home = mix(key) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                MemorySegment.copy(s, i * SLOT_BYTES, s, gap * SLOT_BYTES, SLOT_BYTES);
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        s.set(INT, gap * SLOT_BYTES + 4, 0);
+        size--;
+        return stored - 1;
+    }
+
+    void clear() {
+        region.segment().asSlice(0, (mask + 1) * SLOT_BYTES).fill((byte) 0);
+        size = 0;
+    }
+
+    long byteSize() { return (mask + 1) * SLOT_BYTES; }
+
+    @Override
+    public void close() {
+        region.close();
+    }
+
+    private long slotOf(MemorySegment s, int id) {
+        long slot = mix(id) & mask;
+        while (s.get(INT, slot * SLOT_BYTES + 4) != 0 && s.get(INT, slot * SLOT_BYTES) != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        OffHeapRegion old = region;
+        MemorySegment from = old.segment();
+        long oldSlots = mask + 1;
+
+        long slots = oldSlots * 2;
+        region = OffHeapRegion.anonymous(slots * SLOT_BYTES);
+        MemorySegment to = region.segment();
+        mask = slots - 1;
+
+        for (long i = 0; i < oldSlots; i++) {
+            int stored = from.get(INT, i * SLOT_BYTES + 4);
+            if (stored != 0) {
+                int key = from.get(INT, i * SLOT_BYTES);
+                long slot = slotOf(to, key);
+                to.set(INT, slot * SLOT_BYTES, key);
+                to.set(INT, slot * SLOT_BYTES + 4, stored);
+            }
+        }
+        old.close();
+    }
+
+    private static long tableSizeFor(int expected) {
+        long needed = Math.max(16, (long) expected * 2);
+        return Long.highestOneBit(needed - 1) << 1;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
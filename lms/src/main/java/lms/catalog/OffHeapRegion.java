@@ -0,0 +1,97 @@
+package lms.catalog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A growable block of off-heap memory: either anonymous, or a read-write mapping of a
+ * file that is extended as the region grows. Growing swaps in a new segment and closes
+ * the old one's shared arena, so a reader still holding the old segment fails with an
+ * {@link IllegalStateException} instead of reading freed memory.
+ */
+final class OffHeapRegion implements AutoCloseable {
+
+    private final FileChannel channel; // null for anonymous memory
+    private Arena arena;
+    private MemorySegment segment;
+
+    private OffHeapRegion(FileChannel channel, long initialBytes) {
+        this.channel = channel;
+        this.arena = Arena.ofShared();
+        this.segment = allocate(arena, Math.max(initialBytes, size(channel)));
+    }
+
+    static OffHeapRegion anonymous(long initialBytes) {
+        return new OffHeapRegion(null, initialBytes);
+    }
+
+    static OffHeapRegion mapped(Path file, long initialBytes) {
+        try {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new OffHeapRegion(channel, initialBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map " + file, e);
+        }
+    }
+
+    MemorySegment segment() { return segment; }
+
+    boolean isMapped() { return channel != null; }
+
+    /** Makes the region at least {@code bytes} long, at least doubling it when it grows. */
+    void ensureCapacity(long bytes) {
+        long current = segment.byteSize();
+        if (bytes <= current) return;
+
+        Arena next = Arena.ofShared();
+        MemorySegment grown = allocate(next, Math.max(bytes, current * 2));
+        // Mapping past the end extends the file and shows what the old mapping wrote;
+        // anonymous memory has to be copied
+        if (channel == null) MemorySegment.copy(segment, 0, grown, 0, current);
+        Arena old = arena;
+        arena = next;
+        segment = grown;
+        old.close();
+    }
+
+    /** Writes dirty pages of a mapped region to disk; no-op for anonymous memory. */
+    void force() {
+        if (channel != null) segment.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+        arena.close();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to close catalog file", e);
+            }
+        }
+    }
+
+    private MemorySegment allocate(Arena in, long bytes) {
+        if (channel == null) return in.allocate(bytes, Long.BYTES);
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes, in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map catalog file", e);
+        }
+    }
+
+    private static long size(FileChannel channel) {
+        try {
+            return channel == null ? 0 : channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to size catalog file", e);
+        }
+    }
+}
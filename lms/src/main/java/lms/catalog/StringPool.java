@@ -0,0 +1,100 @@
+package lms.catalog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only pool of UTF-8 strings in one {@code byte[]}, addressed by an {@code int}
+ * reference. Equal strings are stored once, which matters for columns like author
+ * where a few thousand values repeat across millions of rows.
+ *
+ * <p>Strings are never freed individually; {@link #clear()} drops everything. Not thread-safe.
+ */
+public final class StringPool {
+
+    private static final int EMPTY = -1;
+
+    private byte[] bytes = new byte[1 << 12];
+    private int used;
+
+    // offsets[ref] .. offsets[ref + 1] is the encoding of string ref
+    private int[] offsets = new int[1 << 8];
+    private int count;
+
+    // Open-addressing dedup table of refs, keyed by content hash
+    private int[] slots = newSlots(1 << 8);
+    private int[] hashes = new int[1 << 8];
+
+    /** Distinct strings stored. */
+    public int count() { return count; }
+
+    /** Bytes of string data held (excluding the index arrays). */
+    public long dataBytes() { return used; }
+
+    public int intern(String s) {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        int hash = Arrays.hashCode(utf8);
+
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        for (int ref; (ref = slots[slot]) != EMPTY; slot = (slot + 1) & mask) {
+            if (hashes[ref] == hash && Arrays.equals(bytes, offsets[ref], offsets[ref + 1], utf8, 0, utf8.length)) {
+                return ref;
+            }
+        }
+
+        int ref = append(utf8, hash);
+        slots[slot] = ref;
+        if (count * 2 > slots.length) rehash(slots.length * 2);
+        return ref;
+    }
+
+    public String get(int ref) {
+        int from = offsets[ref];
+        return new String(bytes, from, offsets[ref + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    public void clear() {
+        used = 0;
+        count = 0;
+        Arrays.fill(slots, EMPTY);
+    }
+
+    private int append(byte[] utf8, int hash) {
+        if (used + utf8.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, used + utf8.length));
+        }
+        System.arraycopy(utf8, 0, bytes, used, utf8.length);
+        used += utf8.length;
+
+        int ref = count++;
+        if (count + 1 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            hashes = Arrays.copyOf(hashes, offsets.length);
+        }
+        offsets[count] = used;
+        hashes[ref] = hash;
+        return ref;
+    }
+
+    private void rehash(int capacity) {
+        slots = newSlots(capacity);
+        int mask = capacity - 1;
+        for (int ref = 0; ref < count; ref++) {
+            int slot = mix(hashes[ref]) & mask;
+            while (slots[slot] != EMPTY) slot = (slot + 1) & mask;
+            slots[slot] = ref;
+        }
+    }
+
+    private static int[] newSlots(int capacity) {
+        int[] s = new int[capacity];
+        Arrays.fill(s, EMPTY);
+        return s;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,372 @@
+package lms.io;
+
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+import lms.storage.StorageEngine;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+
+/**
+ * Streaming CSV import for books, borrowers or loans. The table is picked from the
+ * header row. Rows are parsed lazily, validated, and inserted in chunks (one
+ * transaction per chunk) through batched prepared statements, so memory use does
+ * not depend on the file size.
+ *
+ * <p>Expected headers (column order matters, names are case-insensitive):
+ * <pre>
+ * id,title,author,pricePerDay,available
+ * id,name,email
+ * id,bookId,borrowerId,startDate,duration      (startDate as YYYY-MM-DD or DD-MM-YYYY)
+ * </pre>
+ */
+public class CsvImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final StorageEngine db;
+    private final ExistingIds existing;
+    private final int chunkSize;
+
+    public CsvImporter(StorageEngine db, ExistingIds existing) {
+        this(db, existing, DEFAULT_CHUNK_SIZE);
+    }
+
+    public CsvImporter(StorageEngine db, ExistingIds existing, int chunkSize) {
+        this.db = db;
+        this.existing = existing;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports {@code file}, reporting progress after every committed chunk.
+     * Interrupting the calling thread stops the import after the current chunk;
+     * chunks that were already committed stay in the database.
+     */
+    public ImportResult importFile(Path file, ProgressListener listener) throws IOException {
+        long totalBytes = Math.max(1, Files.size(file));
+
+        try (CountingInputStream counting = new CountingInputStream(Files.newInputStream(file));
+             CsvReader csv = new CsvReader(new InputStreamReader(counting, StandardCharsets.UTF_8))) {
+
+            List<String> header = csv.readRecord();
+            if (header == null) throw new IOException("File is empty");
+
+            Kind kind = Kind.fromHeader(header);
+            Run<?> run = switch (kind) {
+                case BOOKS -> new Run<>(kind, new BookRows());
+                case BORROWERS -> new Run<>(kind, new BorrowerRows());
+                case LOANS -> new Run<>(kind, new LoanRows());
+            };
+            return run.execute(csv, () -> 100.0 * counting.count / totalBytes, listener);
+        }
+    }
+
+    /**
+     * Ids that already exist in memory, so duplicates are rejected before touching the DB,
+     * and the books that can still be lent, so a loan file cannot lend a book twice.
+     */
+    public record ExistingIds(IntPredicate books, IntPredicate borrowers, IntPredicate loans,
+                              IntPredicate availableBooks) {}
+
+    public enum Kind {
+        BOOKS("id,title,author,priceperday,available"),
+        BORROWERS("id,name,email"),
+        LOANS("id,bookid,borrowerid,startdate,duration");
+
+        private final String header;
+
+        Kind(String header) {
+            this.header = header;
+        }
+
+        static Kind fromHeader(List<String> columns) throws IOException {
+            String joined = String.join(",", columns.stream().map(c -> c.trim().toLowerCase(Locale.ROOT)).toList());
+            for (Kind k : values()) {
+                if (k.header.equals(joined)) return k;
+            }
+            throw new IOException("Unrecognised CSV header: " + String.join(",", columns));
+        }
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(ImportProgress progress);
+    }
+
+    public record ImportProgress(long rowsRead, long accepted, long rejected, double percent, double rowsPerSecond) {}
+
+    public record Rejection(long line, String reason) {}
+
+    public record ImportResult(
+            Kind kind,
+            long rowsRead,
+            long accepted,
+            long rejected,
+            long elapsedNanos,
+            List<Rejection> rejections // first MAX_REPORTED_REJECTIONS only
+    ) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+        }
+    }
+
+    // --- One import pass over a file of a single kind ---
+
+    private final class Run<T> {
+
+        private final Kind kind;
+        private final Rows<T> rows;
+
+        private final BitSet seenIds = new BitSet();
+        private final List<T> chunk = new ArrayList<>(chunkSize);
+        private final List<Long> chunkLines = new ArrayList<>(chunkSize);
+        private final List<Rejection> rejections = new ArrayList<>();
+
+        private long rowsRead;
+        private long accepted;
+        private long rejected;
+
+        Run(Kind kind, Rows<T> rows) {
+            this.kind = kind;
+            this.rows = rows;
+        }
+
+        ImportResult execute(CsvReader csv, PercentSource percent, ProgressListener listener) throws IOException {
+            long start = System.nanoTime();
+
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                if (record.size() == 1 && record.getFirst().isBlank()) continue;
+                rowsRead++;
+                accept(record, csv.recordLine());
+
+                if (chunk.size() == chunkSize) {
+                    commitChunk();
+                    listener.progress(progress(start, percent.percent()));
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Import cancelled after " + accepted + " rows");
+                    }
+                }
+            }
+            commitChunk();
+            listener.progress(progress(start, 100));
+
+            return new ImportResult(kind, rowsRead, accepted, rejected, System.nanoTime() - start, List.copyOf(rejections));
+        }
+
+        private void accept(List<String> record, long line) {
+            T row;
+            try {
+                row = rows.parse(record);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                reject(line, e.getMessage());
+                return;
+            }
+
+            int id = rows.id(row);
+            String problem;
+            if (id <= 0) problem = "id must be a positive integer";
+            else if (seenIds.get(id)) problem = "duplicate id " + id + " in file";
+            else if (rows.exists(id)) problem = "id " + id + " already exists";
+            else problem = rows.checkReferences(row);
+
+            if (problem != null) {
+                reject(line, problem);
+                return;
+            }
+
+            seenIds.set(id);
+            chunk.add(row);
+            chunkLines.add(line);
+        }
+
+        private void commitChunk() {
+            if (chunk.isEmpty()) return;
+
+            boolean[] inserted = rows.insert(chunk);
+            for (int i = 0; i < inserted.length; i++) {
+                if (inserted[i]) {
+                    accepted++;
+                } else {
+                    rows.notInserted(chunk.get(i));
+                    reject(chunkLines.get(i), "id " + rows.id(chunk.get(i)) + " already exists in the database");
+                }
+            }
+            chunk.clear();
+            chunkLines.clear();
+        }
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(new Rejection(line, reason));
+            }
+        }
+
+        private ImportProgress progress(long start, double percent) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new ImportProgress(rowsRead, accepted, rejected, Math.min(100, percent),
+                    seconds == 0 ? 0 : rowsRead / seconds);
+        }
+    }
+
+    @FunctionalInterface
+    private interface PercentSource {
+        double percent();
+    }
+
+    // --- Per-table parsing and validation ---
+
+    private interface Rows<T> {
+        T parse(List<String> f);
+        int id(T row);
+        boolean exists(int id);
+        /** Problem with foreign keys, or {@code null} if the row is fine (it is then queued for insert). */
+        default String checkReferences(T row) { return null; }
+        boolean[] insert(List<T> chunk);
+        /** A queued row the database turned down; undo what {@link #checkReferences} reserved for it. */
+        default void notInserted(T row) {}
+    }
+
+    private final class BookRows implements Rows<Book> {
+        @Override
+        public Book parse(List<String> f) {
+            expectColumns(f, 5);
+            String title = required(f.get(1), "title");
+            String author = required(f.get(2), "author");
+            double price = parseDouble(f.get(3), "pricePerDay");
+            if (price < 0) throw new IllegalArgumentException("pricePerDay must not be negative");
+            return new Book(parseInt(f.get(0), "id"), title, author, price, parseBoolean(f.get(4)));
+        }
+
+        @Override public int id(Book b) { return b.getId(); }
+        @Override public boolean exists(int id) { return existing.books().test(id); }
+        @Override public boolean[] insert(List<Book> chunk) { return db.insertNewBooks(chunk); }
+    }
+
+    private final class BorrowerRows implements Rows<Borrower> {
+        @Override
+        public Borrower parse(List<String> f) {
+            expectColumns(f, 3);
+            String name = required(f.get(1), "name");
+            String email = required(f.get(2), "email");
+            // Same rule as the Borrowers form
+            if (!email.contains("@") || !email.contains(".")) throw new IllegalArgumentException("invalid email");
+            return new Borrower(parseInt(f.get(0), "id"), name, email);
+        }
+
+        @Override public int id(Borrower b) { return b.getId(); }
+        @Override public boolean exists(int id) { return existing.borrowers().test(id); }
+        @Override public boolean[] insert(List<Borrower> chunk) { return db.insertNewBorrowers(chunk); }
+    }
+
+    private final class LoanRows implements Rows<Loan> {
+        // Books lent by earlier rows of this file: one active loan per book, as in checkout
+        private final BitSet claimedBooks = new BitSet();
+
+        @Override
+        public Loan parse(List<String> f) {
+            expectColumns(f, 5);
+            int duration = parseInt(f.get(4), "duration");
+            if (duration <= 0) throw new IllegalArgumentException("duration must be positive");
+            return new Loan(parseInt(f.get(0), "id"), parseInt(f.get(1), "bookId"), parseInt(f.get(2), "borrowerId"),
+                    parseDate(f.get(3)), duration);
+        }
+
+        @Override public int id(Loan l) { return l.getId(); }
+        @Override public boolean exists(int id) { return existing.loans().test(id); }
+
+        @Override
+        public String checkReferences(Loan l) {
+            if (!existing.books().test(l.getBookId())) return "unknown bookId " + l.getBookId();
+            if (!existing.borrowers().test(l.getBorrowerId())) return "unknown borrowerId " + l.getBorrowerId();
+            if (claimedBooks.get(l.getBookId())) return "book " + l.getBookId() + " is already lent earlier in the file";
+            if (!existing.availableBooks().test(l.getBookId())) return "book " + l.getBookId() + " is not available";
+            claimedBooks.set(l.getBookId());
+            return null;
+        }
+
+        @Override public boolean[] insert(List<Loan> chunk) { return db.insertNewLoans(chunk); }
+        @Override public void notInserted(Loan l) { claimedBooks.clear(l.getBookId()); }
+    }
+
+    // --- Field helpers: all failures are IllegalArgumentException with a readable reason ---
+
+    private static void expectColumns(List<String> f, int n) {
+        if (f.size() != n) throw new IllegalArgumentException("expected " + n + " columns, found " + f.size());
+    }
+
+    private static String required(String value, String column) {
+        String v = value.trim();
+        if (v.isEmpty()) throw new IllegalArgumentException(column + " is required");
+        return v;
+    }
+
+    private static int parseInt(String value, String column) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " must be an integer: '" + value + "'");
+        }
+    }
+
+    private static double parseDouble(String value, String column) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " must be numeric: '" + value + "'");
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "", "1", "true", "yes", "y" -> true;
+            case "0", "false", "no", "n" -> false;
+            default -> throw new IllegalArgumentException("available must be true/false: '" + value + "'");
+        };
+    }
+
+    private static LocalDate parseDate(String value) {
+        String v = value.trim();
+        // ISO dates have the year first; anything else is the UI's DD-MM-YYYY
+        return v.length() > 4 && v.charAt(4) == '-' ? LocalDate.parse(v) : LocalDate.parse(v, Loan.UI_DATE_FORMAT);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
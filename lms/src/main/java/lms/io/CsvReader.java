@@ -0,0 +1,79 @@
+package lms.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader: comma separated, optional double quotes, {@code ""} as an
+ * escaped quote, and line breaks allowed inside quoted fields. Records are parsed one
+ * at a time, so a file of any size is read in constant memory.
+ */
+public class CsvReader implements Closeable {
+
+    private final BufferedReader in;
+    private final StringBuilder field = new StringBuilder();
+    private long line = 1;
+    private long recordLine;
+
+    public CsvReader(Reader in) {
+        this.in = in instanceof BufferedReader br ? br : new BufferedReader(in, 1 << 16);
+    }
+
+    /** Next record, or {@code null} at end of input. */
+    public List<String> readRecord() throws IOException {
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        recordLine = line;
+
+        boolean inQuotes = false;
+        boolean sawAny = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            sawAny = true;
+            if (inQuotes) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        if (next != -1) in.reset();
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                line++;
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+
+        if (!sawAny) return null;
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /** 1-based line on which the most recently read record started. */
+    public long recordLine() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
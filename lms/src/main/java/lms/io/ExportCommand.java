@@ -0,0 +1,59 @@
+package lms.io;
+
+import lms.io.LibraryExporter.ExportResult;
+import lms.io.LibraryExporter.Format;
+import lms.storage.StorageEngine;
+import lms.storage.StorageEngines;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Headless export, for nightly jobs that must not start Swing:
+ * <pre>
+ * gradlew run --args="--export &lt;dir&gt; [--format csv|jsonl] [--gzip] [--storage sqlite|snapshot] [--db &lt;file or dir&gt;]"
+ * </pre>
+ */
+public final class ExportCommand {
+
+    private ExportCommand() {}
+
+    /** Runs the export described by {@code args}; returns a process exit code. */
+    public static int run(String[] args) {
+        Path dir = null;
+        Format format = Format.CSV;
+        boolean gzip = false;
+        String storage = StorageEngines.SQLITE;
+        String location = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--export" -> dir = Path.of(args[++i]);
+                    case "--format" -> format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    case "--gzip" -> gzip = true;
+                    case "--storage" -> storage = args[++i];
+                    case "--db" -> location = args[++i];
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Usage: --export <dir> [--format csv|jsonl] [--gzip] [--storage sqlite|snapshot] [--db <file or dir>]");
+            return 2;
+        }
+        if (dir == null) {
+            System.err.println("Missing --export <dir>");
+            return 2;
+        }
+
+        try (StorageEngine db = StorageEngines.open(storage, location)) {
+            ExportResult r = new LibraryExporter(db).export(dir, format, gzip);
+            System.out.printf(Locale.ROOT, "Exported %,d books, %,d borrowers, %,d loans to %s in %.1f s%n",
+                    r.books(), r.borrowers(), r.loans(), dir.toAbsolutePath(), r.elapsedNanos() / 1e9);
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Export failed: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package lms.io;
+
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+import lms.storage.StorageEngine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams every table straight from a {@link StorageEngine} (e.g. SQLite result sets)
+ * to files, one row at a time, so memory use is constant no matter how big the library is.
+ *
+ * <p>Writes {@code books}, {@code borrowers} and {@code loans} as {@code .csv} (with the
+ * same headers {@link CsvImporter} reads) or {@code .jsonl}, optionally gzipped. Each file
+ * is written under a temporary name and moved into place when complete, so a
+ * half-written export never replaces a good one.
+ */
+public class LibraryExporter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public enum Format {
+        CSV("csv"),
+        JSONL("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private final StorageEngine db;
+
+    public LibraryExporter(StorageEngine db) {
+        this.db = db;
+    }
+
+    public ExportResult export(Path dir, Format format, boolean gzip) throws IOException {
+        Files.createDirectories(dir);
+        long start = System.nanoTime();
+
+        long books = writeTable(dir, "books", format, gzip, db::streamBooks,
+                "id,title,author,pricePerDay,available", LibraryExporter::bookCsv, LibraryExporter::bookJson);
+        long borrowers = writeTable(dir, "borrowers", format, gzip, db::streamBorrowers,
+                "id,name,email", LibraryExporter::borrowerCsv, LibraryExporter::borrowerJson);
+        long loans = writeTable(dir, "loans", format, gzip, db::streamLoans,
+                "id,bookId,borrowerId,startDate,duration", LibraryExporter::loanCsv, LibraryExporter::loanJson);
+
+        return new ExportResult(books, borrowers, loans, System.nanoTime() - start);
+    }
+
+    private <T> long writeTable(Path dir, String name, Format format, boolean gzip, Supplier<Stream<T>> source,
+                                String csvHeader, RowWriter<T> csv, RowWriter<T> json) throws IOException {
+        String fileName = name + "." + format.extension + (gzip ? ".gz" : "");
+        Path target = dir.resolve(fileName);
+        Path tmp = dir.resolve(fileName + ".tmp");
+
+        long rows = 0;
+        try (Writer out = open(tmp, gzip);
+             Stream<T> stream = source.get()) {
+
+            if (format == Format.CSV) {
+                out.write(csvHeader);
+                out.write('\n');
+            }
+            RowWriter<T> writer = format == Format.CSV ? csv : json;
+
+            Iterator<T> it = stream.iterator();
+            while (it.hasNext()) {
+                writer.write(out, it.next());
+                out.write('\n');
+                rows++;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    private static Writer open(Path file, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        OutputStream out = Channels.newOutputStream(channel);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // --- CSV rows ---
+
+    private static void bookCsv(Writer out, Book b) throws IOException {
+        out.write(Integer.toString(b.getId()));
+        out.write(',');
+        csvField(out, b.getTitle());
+        out.write(',');
+        csvField(out, b.getAuthor());
+        out.write(',');
+        out.write(Double.toString(b.getPricePerDay()));
+        out.write(',');
+        out.write(b.isAvailable() ? "true" : "false");
+    }
+
+    private static void borrowerCsv(Writer out, Borrower b) throws IOException {
+        out.write(Integer.toString(b.getId()));
+        out.write(',');
+        csvField(out, b.getName());
+        out.write(',');
+        csvField(out, b.getEmail());
+    }
+
+    private static void loanCsv(Writer out, Loan l) throws IOException {
+        out.write(Integer.toString(l.getId()));
+        out.write(',');
+        out.write(Integer.toString(l.getBookId()));
+        out.write(',');
+        out.write(Integer.toString(l.getBorrowerId()));
+        out.write(',');
+        out.write(l.getStartDate().toString());
+        out.write(',');
+        out.write(Integer.toString(l.getDurationDays()));
+    }
+
+    private static void csvField(Writer out, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    // --- JSONL rows ---
+
+    private static void bookJson(Writer out, Book b) throws IOException {
+        out.write("{\"id\":" + b.getId() + ",\"title\":");
+        jsonString(out, b.getTitle());
+        out.write(",\"author\":");
+        jsonString(out, b.getAuthor());
+        out.write(",\"pricePerDay\":" + b.getPricePerDay() + ",\"available\":" + b.isAvailable() + "}");
+    }
+
+    private static void borrowerJson(Writer out, Borrower b) throws IOException {
+        out.write("{\"id\":" + b.getId() + ",\"name\":");
+        jsonString(out, b.getName());
+        out.write(",\"email\":");
+        jsonString(out, b.getEmail());
+        out.write('}');
+    }
+
+    private static void loanJson(Writer out, Loan l) throws IOException {
+        out.write("{\"id\":" + l.getId()
+                + ",\"bookId\":" + l.getBookId()
+                + ",\"borrowerId\":" + l.getBorrowerId()
+                + ",\"startDate\":\"" + l.getStartDate() + "\""
+                + ",\"duration\":" + l.getDurationDays() + "}");
+    }
+
+    private static void jsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) out.write(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    else out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+
+    @FunctionalInterface
+    private interface RowWriter<T> {
+        void write(Writer out, T row) throws IOException;
+    }
+
+    public record ExportResult(long books, long borrowers, long loans, long elapsedNanos) {
+        public long totalRows() {
+            return books + borrowers + loans;
+        }
+    }
+}
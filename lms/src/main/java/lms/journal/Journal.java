@@ -0,0 +1,599 @@
+package lms.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import lms.LibraryChange;
+import lms.LibraryListener;
+import lms.LibraryService;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+/**
+ * An append-only binary log of every {@link LibraryService} mutation, for durable
+ * writes that cost a sequential append instead of SQLite row updates, and for
+ * recovering the library on startup.
+ *
+ * <p>Each mutation (or atomic group, e.g. a checkout) becomes one frame: a length, a
+ * CRC-32C and compact operations from {@link JournalCodec}. A bulk load (Clear, a load
+ * from the database) is one frame too, clearing the tables it replaces and writing every
+ * loaded row, so recovery never puts older rows back under it. Frames are encoded on the
+ * mutating thread into an in-memory buffer; one writer thread appends whatever has
+ * accumulated and fsyncs it, so concurrent writers share a sync (group commit) and
+ * the sync rate adapts to the load. {@link #flush} waits until everything appended so
+ * far is on disk.
+ *
+ * <p>A failed write stops the journal for good: those frames can never be synced, and
+ * nothing after them may be acknowledged. From then on appends are dropped (counted in
+ * {@link Stats#droppedFrames()}), {@link #flush} throws, and the
+ * {@link #setFailureListener failure listener} is told once so the UI can warn.
+ *
+ * <p>The log is split into numbered segments ({@code journal-N.log}). A snapshot
+ * first switches appends to a new segment N, then writes the current tables to
+ * {@code snapshot-N.bin} and deletes everything older. The tables are read after the
+ * switch while writes continue, so the snapshot may already contain some of segment
+ * N's operations; since every operation writes a whole row or deletes by id,
+ * replaying them again is harmless. Recovery maps the newest snapshot and replays
+ * segments N and later, stopping at the first torn or corrupt frame.
+ */
+public final class Journal implements LibraryListener, AutoCloseable {
+
+    public static final long DEFAULT_SNAPSHOT_EVERY_FRAMES = 1_000_000;
+
+    private static final int SEGMENT_MAGIC = 0x4A534D4C; // "LMSJ"
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 16;
+    private static final int FRAME_HEADER_BYTES = 8;
+    // Appenders wait for the writer once this much is buffered
+    private static final int MAX_PENDING_BYTES = 32 << 20;
+
+    private final Path dir;
+    private final long snapshotEveryFrames;
+    private final Recovered recovered;
+
+    // Guards the append buffer and sequence numbers. Order: ioLock before appendLock.
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition appended = appendLock.newCondition();
+    private final Condition synced = appendLock.newCondition();
+    private JournalCodec.Output pending = new JournalCodec.Output(1 << 16);
+    private JournalCodec.Output writing = new JournalCodec.Output(1 << 16);
+    private long appendedSeq;
+    private long durableSeq;
+    private long framesInSegment;
+    private boolean reloaded;
+
+    // Guards the segment file
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private FileChannel segment;
+    private long segmentNumber;
+
+    private final CRC32C frameCrc = new CRC32C();
+    private final Thread writer;
+    private final Thread snapshotter;
+    private final Semaphore snapshotRequests = new Semaphore(0);
+    private volatile Source source;
+    private volatile boolean running = true;
+    private volatile String lastError;
+    private volatile IOException failure;
+    private volatile Consumer<IOException> failureListener = e -> {};
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long lastSyncNanos;
+    private volatile long lastSnapshotNanos;
+
+    private Journal(Path dir, long snapshotEveryFrames) throws IOException {
+        this.dir = dir;
+        this.snapshotEveryFrames = snapshotEveryFrames;
+        Files.createDirectories(dir);
+        this.recovered = recover();
+        openSegment(recovered.lastSegment() + 1);
+
+        this.writer = Thread.ofPlatform().name("lms-journal").daemon().start(this::runWriter);
+        this.snapshotter = Thread.ofPlatform().name("lms-journal-snapshot").daemon().start(this::runSnapshots);
+    }
+
+    /** Opens (or creates) the journal in {@code dir} and recovers what it holds; see {@link #recovered()}. */
+    public static Journal open(Path dir) {
+        return open(dir, DEFAULT_SNAPSHOT_EVERY_FRAMES);
+    }
+
+    /** @param snapshotEveryFrames take a snapshot after this many frames, keeping replay short */
+    public static Journal open(Path dir, long snapshotEveryFrames) {
+        try {
+            return new Journal(dir, snapshotEveryFrames);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed opening journal in " + dir, e);
+        }
+    }
+
+    /** The tables as of the last durable frame before this journal was opened. */
+    public Recovered recovered() {
+        return recovered;
+    }
+
+    /**
+     * Loads the recovered tables into {@code service} (if there were any) and starts
+     * journaling its mutations. Snapshots read the tables from {@code service}.
+     */
+    public void attach(LibraryService service) {
+        snapshotFrom(new ServiceSource(service));
+        if (!recovered.isEmpty()) service.replaceAll(recovered.books(), recovered.borrowers(), recovered.loans());
+        service.addListener(this);
+    }
+
+    /** Called once, on a journal thread, when a write fails and the journal stops logging. */
+    public void setFailureListener(Consumer<IOException> listener) {
+        this.failureListener = listener;
+    }
+
+    /** Where snapshots read the current tables from, for callers that append frames themselves. */
+    public void snapshotFrom(Source source) {
+        this.source = source;
+    }
+
+    // --- Appending (on the mutating thread, under the service's write lock) ---
+
+    @Override
+    public void libraryChanged(LibraryChange change) {
+        libraryChanged(List.of(change));
+    }
+
+    @Override
+    public void libraryChanged(List<LibraryChange> changes) {
+        boolean snapshotDue = false;
+        appendLock.lock();
+        try {
+            while (pending.buf.position() >= MAX_PENDING_BYTES && running && failure == null) {
+                synced.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                // Nothing will write it, so buffering it would only grow without bound
+                dropped.incrementAndGet();
+                return;
+            }
+            int start = pending.buf.position();
+            pending.ensure(FRAME_HEADER_BYTES);
+            pending.buf.position(start + FRAME_HEADER_BYTES);
+            for (LibraryChange c : changes) {
+                if (c.kind() == LibraryChange.Kind.RELOADED) {
+                    // Journaled in full, then folded into a snapshot so replay stays short
+                    reloaded = true;
+                    snapshotDue = true;
+                }
+                JournalCodec.encode(pending, c);
+            }
+            int payload = pending.buf.position() - start - FRAME_HEADER_BYTES;
+            if (payload == 0) {
+                pending.buf.position(start);
+            } else {
+                frameCrc.reset();
+                frameCrc.update(pending.buf.array(), start + FRAME_HEADER_BYTES, payload);
+                pending.buf.putInt(start, payload).putInt(start + 4, (int) frameCrc.getValue());
+                appendedSeq++;
+            }
+            appended.signal();
+        } finally {
+            appendLock.unlock();
+        }
+        if (snapshotDue) snapshotRequests.release();
+    }
+
+    /**
+     * Waits until every frame appended so far is on disk; false if that took longer than
+     * {@code timeout}. Throws if a write failed, since those frames will never be synced.
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        appendLock.lock();
+        try {
+            // Also when nothing is pending: appends made since the failure were dropped
+            if (failure != null) throw new UncheckedIOException("Journal write failed", failure);
+            long target = appendedSeq;
+            appended.signal();
+            while (durableSeq < target) {
+                if (failure != null) throw new UncheckedIOException("Journal write failed", failure);
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                synced.awaitNanos(left);
+            }
+            return true;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        while (running && failure == null) {
+            // Wait without holding ioLock, so a snapshot can rotate an idle journal
+            appendLock.lock();
+            try {
+                while (pending.buf.position() == 0 && running) {
+                    appended.awaitUninterruptibly();
+                }
+            } finally {
+                appendLock.unlock();
+            }
+
+            ioLock.lock();
+            try {
+                long batchSeq;
+                appendLock.lock();
+                try {
+                    // Everything buffered so far goes out in one write and one sync
+                    JournalCodec.Output full = pending;
+                    pending = writing;
+                    writing = full;
+                    batchSeq = appendedSeq;
+                } finally {
+                    appendLock.unlock();
+                }
+                writeAndSync(writing, batchSeq);
+            } catch (IOException e) {
+                // Those frames never become durable, and nothing after them may be acknowledged
+                fail(e);
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        appendLock.lock();
+        try {
+            if (failure != null) return;
+            failure = e;
+            lastError = e.getMessage();
+            pending.buf.clear();
+            synced.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        failureListener.accept(e);
+    }
+
+    // Called with ioLock held
+    private void writeAndSync(JournalCodec.Output out, long batchSeq) throws IOException {
+        ByteBuffer buf = out.buf.flip();
+        if (buf.hasRemaining()) {
+            long start = System.nanoTime();
+            int size = buf.remaining();
+            while (buf.hasRemaining()) segment.write(buf);
+            segment.force(false);
+            lastSyncNanos = System.nanoTime() - start;
+            syncs.incrementAndGet();
+            bytes.addAndGet(size);
+        }
+        buf.clear();
+
+        boolean snapshotDue;
+        appendLock.lock();
+        try {
+            frames.addAndGet(batchSeq - durableSeq);
+            framesInSegment += batchSeq - durableSeq;
+            durableSeq = batchSeq;
+            synced.signalAll();
+            snapshotDue = framesInSegment >= snapshotEveryFrames;
+        } finally {
+            appendLock.unlock();
+        }
+        if (snapshotDue) snapshotRequests.release();
+    }
+
+    // --- Snapshots ---
+
+    private void runSnapshots() {
+        while (running) {
+            try {
+                snapshotRequests.acquire();
+                snapshotRequests.drainPermits();
+                if (running && source != null) snapshot();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                lastError = "snapshot failed: " + e.getMessage();
+            }
+        }
+    }
+
+    /**
+     * Writes the attached tables as a snapshot and deletes the journal segments (and
+     * snapshots) it makes redundant. Appends continue meanwhile.
+     */
+    public void snapshot() throws IOException {
+        Source source = this.source;
+        if (source == null) throw new IllegalStateException("Journal has no snapshot source");
+        if (failure != null) throw failure;
+
+        long start = System.nanoTime();
+        long number = rotate();
+        SnapshotFile.write(snapshotPath(number), number, source.books(), source.borrowers(), source.loans());
+        deleteOlderThan(number);
+        snapshots.incrementAndGet();
+        lastSnapshotNanos = System.nanoTime() - start;
+    }
+
+    /** Syncs the current segment, starts the next one and returns its number. */
+    private long rotate() throws IOException {
+        ioLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                if (failure != null) throw failure;
+                // What is buffered belongs to the old segment
+                writeAndSyncLocked();
+                segment.close();
+                openSegment(segmentNumber + 1);
+                framesInSegment = 0;
+                reloaded = false;
+                return segmentNumber;
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            } finally {
+                appendLock.unlock();
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    // Called with both locks held
+    private void writeAndSyncLocked() throws IOException {
+        ByteBuffer buf = pending.buf.flip();
+        bytes.addAndGet(buf.remaining());
+        while (buf.hasRemaining()) segment.write(buf);
+        buf.clear();
+        segment.force(false);
+        syncs.incrementAndGet();
+        frames.addAndGet(appendedSeq - durableSeq);
+        durableSeq = appendedSeq;
+        synced.signalAll();
+    }
+
+    private void openSegment(long number) throws IOException {
+        Path file = segmentPath(number);
+        segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION).putLong(number);
+        header.flip();
+        while (header.hasRemaining()) segment.write(header);
+        segment.force(true);
+        segmentNumber = number;
+    }
+
+    private void deleteOlderThan(long number) throws IOException {
+        for (long n : numbered("journal-", ".log")) {
+            if (n < number) Files.deleteIfExists(segmentPath(n));
+        }
+        for (long n : numbered("snapshot-", ".bin")) {
+            if (n < number) Files.deleteIfExists(snapshotPath(n));
+        }
+    }
+
+    // --- Recovery ---
+
+    private Recovered recover() throws IOException {
+        long start = System.nanoTime();
+        JournalCodec.State state = new JournalCodec.State();
+
+        // Newest snapshot that reads back intact; older ones are kept until a newer one is written
+        long from = 0;
+        List<Long> snapshotNumbers = numbered("snapshot-", ".bin");
+        for (int i = snapshotNumbers.size() - 1; i >= 0; i--) {
+            try {
+                from = SnapshotFile.read(snapshotPath(snapshotNumbers.get(i)), state);
+                break;
+            } catch (IOException | RuntimeException e) {
+                state = new JournalCodec.State();
+                lastError = "skipped snapshot: " + e.getMessage();
+            }
+        }
+
+        long replayedFrames = 0;
+        long replayedOps = 0;
+        List<Long> segments = numbered("journal-", ".log");
+        long last = segments.isEmpty() ? from : Math.max(from, segments.getLast());
+        for (long n : segments) {
+            if (n < from) continue;
+            long[] counts = replay(segmentPath(n), state);
+            replayedFrames += counts[0];
+            replayedOps += counts[1];
+        }
+        return new Recovered(state.bookList(), state.borrowerList(), state.loanList(),
+                from, replayedFrames, replayedOps, last, System.nanoTime() - start);
+    }
+
+    /** Replays one segment; returns {frames, operations}. A torn tail is cut off. */
+    private static long[] replay(Path file, JournalCodec.State state) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            if (size < SEGMENT_HEADER_BYTES) {
+                ch.truncate(0);
+                return new long[] {0, 0};
+            }
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != SEGMENT_MAGIC || map.getInt(4) != SEGMENT_VERSION) {
+                throw new IOException("Not a journal segment: " + file);
+            }
+
+            CRC32C crc = new CRC32C();
+            long frameCount = 0;
+            long ops = 0;
+            int pos = SEGMENT_HEADER_BYTES;
+            while (pos + FRAME_HEADER_BYTES <= size) {
+                int length = map.getInt(pos);
+                int expectedCrc = map.getInt(pos + 4);
+                if (length <= 0 || pos + FRAME_HEADER_BYTES + (long) length > size) break;
+
+                ByteBuffer payload = map.slice(pos + FRAME_HEADER_BYTES, length).order(ByteOrder.LITTLE_ENDIAN);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != expectedCrc) break;
+
+                ops += JournalCodec.decode(payload, state);
+                frameCount++;
+                pos += FRAME_HEADER_BYTES + length;
+            }
+            // Anything after the last good frame was never acknowledged as durable
+            if (pos < size) ch.truncate(pos);
+            return new long[] {frameCount, ops};
+        }
+    }
+
+    private List<Long> numbered(String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*" + suffix)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format(Locale.ROOT, "journal-%016d.log", number));
+    }
+
+    private Path snapshotPath(long number) {
+        return dir.resolve(String.format(Locale.ROOT, "snapshot-%016d.bin", number));
+    }
+
+    // --- Lifecycle ---
+
+    public Stats stats() {
+        return new Stats(frames.get(), syncs.get(), bytes.get(), lastSyncNanos / 1e6,
+                snapshots.get(), lastSnapshotNanos / 1e6, dropped.get(), lastError);
+    }
+
+    /** Syncs what is buffered, snapshots if anything was journaled since the last one, and stops. */
+    @Override
+    public void close() {
+        try {
+            flush(10, TimeUnit.SECONDS);
+            boolean dirty;
+            appendLock.lock();
+            try {
+                dirty = framesInSegment > 0 || reloaded;
+            } finally {
+                appendLock.unlock();
+            }
+            if (dirty && source != null && failure == null) snapshot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            lastError = "snapshot failed: " + e.getMessage();
+        } catch (UncheckedIOException e) {
+            // The journal already failed; lastError says why
+        } finally {
+            running = false;
+            snapshotter.interrupt();
+            appendLock.lock();
+            try {
+                appended.signalAll();
+                synced.signalAll();
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+                segment.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                lastError = e.getMessage();
+            }
+        }
+    }
+
+    /**
+     * The current tables, read by a snapshot. They may already include frames appended
+     * after the snapshot started; see the class comment.
+     */
+    public interface Source {
+        List<Book> books();
+        List<Borrower> borrowers();
+        List<Loan> loans();
+    }
+
+    private record ServiceSource(LibraryService service) implements Source {
+        @Override public List<Book> books() { return service.getBooks(); }
+        @Override public List<Borrower> borrowers() { return service.getBorrowers(); }
+        @Override public List<Loan> loans() { return service.getLoans(); }
+    }
+
+    /**
+     * What {@link #open} found: the tables, the snapshot it started from (0 if none),
+     * and how much journal it replayed on top.
+     */
+    public record Recovered(
+            List<Book> books,
+            List<Borrower> borrowers,
+            List<Loan> loans,
+            long snapshotSegment,
+            long replayedFrames,
+            long replayedOperations,
+            long lastSegment,
+            long elapsedNanos
+    ) {
+        public boolean isEmpty() {
+            return books.isEmpty() && borrowers.isEmpty() && loans.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%,d books, %,d borrowers, %,d loans from snapshot %d + %,d frames (%,d operations) in %.0f ms",
+                    books.size(), borrowers.size(), loans.size(), snapshotSegment,
+                    replayedFrames, replayedOperations, elapsedNanos / 1e6);
+        }
+    }
+
+    public record Stats(
+            long frames,
+            long syncs,
+            long bytes,
+            double lastSyncMillis,
+            long snapshots,
+            double lastSnapshotMillis,
+            long droppedFrames,
+            String lastError
+    ) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "frames=%d, syncs=%d (%.1f frames/sync), bytes=%d, last sync=%.1f ms, snapshots=%d, last snapshot=%.0f ms%s%s",
+                    frames, syncs, syncs == 0 ? 0.0 : (double) frames / syncs, bytes, lastSyncMillis,
+                    snapshots, lastSnapshotMillis, droppedFrames == 0 ? "" : ", dropped=" + droppedFrames,
+                    lastError == null ? "" : ", last error=" + lastError);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package lms.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lms.LibraryChange;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+/**
+ * The binary form of journal operations, shared by journal frames and snapshots.
+ *
+ * <p>Every operation is absolute: it writes a whole row or deletes one by id. Replaying
+ * an operation the state already reflects therefore changes nothing, which is what
+ * lets a snapshot be taken while writes continue (see {@link Journal}). A bulk load that
+ * replaces a table is a CLEAR of it followed by a PUT per row, in one frame.
+ */
+final class JournalCodec {
+
+    static final byte PUT_BOOK = 1;
+    static final byte PUT_BORROWER = 2;
+    static final byte PUT_LOAN = 3;
+    static final byte DELETE_BOOK = 4;
+    static final byte DELETE_BORROWER = 5;
+    static final byte DELETE_LOAN = 6;
+    static final byte CLEAR_BOOKS = 7;
+    static final byte CLEAR_BORROWERS = 8;
+    static final byte CLEAR_LOANS = 9;
+
+    private JournalCodec() {}
+
+    /** A growable little-endian buffer that operations are encoded into. */
+    static final class Output {
+        ByteBuffer buf;
+
+        Output(int capacity) {
+            buf = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void ensure(int bytes) {
+            if (buf.remaining() >= bytes) return;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + bytes))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+
+        void putString(String s) {
+            if (s == null) {
+                ensure(4);
+                buf.putInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            buf.putInt(bytes.length);
+            buf.put(bytes);
+        }
+    }
+
+    static void encode(Output out, LibraryChange change) {
+        switch (change.kind()) {
+            case INSERTED, UPDATED -> {
+                switch (change.value()) {
+                    case Book b -> putBook(out, b);
+                    case Borrower b -> putBorrower(out, b);
+                    case Loan l -> putLoan(out, l);
+                    default -> throw new IllegalArgumentException("Cannot journal " + change.value());
+                }
+            }
+            case DELETED -> {
+                out.ensure(5);
+                out.buf.put(switch (change.entity()) {
+                    case BOOK -> DELETE_BOOK;
+                    case BORROWER -> DELETE_BORROWER;
+                    case LOAN -> DELETE_LOAN;
+                });
+                out.buf.putInt(change.id());
+            }
+            case RELOADED -> {
+                LibraryChange.Loaded loaded = (LibraryChange.Loaded) change.value();
+                if (loaded.ids().length == change.row()) {
+                    out.ensure(1);
+                    out.buf.put(switch (change.entity()) {
+                        case BOOK -> CLEAR_BOOKS;
+                        case BORROWER -> CLEAR_BORROWERS;
+                        case LOAN -> CLEAR_LOANS;
+                    });
+                }
+                // In the order given, so a repeated id ends as the service kept it: last one wins
+                for (Object row : loaded.rows()) {
+                    switch (row) {
+                        case Book b -> putBook(out, b);
+                        case Borrower b -> putBorrower(out, b);
+                        case Loan l -> putLoan(out, l);
+                        default -> throw new IllegalArgumentException("Cannot journal " + row);
+                    }
+                }
+            }
+        }
+    }
+
+    static void putBook(Output out, Book b) {
+        out.ensure(14);
+        out.buf.put(PUT_BOOK).putInt(b.getId()).putDouble(b.getPricePerDay()).put((byte) (b.isAvailable() ? 1 : 0));
+        out.putString(b.getTitle());
+        out.putString(b.getAuthor());
+    }
+
+    static void putBorrower(Output out, Borrower b) {
+        out.ensure(5);
+        out.buf.put(PUT_BORROWER).putInt(b.getId());
+        out.putString(b.getName());
+        out.putString(b.getEmail());
+    }
+
+    static void putLoan(Output out, Loan l) {
+        out.ensure(21);
+        out.buf.put(PUT_LOAN).putInt(l.getId()).putInt(l.getBookId()).putInt(l.getBorrowerId())
+                .putInt(l.getStartEpochDay()).putInt(l.getDurationDays());
+    }
+
+    /** Applies every operation between {@code in}'s position and limit; returns how many. */
+    static int decode(ByteBuffer in, State state) {
+        int ops = 0;
+        while (in.hasRemaining()) {
+            byte op = in.get();
+            switch (op) {
+                case PUT_BOOK -> {
+                    int id = in.getInt();
+                    double price = in.getDouble();
+                    boolean available = in.get() != 0;
+                    state.books.put(id, new Book(id, getString(in), getString(in), price, available));
+                }
+                case PUT_BORROWER -> {
+                    int id = in.getInt();
+                    state.borrowers.put(id, new Borrower(id, getString(in), getString(in)));
+                }
+                case PUT_LOAN -> {
+                    int id = in.getInt();
+                    state.loans.put(id, new Loan(id, in.getInt(), in.getInt(), in.getInt(), in.getInt()));
+                }
+                case DELETE_BOOK -> state.books.remove(in.getInt());
+                case DELETE_BORROWER -> state.borrowers.remove(in.getInt());
+                case DELETE_LOAN -> state.loans.remove(in.getInt());
+                case CLEAR_BOOKS -> state.books.clear();
+                case CLEAR_BORROWERS -> state.borrowers.clear();
+                case CLEAR_LOANS -> state.loans.clear();
+                default -> throw new IllegalStateException("Unknown journal operation " + op);
+            }
+            ops++;
+        }
+        return ops;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return s;
+    }
+
+    /** The tables being rebuilt, by id in first-inserted order. */
+    static final class State {
+        final Map<Integer, Book> books = new LinkedHashMap<>();
+        final Map<Integer, Borrower> borrowers = new LinkedHashMap<>();
+        final Map<Integer, Loan> loans = new LinkedHashMap<>();
+
+        List<Book> bookList() { return List.copyOf(books.values()); }
+        List<Borrower> borrowerList() { return List.copyOf(borrowers.values()); }
+        List<Loan> loanList() { return List.copyOf(loans.values()); }
+    }
+}
@@ -0,0 +1,102 @@
+package lms.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+/**
+ * A full copy of the three tables as PUT operations, with a header that names the
+ * journal segment it was taken at and a CRC-32C of the payload. Written to a temporary
+ * file, synced and renamed into place, so a crash leaves either the old snapshot or the
+ * complete new one. Read back through a memory mapping.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x53534D4C; // "LMSS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private SnapshotFile() {}
+
+    static void write(Path file, long segment, List<Book> books, List<Borrower> borrowers, List<Loan> loans)
+            throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        long payloadBytes = 0;
+
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.position(HEADER_BYTES);
+            JournalCodec.Output out = new JournalCodec.Output(CHUNK_BYTES + 4096);
+            for (Book b : books) {
+                JournalCodec.putBook(out, b);
+                if (out.buf.position() >= CHUNK_BYTES) payloadBytes += writeChunk(ch, out, crc);
+            }
+            for (Borrower b : borrowers) {
+                JournalCodec.putBorrower(out, b);
+                if (out.buf.position() >= CHUNK_BYTES) payloadBytes += writeChunk(ch, out, crc);
+            }
+            for (Loan l : loans) {
+                JournalCodec.putLoan(out, l);
+                if (out.buf.position() >= CHUNK_BYTES) payloadBytes += writeChunk(ch, out, crc);
+            }
+            payloadBytes += writeChunk(ch, out, crc);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC).putInt(VERSION).putLong(segment)
+                    .putInt(books.size()).putInt(borrowers.size()).putInt(loans.size())
+                    .putLong(payloadBytes).putInt((int) crc.getValue());
+            header.flip();
+            ch.write(header, 0);
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static int writeChunk(FileChannel ch, JournalCodec.Output out, CRC32C crc) throws IOException {
+        ByteBuffer buf = out.buf.flip();
+        int bytes = buf.remaining();
+        crc.update(buf.duplicate());
+        while (buf.hasRemaining()) ch.write(buf);
+        buf.clear();
+        return bytes;
+    }
+
+    /**
+     * Loads the snapshot into {@code state} and returns the segment it was taken at.
+     * Throws {@link IOException} if the file is torn or was written by another version.
+     */
+    static long read(Path file, JournalCodec.State state) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) throw new IOException("Snapshot too short: " + file);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) throw new IOException("Not a snapshot: " + file);
+            long segment = map.getLong(8);
+            long payloadBytes = map.getLong(28);
+            int expectedCrc = map.getInt(36);
+            if (HEADER_BYTES + payloadBytes != ch.size()) throw new IOException("Snapshot is torn: " + file);
+
+            ByteBuffer payload = map.slice(HEADER_BYTES, (int) payloadBytes).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != expectedCrc) throw new IOException("Snapshot checksum mismatch: " + file);
+
+            JournalCodec.decode(payload, state);
+            return segment;
+        }
+    }
+}
@@ -6,7 +6,7 @@ public class Book {
     private String title;
     private String author;
     private double pricePerDay;
-    private boolean available;
+    private volatile boolean available; // flipped under the LibraryService write lock, read without it
 
     public Book() {
         this(0, "", "", 0.0, true);
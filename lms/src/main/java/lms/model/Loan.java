@@ -12,14 +12,19 @@ public class Loan {
     private final int id;
     private final int bookId;
     private final int borrowerId;
-    private final LocalDate startDate;
+    // Days since 1970-01-01; the LocalDate is only built when something asks for it
+    private final int startEpochDay;
     private final int durationDays;
 
     public Loan(int id, int bookId, int borrowerId, LocalDate startDate, int durationDays) {
+        this(id, bookId, borrowerId, Math.toIntExact(startDate.toEpochDay()), durationDays);
+    }
+
+    public Loan(int id, int bookId, int borrowerId, int startEpochDay, int durationDays) {
         this.id = id;
         this.bookId = bookId;
         this.borrowerId = borrowerId;
-        this.startDate = startDate;
+        this.startEpochDay = startEpochDay;
         this.durationDays = durationDays;
     }
 
@@ -36,7 +41,15 @@ public class Loan {
     }
 
     public LocalDate getStartDate() {
-        return startDate;
+        return LocalDate.ofEpochDay(startEpochDay);
+    }
+
+    public int getStartEpochDay() {
+        return startEpochDay;
+    }
+
+    public int getDueEpochDay() {
+        return startEpochDay + durationDays;
     }
 
     public int getDurationDays() {
@@ -44,7 +57,38 @@ public class Loan {
     }
 
     public String getStartDateUi() {
-        return UI_DATE_FORMAT.format(startDate);
+        return formatUiDate(startEpochDay);
+    }
+
+    /**
+     * {@code epochDay} in {@link #UI_DATE_FORMAT}, computed from the day number without
+     * building a LocalDate or going through the formatter, for bulk paths such as indexing.
+     */
+    public static String formatUiDate(int epochDay) {
+        // Civil-from-days over 400-year eras, with the year starting on 1 March
+        int z = epochDay + 719_468;
+        int era = Math.floorDiv(z, 146_097);
+        int doe = z - era * 146_097;
+        int yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) return UI_DATE_FORMAT.format(LocalDate.ofEpochDay(epochDay));
+
+        char[] c = new char[10];
+        c[0] = (char) ('0' + day / 10);
+        c[1] = (char) ('0' + day % 10);
+        c[2] = '-';
+        c[3] = (char) ('0' + month / 10);
+        c[4] = (char) ('0' + month % 10);
+        c[5] = '-';
+        c[6] = (char) ('0' + year / 1000);
+        c[7] = (char) ('0' + year / 100 % 10);
+        c[8] = (char) ('0' + year / 10 % 10);
+        c[9] = (char) ('0' + year % 10);
+        return new String(c);
     }
 
     @Override
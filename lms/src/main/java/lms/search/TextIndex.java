@@ -0,0 +1,270 @@
+package lms.search;
+
+import lms.util.IntIntHashMap;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Case-insensitive search-as-you-type index over a few text fields per entity id.
+ *
+ * <p>Queries of three or more characters match anywhere in a field (substring), using
+ * a trigram index: the query's rarest trigram picks the candidates, which are then
+ * checked against the stored text. One- and two-character queries match the start of
+ * a word, using word-prefix keys. So a query costs time in proportion to its rarest
+ * gram's posting list, not the number of rows.
+ *
+ * <p>Updates are incremental. Replacing or removing an entity leaves its old postings
+ * in place (the text check filters them out); the postings are rebuilt once stale
+ * entries outnumber live ones. Not thread-safe.
+ */
+public final class TextIndex {
+
+    private static final char FIELD_SEPARATOR = '\n'; // cannot be typed into a search field
+    private static final int MISSING = -1;
+    private static final int MIN_COMPACT_SLOTS = 1024;
+
+    // Each put gets a new slot; texts[slot] is null once the entity is replaced or removed
+    private String[] texts = new String[1024];
+    private int[] ids = new int[1024];
+    private int slots;
+    private final IntIntHashMap slotById = new IntIntHashMap();
+
+    // Open-addressing map from gram key to posting list: keys[i] == 0 marks a free slot
+    private long[] keys = new long[1 << 12];
+    private int[][] postingSlots = new int[keys.length][];
+    private int[] postingSizes = new int[keys.length];
+    private int grams;
+
+    private long[] gramBuffer = new long[64];
+
+    public int size() {
+        return slotById.size();
+    }
+
+    /** Indexes (or re-indexes) {@code id} with the given field values. */
+    public void put(int id, String... fields) {
+        removeText(id);
+
+        StringBuilder sb = new StringBuilder();
+        for (String f : fields) {
+            if (!sb.isEmpty()) sb.append(FIELD_SEPARATOR);
+            sb.append(f == null ? "" : f.toLowerCase(Locale.ROOT));
+        }
+
+        if (slots == texts.length) {
+            texts = Arrays.copyOf(texts, slots * 2);
+            ids = Arrays.copyOf(ids, slots * 2);
+        }
+        int slot = slots++;
+        texts[slot] = sb.toString();
+        ids[slot] = id;
+        slotById.put(id, slot);
+        addPostings(slot, texts[slot]);
+        compactIfStale();
+    }
+
+    public void remove(int id) {
+        removeText(id);
+        compactIfStale();
+    }
+
+    public void clear() {
+        Arrays.fill(texts, 0, slots, null);
+        slots = 0;
+        slotById.clear();
+        clearPostings();
+    }
+
+    /** Whether {@code id}'s fields match {@code query}; the same rule as {@link #search}, for one id. */
+    public boolean matches(int id, String query) {
+        String q = normalize(query);
+        int slot = slotById.get(id, MISSING);
+        return q != null && slot != MISSING && matchesText(texts[slot], q);
+    }
+
+    /** Ids whose fields match {@code query} (see class comment), in no particular order. */
+    public int[] search(String query) {
+        String q = normalize(query);
+        if (q == null) return new int[0];
+
+        int candidates;
+        if (q.length() < 3) {
+            candidates = find(prefixKey(q, 0, q.length()));
+        } else {
+            candidates = -1;
+            for (int i = 0; i + 3 <= q.length(); i++) {
+                int p = find(trigramKey(q, i));
+                if (p < 0) return new int[0];
+                if (candidates < 0 || postingSizes[p] < postingSizes[candidates]) candidates = p;
+            }
+        }
+        if (candidates < 0) return new int[0];
+
+        int size = postingSizes[candidates];
+        int[] cs = postingSlots[candidates];
+        int[] result = new int[Math.min(size, 16)];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            String text = texts[cs[i]];
+            if (text != null && matchesText(text, q)) {
+                if (n == result.length) result = Arrays.copyOf(result, n * 2);
+                result[n++] = ids[cs[i]];
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // Lowercased query, or null if it cannot match anything
+    private static String normalize(String query) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        return q.isEmpty() || q.indexOf(FIELD_SEPARATOR) >= 0 ? null : q;
+    }
+
+    private static boolean matchesText(String text, String q) {
+        return q.length() < 3 ? hasWordStartingWith(text, q) : text.contains(q);
+    }
+
+    // --- Postings ---
+
+    private void removeText(int id) {
+        int slot = slotById.remove(id, MISSING);
+        if (slot != MISSING) texts[slot] = null;
+    }
+
+    private void addPostings(int slot, String text) {
+        // Each text yields at most three grams per character
+        if (gramBuffer.length < text.length() * 3) gramBuffer = new long[text.length() * 3];
+        long[] buf = gramBuffer;
+        int n = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (isWordStart(text, i)) {
+                buf[n++] = prefixKey(text, i, 1);
+                if (i + 1 < text.length() && text.charAt(i + 1) != FIELD_SEPARATOR) {
+                    buf[n++] = prefixKey(text, i, 2);
+                }
+            }
+            if (i + 3 <= text.length() && text.charAt(i) != FIELD_SEPARATOR
+                    && text.charAt(i + 1) != FIELD_SEPARATOR && text.charAt(i + 2) != FIELD_SEPARATOR) {
+                buf[n++] = trigramKey(text, i);
+            }
+        }
+
+        // A slot is appended once per distinct gram, even if the gram repeats in the text
+        Arrays.sort(buf, 0, n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && buf[i] == buf[i - 1]) continue;
+            int p = findOrInsert(buf[i]);
+            int[] ps = postingSlots[p];
+            if (postingSizes[p] == ps.length) postingSlots[p] = ps = Arrays.copyOf(ps, ps.length * 2);
+            ps[postingSizes[p]++] = slot;
+        }
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+            if (keys[i] == 0) return -1;
+        }
+    }
+
+    private int findOrInsert(long key) {
+        if ((grams + 1) * 2 > keys.length) rehash(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        postingSlots[i] = new int[2];
+        grams++;
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[][] oldSlots = postingSlots;
+        int[] oldSizes = postingSizes;
+        keys = new long[capacity];
+        postingSlots = new int[capacity][];
+        postingSizes = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == 0) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            postingSlots[i] = oldSlots[j];
+            postingSizes[i] = oldSizes[j];
+        }
+    }
+
+    private void clearPostings() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(postingSlots, null);
+        Arrays.fill(postingSizes, 0);
+        grams = 0;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void compactIfStale() {
+        int stale = slots - slotById.size();
+        if (stale > Math.max(MIN_COMPACT_SLOTS, slotById.size())) compact();
+    }
+
+    /** Drops stale slots and rebuilds every posting list from the live texts. */
+    private void compact() {
+        String[] liveTexts = new String[Math.max(1024, slotById.size() * 2)];
+        int[] liveIds = new int[liveTexts.length];
+        int n = 0;
+        for (int s = 0; s < slots; s++) {
+            if (texts[s] != null) {
+                liveTexts[n] = texts[s];
+                liveIds[n++] = ids[s];
+            }
+        }
+
+        texts = liveTexts;
+        ids = liveIds;
+        slots = n;
+        slotById.clear();
+        clearPostings();
+        for (int s = 0; s < n; s++) {
+            slotById.put(ids[s], s);
+            addPostings(s, texts[s]);
+        }
+    }
+
+    private static boolean isWordStart(String text, int i) {
+        char c = text.charAt(i);
+        if (c == FIELD_SEPARATOR || !Character.isLetterOrDigit(c)) return false;
+        return i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+    }
+
+    private static boolean hasWordStartingWith(String text, String prefix) {
+        for (int i = text.indexOf(prefix); i >= 0; i = text.indexOf(prefix, i + 1)) {
+            if (isWordStart(text, i)) return true;
+        }
+        return false;
+    }
+
+    // Grams pack up to three chars into the low 48 bits, tagged with their length above
+    // them, so no key is 0 and 0 can mark a free slot in the key table.
+    private static long trigramKey(String s, int i) {
+        return (3L << 48) | ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static long prefixKey(String s, int start, int length) {
+        long key = (long) length << 48;
+        for (int i = 0; i < length; i++) {
+            key |= (long) s.charAt(start + i) << (16 * (length - 1 - i));
+        }
+        return key;
+    }
+}
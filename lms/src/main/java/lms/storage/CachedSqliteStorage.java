@@ -0,0 +1,262 @@
+package lms.storage;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lms.ChangeSet;
+import lms.LibraryDB;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+/**
+ * SQLite with a {@link MappedSnapshot} in front of it for loading. A load whose
+ * snapshot matches the database's current {@link LibraryDB#generation() generation}
+ * maps the file instead of reading and converting every row, so it costs milliseconds
+ * at any size. Otherwise (first run, a write from another process, a damaged file) it
+ * loads from SQLite and writes a snapshot of what it read.
+ *
+ * <p>Saves go to SQLite as before. They are also remembered, and on {@link #close}
+ * they are applied to the last snapshot to write a current one, so the next start
+ * maps it even though this session saved. That is skipped if anyone else wrote to
+ * the database meanwhile; the next load then falls back to SQLite.
+ *
+ * <p>Snapshots are named by generation ({@code snapshot-N.bin} in the snapshot
+ * directory). A new one never replaces a file that may still be mapped.
+ */
+public class CachedSqliteStorage implements StorageEngine {
+
+    private final LibraryDB db;
+    private final Path dir;
+
+    // What close() needs to write a current snapshot; guarded by writeLock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private MappedSnapshot base;
+    private long expectedGeneration;
+    private final List<Consumer<InMemoryStorage>> writesSinceBase = new ArrayList<>();
+    private boolean foreignWrites;
+
+    private volatile String lastLoad = "none";
+    private volatile String lastError;
+
+    public CachedSqliteStorage(LibraryDB db, Path dir) {
+        this.db = db;
+        this.dir = dir;
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed creating snapshot directory " + dir, e);
+        }
+        this.expectedGeneration = db.generation();
+        this.base = tryOpen(expectedGeneration);
+    }
+
+    /** The database behind the snapshot, for the SQL-only paths (paging, full-text search). */
+    public LibraryDB database() {
+        return db;
+    }
+
+    /** Where the last load came from and how long it took, for the UI. */
+    public String lastLoad() {
+        return lastLoad;
+    }
+
+    /** Why the last snapshot could not be used or written, or null. */
+    public String lastError() {
+        return lastError;
+    }
+
+    @Override
+    public LoadedData loadAll(ProgressListener listener) {
+        long start = System.nanoTime();
+        long generation = db.generation();
+
+        MappedSnapshot snapshot = tryOpen(generation);
+        if (snapshot != null) {
+            rebase(snapshot, generation);
+            listener.progress(snapshot.rowCount(), snapshot.rowCount());
+            lastLoad = String.format(Locale.ROOT, "snapshot %d, %,d rows mapped in %.1f ms",
+                    generation, snapshot.rowCount(), (System.nanoTime() - start) / 1e6);
+            return snapshot.data();
+        }
+
+        LoadedData data = db.loadAll(listener);
+        long loadNanos = System.nanoTime() - start;
+        // Written before the rows are handed out, since the service changes them in place
+        boolean written = generation == db.generation() && write(generation, data);
+        lastLoad = String.format(Locale.ROOT, "SQLite, %,d rows in %.1f ms%s", data.rowCount(), loadNanos / 1e6,
+                written ? "; wrote snapshot " + generation : "");
+        return data;
+    }
+
+    @Override public Stream<Book> streamBooks() { return db.streamBooks(); }
+    @Override public Stream<Borrower> streamBorrowers() { return db.streamBorrowers(); }
+    @Override public Stream<Loan> streamLoans() { return db.streamLoans(); }
+
+    @Override public Optional<Book> findBook(int id) { return db.findBook(id); }
+    @Override public Optional<Borrower> findBorrower(int id) { return db.findBorrower(id); }
+    @Override public Optional<Loan> findLoan(int id) { return db.findLoan(id); }
+
+    @Override
+    public void saveChanges(ChangeSet changes, ProgressListener listener) {
+        if (changes.isEmpty()) return;
+
+        // Copied now: the service keeps changing its own instances
+        List<Integer> deletedLoans = List.copyOf(changes.deletedLoanIds());
+        List<Integer> deletedBorrowers = List.copyOf(changes.deletedBorrowerIds());
+        List<Integer> deletedBooks = List.copyOf(changes.deletedBookIds());
+        List<Book> books = changes.upsertedBooks().stream().map(InMemoryStorage::copy).toList();
+        List<Borrower> borrowers = changes.upsertedBorrowers().stream().map(InMemoryStorage::copy).toList();
+        List<Loan> loans = List.copyOf(changes.upsertedLoans());
+
+        writeLock.lock();
+        try {
+            db.saveChanges(changes, listener);
+            wrote(m -> m.apply(deletedLoans, deletedBorrowers, deletedBooks, books, borrowers, loans));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean[] insertNewBooks(List<Book> rows) {
+        List<Book> copies = rows.stream().map(InMemoryStorage::copy).toList();
+        writeLock.lock();
+        try {
+            boolean[] inserted = db.insertNewBooks(rows);
+            wrote(m -> m.insertNewBooks(copies));
+            return inserted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean[] insertNewBorrowers(List<Borrower> rows) {
+        List<Borrower> copies = rows.stream().map(InMemoryStorage::copy).toList();
+        writeLock.lock();
+        try {
+            boolean[] inserted = db.insertNewBorrowers(rows);
+            wrote(m -> m.insertNewBorrowers(copies));
+            return inserted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean[] insertNewLoans(List<Loan> rows) {
+        List<Loan> copies = List.copyOf(rows);
+        writeLock.lock();
+        try {
+            boolean[] inserted = db.insertNewLoans(rows);
+            wrote(m -> m.insertNewLoans(copies));
+            return inserted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Called with writeLock held, after one committed write transaction
+    private void wrote(Consumer<InMemoryStorage> replay) {
+        long now = db.generation();
+        // Each of our transactions adds exactly one; anything else means another writer
+        if (now != expectedGeneration + 1) foreignWrites = true;
+        expectedGeneration = now;
+        if (!foreignWrites && base != null) writesSinceBase.add(replay);
+    }
+
+    /** Writes a current snapshot if this session saved anything, then closes the database. */
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (base != null && !writesSinceBase.isEmpty() && !foreignWrites && db.generation() == expectedGeneration) {
+                InMemoryStorage tables = new InMemoryStorage(base.data());
+                writesSinceBase.forEach(w -> w.accept(tables));
+                write(expectedGeneration, tables.loadAll());
+            }
+        } catch (RuntimeException e) {
+            // The next load falls back to SQLite and writes a fresh snapshot
+            lastError = e.getMessage();
+        } finally {
+            writeLock.unlock();
+            db.close();
+        }
+    }
+
+    // --- Snapshot files ---
+
+    private MappedSnapshot tryOpen(long generation) {
+        Path file = snapshotPath(generation);
+        if (!Files.exists(file)) return null;
+        try {
+            MappedSnapshot snapshot = MappedSnapshot.open(file);
+            return snapshot.generation() == generation ? snapshot : null;
+        } catch (IOException e) {
+            lastError = "ignored snapshot: " + e.getMessage();
+            return null;
+        }
+    }
+
+    /** Writes the snapshot for {@code generation} and, if still current, makes it the base for later saves. */
+    private boolean write(long generation, LoadedData data) {
+        try {
+            MappedSnapshot.write(snapshotPath(generation), generation, data.books(), data.borrowers(), data.loans());
+            rebase(MappedSnapshot.open(snapshotPath(generation)), generation);
+            deleteOthers(generation);
+            return true;
+        } catch (IOException e) {
+            lastError = "snapshot not written: " + e.getMessage();
+            try {
+                // Unreadable, so it would only be skipped (and kept) on every later start
+                Files.deleteIfExists(snapshotPath(generation));
+            } catch (IOException ignored) {
+                // Still mapped or locked; it fails its checks and is ignored
+            }
+            return false;
+        }
+    }
+
+    // Later saves are recorded against this snapshot, unless the database has moved past it
+    private void rebase(MappedSnapshot snapshot, long generation) {
+        writeLock.lock();
+        try {
+            if (db.generation() == generation) {
+                base = snapshot;
+                expectedGeneration = generation;
+                writesSinceBase.clear();
+                foreignWrites = false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void deleteOthers(long keep) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "snapshot-*.bin")) {
+            for (Path f : files) {
+                if (f.equals(snapshotPath(keep))) continue;
+                try {
+                    Files.deleteIfExists(f);
+                } catch (IOException ignored) {
+                    // Still mapped (Windows will not delete it); try again after the next snapshot
+                }
+            }
+        } catch (IOException ignored) {
+            // Old snapshots only cost disk space
+        }
+    }
+
+    private Path snapshotPath(long generation) {
+        return dir.resolve(String.format(Locale.ROOT, "snapshot-%016d.bin", generation));
+    }
+}
@@ -0,0 +1,176 @@
+package lms.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import lms.ChangeSet;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+/**
+ * Keeps the tables in sorted maps and nothing on disk: for tests and benchmarks that
+ * want the storage path without I/O, and as the working set of {@link SnapshotStorage}.
+ *
+ * <p>A save holds the write lock, so {@link #loadAll} never sees half of one. Streams
+ * and lookups do not lock; a stream sees saves that land while it runs, or not.
+ * Books and borrowers are copied on the way in and out, since the service flips
+ * availability on its own instances.
+ */
+public class InMemoryStorage implements StorageEngine {
+
+    private final ConcurrentSkipListMap<Integer, Book> books = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Borrower> borrowers = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Loan> loans = new ConcurrentSkipListMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public InMemoryStorage() {
+    }
+
+    /** Starts with {@code initial}'s rows, e.g. what {@link SnapshotStorage} recovered. */
+    public InMemoryStorage(LoadedData initial) {
+        initial.books().forEach(b -> books.put(b.getId(), copy(b)));
+        initial.borrowers().forEach(b -> borrowers.put(b.getId(), copy(b)));
+        initial.loans().forEach(l -> loans.put(l.getId(), l));
+    }
+
+    @Override
+    public LoadedData loadAll(ProgressListener listener) {
+        lock.readLock().lock();
+        try {
+            LoadedData data = new LoadedData(
+                    books.values().stream().map(InMemoryStorage::copy).toList(),
+                    borrowers.values().stream().map(InMemoryStorage::copy).toList(),
+                    List.copyOf(loans.values()));
+            listener.progress(data.rowCount(), data.rowCount());
+            return data;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<Book> streamBooks() {
+        return books.values().stream().map(InMemoryStorage::copy);
+    }
+
+    @Override
+    public Stream<Borrower> streamBorrowers() {
+        return borrowers.values().stream().map(InMemoryStorage::copy);
+    }
+
+    @Override
+    public Stream<Loan> streamLoans() {
+        return loans.values().stream();
+    }
+
+    @Override
+    public Optional<Book> findBook(int id) {
+        return Optional.ofNullable(books.get(id)).map(InMemoryStorage::copy);
+    }
+
+    @Override
+    public Optional<Borrower> findBorrower(int id) {
+        return Optional.ofNullable(borrowers.get(id)).map(InMemoryStorage::copy);
+    }
+
+    @Override
+    public Optional<Loan> findLoan(int id) {
+        return Optional.ofNullable(loans.get(id));
+    }
+
+    @Override
+    public void saveChanges(ChangeSet changes, ProgressListener listener) {
+        if (changes.isEmpty()) return;
+        if (Thread.currentThread().isInterrupted()) throw new RuntimeException("Save cancelled");
+
+        apply(changes.deletedLoanIds(), changes.deletedBorrowerIds(), changes.deletedBookIds(),
+                changes.upsertedBooks(), changes.upsertedBorrowers(), changes.upsertedLoans());
+        listener.progress(changes.size(), changes.size());
+    }
+
+    /** {@link #saveChanges} on its parts, for callers that kept a copy of a change set. */
+    void apply(Collection<Integer> deletedLoans, Collection<Integer> deletedBorrowers, Collection<Integer> deletedBooks,
+               Collection<Book> upsertedBooks, Collection<Borrower> upsertedBorrowers, Collection<Loan> upsertedLoans) {
+        lock.writeLock().lock();
+        try {
+            deletedLoans.forEach(loans::remove);
+            deletedBorrowers.forEach(borrowers::remove);
+            deletedBooks.forEach(books::remove);
+
+            upsertedBooks.forEach(b -> books.put(b.getId(), copy(b)));
+            upsertedBorrowers.forEach(b -> borrowers.put(b.getId(), copy(b)));
+            upsertedLoans.forEach(l -> loans.put(l.getId(), l));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean[] insertNewBooks(List<Book> rows) {
+        lock.writeLock().lock();
+        try {
+            boolean[] inserted = new boolean[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                Book b = rows.get(i);
+                inserted[i] = books.putIfAbsent(b.getId(), copy(b)) == null;
+            }
+            return inserted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean[] insertNewBorrowers(List<Borrower> rows) {
+        lock.writeLock().lock();
+        try {
+            boolean[] inserted = new boolean[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                Borrower b = rows.get(i);
+                inserted[i] = borrowers.putIfAbsent(b.getId(), copy(b)) == null;
+            }
+            return inserted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean[] insertNewLoans(List<Loan> rows) {
+        lock.writeLock().lock();
+        try {
+            boolean[] inserted = new boolean[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                Loan l = rows.get(i);
+                inserted[i] = loans.putIfAbsent(l.getId(), l) == null;
+                if (inserted[i]) {
+                    books.computeIfPresent(l.getBookId(), (id, b) ->
+                            new Book(id, b.getTitle(), b.getAuthor(), b.getPricePerDay(), false));
+                }
+            }
+            return inserted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int rowCount() {
+        return books.size() + borrowers.size() + loans.size();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    static Book copy(Book b) {
+        return new Book(b.getId(), b.getTitle(), b.getAuthor(), b.getPricePerDay(), b.isAvailable());
+    }
+
+    static Borrower copy(Borrower b) {
+        return new Borrower(b.getId(), b.getName(), b.getEmail());
+    }
+}
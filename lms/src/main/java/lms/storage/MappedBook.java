@@ -0,0 +1,48 @@
+package lms.storage;
+
+import lms.model.Book;
+
+/**
+ * A book read from a {@link MappedSnapshot}: the numbers are copied when the row is
+ * read, the title and author are decoded from the mapping on first use.
+ */
+final class MappedBook extends Book {
+
+    private final MappedSnapshot.Strings strings;
+    private final int row;
+
+    MappedBook(MappedSnapshot.Strings strings, int row, int id, double pricePerDay, boolean available) {
+        super(id, null, null, pricePerDay, available);
+        this.strings = strings;
+        this.row = row;
+    }
+
+    // A null field means "not decoded yet"; the columns are NOT NULL. Two threads may
+    // both decode it, which is harmless.
+    @Override
+    public String getTitle() {
+        String title = super.getTitle();
+        if (title == null) {
+            title = strings.get(2 * row);
+            setTitle(title);
+        }
+        return title;
+    }
+
+    @Override
+    public String getAuthor() {
+        String author = super.getAuthor();
+        if (author == null) {
+            author = strings.get(2 * row + 1);
+            setAuthor(author);
+        }
+        return author;
+    }
+
+    @Override
+    public String toString() {
+        getTitle();
+        getAuthor();
+        return super.toString();
+    }
+}
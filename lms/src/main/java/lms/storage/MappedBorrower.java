@@ -0,0 +1,44 @@
+package lms.storage;
+
+import lms.model.Borrower;
+
+/** A borrower read from a {@link MappedSnapshot}; name and email are decoded on first use. */
+final class MappedBorrower extends Borrower {
+
+    private final MappedSnapshot.Strings strings;
+    private final int row;
+
+    MappedBorrower(MappedSnapshot.Strings strings, int row, int id) {
+        super(id, null, null);
+        this.strings = strings;
+        this.row = row;
+    }
+
+    // As in MappedBook: null means "not decoded yet"
+    @Override
+    public String getName() {
+        String name = super.getName();
+        if (name == null) {
+            name = strings.get(2 * row);
+            setName(name);
+        }
+        return name;
+    }
+
+    @Override
+    public String getEmail() {
+        String email = super.getEmail();
+        if (email == null) {
+            email = strings.get(2 * row + 1);
+            setEmail(email);
+        }
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        getName();
+        getEmail();
+        return super.toString();
+    }
+}
@@ -0,0 +1,369 @@
+package lms.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32C;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+import lms.storage.StorageEngine.LoadedData;
+
+/**
+ * A read-only copy of the three tables in a column layout that is used straight from
+ * a memory mapping, stamped with the {@link lms.LibraryDB#generation() generation} of
+ * the database it was taken from.
+ *
+ * <p>After a header, each column is its own 8-byte aligned section with its own
+ * CRC-32C: book ids, prices and availability, borrower ids, the five loan columns,
+ * and per table an offset array into a UTF-8 string heap. Opening maps the sections
+ * and checks the checksums. Nothing is parsed or copied up front: {@link #data()}
+ * returns list views that build a row from the numeric columns when it is read, and
+ * a row's strings are decoded the first time their getter is called.
+ */
+final class MappedSnapshot {
+
+    private static final int MAGIC = 0x504D4D4C; // "LMMP"
+    private static final int VERSION = 1;
+    private static final int SECTION_ENTRY_BYTES = 24;
+    private static final int SECTIONS_AT = 32;
+    private static final int HEADER_CRC_AT = SECTIONS_AT + Section.values().length * SECTION_ENTRY_BYTES;
+    private static final int HEADER_BYTES = HEADER_CRC_AT + 8;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private enum Section {
+        BOOK_IDS, BOOK_PRICES, BOOK_AVAILABLE, BOOK_STRING_OFFSETS, BOOK_STRINGS,
+        BORROWER_IDS, BORROWER_STRING_OFFSETS, BORROWER_STRINGS,
+        LOAN_IDS, LOAN_BOOK_IDS, LOAN_BORROWER_IDS, LOAN_START_DAYS, LOAN_DURATIONS
+    }
+
+    private final long generation;
+    private final int bookCount;
+    private final int borrowerCount;
+    private final int loanCount;
+    private final ByteBuffer[] sections = new ByteBuffer[Section.values().length];
+    private final Strings bookStrings;
+    private final Strings borrowerStrings;
+
+    private MappedSnapshot(FileChannel ch, ByteBuffer header, Path file) throws IOException {
+        this.generation = header.getLong(8);
+        this.bookCount = header.getInt(16);
+        this.borrowerCount = header.getInt(20);
+        this.loanCount = header.getInt(24);
+
+        CRC32C crc = new CRC32C();
+        for (Section s : Section.values()) {
+            int entry = SECTIONS_AT + s.ordinal() * SECTION_ENTRY_BYTES;
+            long offset = header.getLong(entry);
+            long length = header.getLong(entry + 8);
+            // An empty section has nothing to map, so its offset does not matter
+            if (length != 0 && (offset < HEADER_BYTES || length < 0 || length > Integer.MAX_VALUE || offset + length > ch.size())) {
+                throw new IOException("Snapshot section " + s + " is out of bounds: " + file);
+            }
+            ByteBuffer section = length == 0 ? ByteBuffer.allocate(0)
+                    : ch.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+            crc.reset();
+            crc.update(section.duplicate());
+            if ((int) crc.getValue() != header.getInt(entry + 16)) {
+                throw new IOException("Snapshot section " + s + " fails its checksum: " + file);
+            }
+            sections[s.ordinal()] = section;
+        }
+        expectLength(Section.BOOK_IDS, 4L * bookCount, file);
+        expectLength(Section.BOOK_PRICES, 8L * bookCount, file);
+        expectLength(Section.BOOK_AVAILABLE, bookCount, file);
+        expectLength(Section.BOOK_STRING_OFFSETS, 4L * (2L * bookCount + 1), file);
+        expectLength(Section.BORROWER_IDS, 4L * borrowerCount, file);
+        expectLength(Section.BORROWER_STRING_OFFSETS, 4L * (2L * borrowerCount + 1), file);
+        for (Section s : List.of(Section.LOAN_IDS, Section.LOAN_BOOK_IDS, Section.LOAN_BORROWER_IDS,
+                Section.LOAN_START_DAYS, Section.LOAN_DURATIONS)) {
+            expectLength(s, 4L * loanCount, file);
+        }
+
+        this.bookStrings = new Strings(ints(Section.BOOK_STRING_OFFSETS), section(Section.BOOK_STRINGS));
+        this.borrowerStrings = new Strings(ints(Section.BORROWER_STRING_OFFSETS), section(Section.BORROWER_STRINGS));
+    }
+
+    private void expectLength(Section s, long bytes, Path file) throws IOException {
+        if (sections[s.ordinal()].capacity() != bytes) throw new IOException("Snapshot section " + s + " has the wrong size: " + file);
+    }
+
+    /** Maps and verifies {@code file}. Throws {@link IOException} if it is torn, corrupt or another version. */
+    static MappedSnapshot open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_BYTES) throw new IOException("Snapshot too short: " + file);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && ch.read(header) >= 0) {
+                // read the whole header
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) throw new IOException("Not a snapshot: " + file);
+            CRC32C crc = new CRC32C();
+            crc.update(header.array(), 0, HEADER_CRC_AT);
+            if ((int) crc.getValue() != header.getInt(HEADER_CRC_AT)) throw new IOException("Snapshot header is corrupt: " + file);
+
+            // The mappings stay valid after the channel is closed
+            return new MappedSnapshot(ch, header, file);
+        }
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    int rowCount() {
+        return bookCount + borrowerCount + loanCount;
+    }
+
+    /**
+     * The tables as list views over the mapping. Every {@code get} builds a new object,
+     * so read each row once (e.g. to hand it to the service).
+     */
+    LoadedData data() {
+        IntBuffer bookIds = ints(Section.BOOK_IDS);
+        DoubleBuffer prices = section(Section.BOOK_PRICES).asDoubleBuffer();
+        ByteBuffer available = section(Section.BOOK_AVAILABLE);
+        IntBuffer borrowerIds = ints(Section.BORROWER_IDS);
+        IntBuffer loanIds = ints(Section.LOAN_IDS);
+        IntBuffer loanBooks = ints(Section.LOAN_BOOK_IDS);
+        IntBuffer loanBorrowers = ints(Section.LOAN_BORROWER_IDS);
+        IntBuffer loanStarts = ints(Section.LOAN_START_DAYS);
+        IntBuffer loanDurations = ints(Section.LOAN_DURATIONS);
+
+        return new LoadedData(
+                new View<>(bookCount, row -> new MappedBook(bookStrings, row, bookIds.get(row),
+                        prices.get(row), available.get(row) != 0)),
+                new View<>(borrowerCount, row -> new MappedBorrower(borrowerStrings, row, borrowerIds.get(row))),
+                new View<>(loanCount, row -> new Loan(loanIds.get(row), loanBooks.get(row), loanBorrowers.get(row),
+                        loanStarts.get(row), loanDurations.get(row))));
+    }
+
+    private ByteBuffer section(Section s) {
+        return sections[s.ordinal()].duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private IntBuffer ints(Section s) {
+        return section(s).asIntBuffer();
+    }
+
+    private static final class View<T> extends AbstractList<T> implements RandomAccess {
+        private final int size;
+        private final IntFunction<T> row;
+
+        View(int size, IntFunction<T> row) {
+            this.size = size;
+            this.row = row;
+        }
+
+        @Override public T get(int index) {
+            Objects.checkIndex(index, size);
+            return row.apply(index);
+        }
+
+        @Override public int size() { return size; }
+    }
+
+    /** A table's string heap: string {@code i} is the bytes between offsets {@code i} and {@code i + 1}. */
+    static final class Strings {
+        private final IntBuffer offsets;
+        private final ByteBuffer bytes;
+
+        Strings(IntBuffer offsets, ByteBuffer bytes) {
+            this.offsets = offsets;
+            this.bytes = bytes;
+        }
+
+        String get(int index) {
+            int from = offsets.get(index);
+            byte[] utf8 = new byte[offsets.get(index + 1) - from];
+            bytes.get(from, utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    // --- Writing ---
+
+    /**
+     * Writes the tables to a temporary file, syncs it and renames it to {@code file}, so
+     * a crash leaves either no snapshot or a complete one. Null strings are stored as
+     * empty (the database does not allow them).
+     */
+    static void write(Path file, long generation, List<Book> books, List<Borrower> borrowers, List<Loan> loans)
+            throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(0, MAGIC).putInt(4, VERSION).putLong(8, generation)
+                    .putInt(16, books.size()).putInt(20, borrowers.size()).putInt(24, loans.size());
+            SectionWriter out = new SectionWriter(ch, header);
+
+            out.begin(Section.BOOK_IDS);
+            for (Book b : books) out.putInt(b.getId());
+            out.begin(Section.BOOK_PRICES);
+            for (Book b : books) out.putDouble(b.getPricePerDay());
+            out.begin(Section.BOOK_AVAILABLE);
+            for (Book b : books) out.put((byte) (b.isAvailable() ? 1 : 0));
+            out.begin(Section.BOOK_STRING_OFFSETS);
+            out.putOffsets(books, Book::getTitle, Book::getAuthor);
+            out.begin(Section.BOOK_STRINGS);
+            for (Book b : books) {
+                out.putString(b.getTitle());
+                out.putString(b.getAuthor());
+            }
+
+            out.begin(Section.BORROWER_IDS);
+            for (Borrower b : borrowers) out.putInt(b.getId());
+            out.begin(Section.BORROWER_STRING_OFFSETS);
+            out.putOffsets(borrowers, Borrower::getName, Borrower::getEmail);
+            out.begin(Section.BORROWER_STRINGS);
+            for (Borrower b : borrowers) {
+                out.putString(b.getName());
+                out.putString(b.getEmail());
+            }
+
+            out.begin(Section.LOAN_IDS);
+            for (Loan l : loans) out.putInt(l.getId());
+            out.begin(Section.LOAN_BOOK_IDS);
+            for (Loan l : loans) out.putInt(l.getBookId());
+            out.begin(Section.LOAN_BORROWER_IDS);
+            for (Loan l : loans) out.putInt(l.getBorrowerId());
+            out.begin(Section.LOAN_START_DAYS);
+            for (Loan l : loans) out.putInt(l.getStartEpochDay());
+            out.begin(Section.LOAN_DURATIONS);
+            for (Loan l : loans) out.putInt(l.getDurationDays());
+            out.finish();
+
+            ch.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Streams sections to the file in chunks, recording each one's offset, length and checksum in the header. */
+    private static final class SectionWriter {
+        private final FileChannel ch;
+        private final ByteBuffer header;
+        private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C crc = new CRC32C();
+        private Section current;
+        private long sectionStart;
+        private long position = HEADER_BYTES;
+
+        SectionWriter(FileChannel ch, ByteBuffer header) {
+            this.ch = ch;
+            this.header = header;
+        }
+
+        void begin(Section s) throws IOException {
+            end();
+            // Align so doubles and ints can be read in place
+            position = (position + 7) & ~7L;
+            current = s;
+            sectionStart = position;
+            crc.reset();
+        }
+
+        private void end() throws IOException {
+            if (current == null) return;
+            drain();
+            int entry = SECTIONS_AT + current.ordinal() * SECTION_ENTRY_BYTES;
+            header.putLong(entry, sectionStart).putLong(entry + 8, position - sectionStart).putInt(entry + 16, (int) crc.getValue());
+        }
+
+        void finish() throws IOException {
+            end();
+            // Pad to the last aligned start, so every section's offset lies inside the file
+            // even when the trailing ones are empty
+            if (ch.size() < position) ch.write(ByteBuffer.allocate((int) (position - ch.size())), ch.size());
+            CRC32C headerCrc = new CRC32C();
+            headerCrc.update(header.array(), 0, HEADER_CRC_AT);
+            header.putInt(HEADER_CRC_AT, (int) headerCrc.getValue());
+            ByteBuffer h = header.duplicate().clear();
+            long at = 0;
+            while (h.hasRemaining()) at += ch.write(h, at);
+        }
+
+        void putInt(int v) throws IOException {
+            room(4);
+            chunk.putInt(v);
+        }
+
+        void putDouble(double v) throws IOException {
+            room(8);
+            chunk.putDouble(v);
+        }
+
+        void put(byte v) throws IOException {
+            room(1);
+            chunk.put(v);
+        }
+
+        <T> void putOffsets(List<T> rows, Function<T, String> first,
+                            Function<T, String> second) throws IOException {
+            long offset = 0;
+            putInt(0);
+            for (T row : rows) {
+                offset += utf8Length(first.apply(row));
+                putInt(checkedOffset(offset));
+                offset += utf8Length(second.apply(row));
+                putInt(checkedOffset(offset));
+            }
+        }
+
+        void putString(String s) throws IOException {
+            if (s == null || s.isEmpty()) return;
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            for (int at = 0; at < utf8.length; ) {
+                room(1);
+                int n = Math.min(chunk.remaining(), utf8.length - at);
+                chunk.put(utf8, at, n);
+                at += n;
+            }
+        }
+
+        private void room(int bytes) throws IOException {
+            if (chunk.remaining() < bytes) drain();
+        }
+
+        private void drain() throws IOException {
+            chunk.flip();
+            crc.update(chunk.duplicate());
+            while (chunk.hasRemaining()) position += ch.write(chunk, position);
+            chunk.clear();
+        }
+
+        private static int checkedOffset(long offset) throws IOException {
+            if (offset > Integer.MAX_VALUE) throw new IOException("Snapshot string heap exceeds 2 GB");
+            return (int) offset;
+        }
+
+        private static int utf8Length(String s) {
+            if (s == null) return 0;
+            int bytes = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) bytes++;
+                else if (c < 0x800) bytes += 2;
+                else if (!Character.isSurrogate(c)) bytes += 3;
+                else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    bytes += 4;
+                    i++;
+                } else bytes++; // getBytes writes an unpaired surrogate as '?'
+            }
+            return bytes;
+        }
+    }
+}
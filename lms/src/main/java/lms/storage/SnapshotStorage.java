@@ -0,0 +1,200 @@
+package lms.storage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import lms.ChangeSet;
+import lms.LibraryChange;
+import lms.LibraryChange.Entity;
+import lms.LibraryChange.Kind;
+import lms.journal.Journal;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+/**
+ * Keeps the tables in memory and persists them as a memory-mapped snapshot plus the
+ * {@link Journal} of saves made since. A save appends one frame, waits for its sync
+ * and only then applies it to the tables; opening maps the snapshot and replays the
+ * frames after it. No SQL, no per-row database writes.
+ *
+ * <p>A save that throws (sync timed out, interrupted, journal failed) has not changed
+ * the tables. After a timeout or interrupt its frame may still reach the log. That
+ * is harmless: frames carry whole rows and deletes by id, so when the caller saves
+ * the same changes again, replaying both frames gives the same tables.
+ */
+public class SnapshotStorage implements StorageEngine {
+
+    private static final long SYNC_TIMEOUT_SECONDS = 30;
+
+    private final InMemoryStorage tables;
+    private final Journal journal;
+    // Held from a save's append until its rows are in the tables, so frames are in save
+    // order and a snapshot never reads tables that lack a frame from an older segment
+    private final ReentrantLock saveLock = new ReentrantLock();
+
+    public SnapshotStorage(Path dir) {
+        this.journal = Journal.open(dir);
+        Journal.Recovered r = journal.recovered();
+        this.tables = new InMemoryStorage(new LoadedData(r.books(), r.borrowers(), r.loans()));
+        journal.snapshotFrom(new Journal.Source() {
+            @Override public List<Book> books() { return betweenSaves(() -> tables.streamBooks().toList()); }
+            @Override public List<Borrower> borrowers() { return betweenSaves(() -> tables.streamBorrowers().toList()); }
+            @Override public List<Loan> loans() { return betweenSaves(() -> tables.streamLoans().toList()); }
+        });
+    }
+
+    /** What opening found: the snapshot and how many frames were replayed on top. */
+    public Journal.Recovered recovered() {
+        return journal.recovered();
+    }
+
+    public Journal.Stats stats() {
+        return journal.stats();
+    }
+
+    @Override
+    public LoadedData loadAll(ProgressListener listener) {
+        return tables.loadAll(listener);
+    }
+
+    @Override public Stream<Book> streamBooks() { return tables.streamBooks(); }
+    @Override public Stream<Borrower> streamBorrowers() { return tables.streamBorrowers(); }
+    @Override public Stream<Loan> streamLoans() { return tables.streamLoans(); }
+
+    @Override public Optional<Book> findBook(int id) { return tables.findBook(id); }
+    @Override public Optional<Borrower> findBorrower(int id) { return tables.findBorrower(id); }
+    @Override public Optional<Loan> findLoan(int id) { return tables.findLoan(id); }
+
+    @Override
+    public void saveChanges(ChangeSet changes, ProgressListener listener) {
+        if (changes.isEmpty()) return;
+
+        List<LibraryChange> frame = new ArrayList<>(changes.size());
+        changes.deletedLoanIds().forEach(id -> frame.add(deleted(Entity.LOAN, id)));
+        changes.deletedBorrowerIds().forEach(id -> frame.add(deleted(Entity.BORROWER, id)));
+        changes.deletedBookIds().forEach(id -> frame.add(deleted(Entity.BOOK, id)));
+        changes.upsertedBooks().forEach(b -> frame.add(upserted(Entity.BOOK, b.getId(), InMemoryStorage.copy(b))));
+        changes.upsertedBorrowers().forEach(b -> frame.add(upserted(Entity.BORROWER, b.getId(), InMemoryStorage.copy(b))));
+        changes.upsertedLoans().forEach(l -> frame.add(upserted(Entity.LOAN, l.getId(), l)));
+
+        saveLock.lock();
+        try {
+            journal.libraryChanged(frame);
+            awaitSync();
+            tables.saveChanges(changes);
+        } finally {
+            saveLock.unlock();
+        }
+        listener.progress(changes.size(), changes.size());
+    }
+
+    @Override
+    public boolean[] insertNewBooks(List<Book> rows) {
+        saveLock.lock();
+        try {
+            boolean[] inserted = willInsert(rows, Book::getId, id -> tables.findBook(id).isPresent());
+            journal.libraryChanged(upserts(Entity.BOOK, rows, inserted, Book::getId));
+            awaitSync();
+            return tables.insertNewBooks(rows);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean[] insertNewBorrowers(List<Borrower> rows) {
+        saveLock.lock();
+        try {
+            boolean[] inserted = willInsert(rows, Borrower::getId, id -> tables.findBorrower(id).isPresent());
+            journal.libraryChanged(upserts(Entity.BORROWER, rows, inserted, Borrower::getId));
+            awaitSync();
+            return tables.insertNewBorrowers(rows);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean[] insertNewLoans(List<Loan> rows) {
+        saveLock.lock();
+        try {
+            boolean[] inserted = willInsert(rows, Loan::getId, id -> tables.findLoan(id).isPresent());
+            List<LibraryChange> frame = upserts(Entity.LOAN, rows, inserted, Loan::getId);
+            // The books they will mark unavailable, as they will be then
+            for (int i = 0; i < rows.size(); i++) {
+                if (!inserted[i]) continue;
+                tables.findBook(rows.get(i).getBookId()).ifPresent(b -> frame.add(upserted(Entity.BOOK, b.getId(),
+                        new Book(b.getId(), b.getTitle(), b.getAuthor(), b.getPricePerDay(), false))));
+            }
+            journal.libraryChanged(frame);
+            awaitSync();
+            return tables.insertNewLoans(rows);
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    // Which rows insertNew* will insert: ids not in the table and not earlier in the batch
+    private static <T> boolean[] willInsert(List<T> rows, ToIntFunction<T> id, IntPredicate exists) {
+        boolean[] inserted = new boolean[rows.size()];
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            int rowId = id.applyAsInt(rows.get(i));
+            inserted[i] = seen.add(rowId) && !exists.test(rowId);
+        }
+        return inserted;
+    }
+
+    private static <T> List<LibraryChange> upserts(Entity entity, List<T> rows, boolean[] inserted,
+                                                   ToIntFunction<T> id) {
+        List<LibraryChange> frame = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (inserted[i]) frame.add(upserted(entity, id.applyAsInt(rows.get(i)), rows.get(i)));
+        }
+        return frame;
+    }
+
+    private <T> T betweenSaves(Supplier<T> read) {
+        saveLock.lock();
+        try {
+            return read.get();
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private static LibraryChange upserted(Entity entity, int id, Object value) {
+        return new LibraryChange(Kind.UPDATED, entity, id, -1, value);
+    }
+
+    private static LibraryChange deleted(Entity entity, int id) {
+        return new LibraryChange(Kind.DELETED, entity, id, -1, null);
+    }
+
+    private void awaitSync() {
+        try {
+            if (!journal.flush(SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Failed saving: journal sync timed out (" + journal.stats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for the journal sync", e);
+        }
+    }
+
+    /** Writes a final snapshot and closes the journal. */
+    @Override
+    public void close() {
+        journal.close();
+    }
+}
@@ -0,0 +1,73 @@
+package lms.storage;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import lms.ChangeSet;
+import lms.model.Book;
+import lms.model.Borrower;
+import lms.model.Loan;
+
+/**
+ * Where the library is persisted. The UI, the write-behind queue, autosave, CSV import
+ * and export only use this interface, so the backend can be swapped per deployment
+ * (see {@link StorageEngines}): SQLite ({@link lms.LibraryDB}), {@link InMemoryStorage}
+ * for tests and benchmarks, or {@link SnapshotStorage}.
+ *
+ * <p>Implementations are thread-safe. Entities handed in are not retained, and
+ * entities handed out are the caller's to modify.
+ */
+public interface StorageEngine extends AutoCloseable {
+
+    /** Every table, read consistently. */
+    default LoadedData loadAll() {
+        return loadAll(ProgressListener.NONE);
+    }
+
+    /** As {@link #loadAll()}, reporting rows read as it goes. Interrupting the caller cancels the load and throws. */
+    LoadedData loadAll(ProgressListener listener);
+
+    // Rows in id order, read lazily where the engine can. Close the stream when done.
+    Stream<Book> streamBooks();
+    Stream<Borrower> streamBorrowers();
+    Stream<Loan> streamLoans();
+
+    Optional<Book> findBook(int id);
+    Optional<Borrower> findBorrower(int id);
+    Optional<Loan> findLoan(int id);
+
+    /** Applies {@code changes} (deletes, then upserts) in one transaction: all of them or none. */
+    default void saveChanges(ChangeSet changes) {
+        saveChanges(changes, ProgressListener.NONE);
+    }
+
+    /**
+     * As {@link #saveChanges(ChangeSet)}, reporting rows written as it goes. Interrupting
+     * the calling thread rolls the transaction back and throws.
+     */
+    void saveChanges(ChangeSet changes, ProgressListener listener);
+
+    // Bulk import: one transaction per chunk; result[i] is false if row i's id already existed
+    boolean[] insertNewBooks(List<Book> books);
+    boolean[] insertNewBorrowers(List<Borrower> borrowers);
+
+    /** Inserts a chunk of new loans and marks the loaned books unavailable in the same transaction. */
+    boolean[] insertNewLoans(List<Loan> loans);
+
+    @Override
+    void close();
+
+    record LoadedData(List<Book> books, List<Borrower> borrowers, List<Loan> loans) {
+        public int rowCount() {
+            return books.size() + borrowers.size() + loans.size();
+        }
+    }
+
+    /** Rows saved or loaded so far out of {@code totalRows}; called on the worker threads. */
+    @FunctionalInterface
+    interface ProgressListener {
+        ProgressListener NONE = (rowsDone, totalRows) -> {};
+
+        void progress(long rowsDone, long totalRows);
+    }
+}
@@ -0,0 +1,45 @@
+package lms.storage;
+
+import java.nio.file.Path;
+import java.util.List;
+import lms.LibraryDB;
+
+/**
+ * Opens a {@link StorageEngine} by name, so the UI ({@code -Dlms.storage}), the
+ * export command ({@code --storage}) and the benchmarks pick backends the same way.
+ */
+public final class StorageEngines {
+
+    public static final String SQLITE = "sqlite";
+    public static final String MEMORY = "memory";
+    public static final String SNAPSHOT = "snapshot";
+    public static final String SQLITE_MAPPED = "sqlite-mapped";
+    public static final List<String> NAMES = List.of(SQLITE, MEMORY, SNAPSHOT, SQLITE_MAPPED);
+
+    public static final String DEFAULT_SNAPSHOT_DIR = "library.snapshot";
+
+    private StorageEngines() {}
+
+    /**
+     * @param name     {@code sqlite}, {@code memory}, {@code snapshot} or {@code sqlite-mapped}
+     * @param location the database file, or the snapshot directory; null for the default.
+     *                 {@code sqlite-mapped} keeps its snapshots next to the database file,
+     *                 in {@code <file>.snapshots}
+     */
+    public static StorageEngine open(String name, String location) {
+        return switch (name) {
+            case SQLITE -> location == null ? new LibraryDB() : new LibraryDB("jdbc:sqlite:" + location);
+            case MEMORY -> new InMemoryStorage();
+            case SNAPSHOT -> new SnapshotStorage(Path.of(location == null ? DEFAULT_SNAPSHOT_DIR : location));
+            case SQLITE_MAPPED -> new CachedSqliteStorage((LibraryDB) open(SQLITE, location),
+                    Path.of((location == null ? "library.db" : location) + ".snapshots"));
+            default -> throw new IllegalArgumentException(
+                    "Unknown storage engine '" + name + "' (one of " + String.join(", ", NAMES) + ")");
+        };
+    }
+
+    /** The engine named by {@code -Dlms.storage} (default SQLite) at {@code -Dlms.storage.location}. */
+    public static StorageEngine fromSystemProperties() {
+        return open(System.getProperty("lms.storage", SQLITE), System.getProperty("lms.storage.location"));
+    }
+}
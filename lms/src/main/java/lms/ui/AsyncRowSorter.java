@@ -0,0 +1,462 @@
+package lms.ui;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingWorker;
+import javax.swing.table.TableModel;
+
+/**
+ * A {@link RowSorter} that filters and sorts on a background {@link SwingWorker}, so
+ * a large table stays responsive while the user types or clicks a header. The EDT
+ * only swaps in the finished view-to-model mapping.
+ *
+ * <p>Every filter or sort change starts a new run and cancels the one in flight; a
+ * run that finishes after a newer one started is dropped. Until the new mapping
+ * arrives the table keeps showing the previous one, with model row changes already
+ * applied to it so it never points past the model.
+ *
+ * <p>A model change of a few rows does not start a run: deleted rows are dropped
+ * from the mapping, and inserted or updated rows are checked against the row filter
+ * and moved into place by binary search, on the EDT. A larger change, or one that
+ * arrives while a run is in flight, starts a run.
+ *
+ * <p>The model is read from the worker thread, so its {@code getValueAt} must be
+ * safe to call off the EDT (the panels' models read {@link lms.LibraryService},
+ * which is thread-safe).
+ */
+public class AsyncRowSorter<M extends TableModel> extends RowSorter<M> {
+
+    private static final int MAX_SORT_KEYS = 3;
+    private static final int CANCEL_CHECK_ROWS = 4096;
+    // Model changes up to this many rows are patched into the mapping on the EDT
+    private static final int PATCH_ROWS = 64;
+
+    private final M model;
+    private List<SortKey> sortKeys = List.of();
+    private Supplier<? extends RowFilter<? super M, ? super Integer>> filter;
+    private RowFilter<? super M, ? super Integer> rowFilter;
+    private final ModelEntry edtEntry = new ModelEntry();
+
+    // null while every model row is shown in model order
+    private int[] viewToModel;
+    private int[] modelToView; // built on first use
+
+    private int generation;
+    private Worker running;
+
+    public AsyncRowSorter(M model) {
+        this.model = model;
+    }
+
+    /**
+     * Filters rows with the filter {@code filterSource} returns, or shows all rows if
+     * it is null. {@code filterSource} is called on the worker thread on every run, so
+     * it can do the expensive part (e.g. an index lookup) there, and it sees new rows.
+     */
+    public void setRowFilter(Supplier<? extends RowFilter<? super M, ? super Integer>> filterSource) {
+        setRowFilter(filterSource, null);
+    }
+
+    /**
+     * As {@link #setRowFilter(Supplier)}, with {@code rowFilter} deciding single
+     * inserted or updated rows on the EDT so they can be patched into the view. It
+     * must answer for the data as it is now, not from a set computed earlier. Without
+     * it, any insert or update under a filter starts a run.
+     */
+    public void setRowFilter(Supplier<? extends RowFilter<? super M, ? super Integer>> filterSource,
+                             RowFilter<? super M, ? super Integer> rowFilter) {
+        this.filter = filterSource;
+        this.rowFilter = filterSource == null ? null : rowFilter;
+        resort();
+    }
+
+    @Override
+    public M getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        SortOrder order = SortOrder.ASCENDING;
+        if (!keys.isEmpty() && keys.getFirst().getColumn() == column) {
+            order = keys.getFirst().getSortOrder() == SortOrder.ASCENDING ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        }
+        keys.removeIf(k -> k.getColumn() == column);
+        keys.addFirst(new SortKey(column, order));
+        setSortKeys(keys.subList(0, Math.min(keys.size(), MAX_SORT_KEYS)));
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> copy = keys == null ? List.of() : List.copyOf(keys);
+        for (SortKey k : copy) {
+            if (k.getColumn() < 0 || k.getColumn() >= model.getColumnCount()) {
+                throw new IllegalArgumentException("Invalid sort key column: " + k.getColumn());
+            }
+        }
+        if (copy.equals(sortKeys)) return;
+        sortKeys = copy;
+        fireSortOrderChanged();
+        resort();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= model.getRowCount()) throw new IndexOutOfBoundsException("Invalid index " + index);
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (viewToModel == null) {
+            if (index < 0 || index >= model.getRowCount()) throw new IndexOutOfBoundsException("Invalid index " + index);
+            return index;
+        }
+        if (modelToView == null) {
+            modelToView = new int[model.getRowCount()];
+            Arrays.fill(modelToView, -1);
+            for (int v = 0; v < viewToModel.length; v++) {
+                modelToView[viewToModel[v]] = v;
+            }
+        }
+        return index < modelToView.length ? modelToView[index] : -1;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? model.getRowCount() : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    // --- Model changes (on the EDT): patch the current mapping; recompute it if that is not enough ---
+
+    @Override
+    public void modelStructureChanged() {
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        if (viewToModel != null) dropRowsFrom(model.getRowCount());
+        resortIfActive();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (viewToModel == null) {
+            resortIfActive();
+            return;
+        }
+        int[] previous = viewToModel.clone();
+        shiftRows(firstRow, endRow - firstRow + 1);
+        if (!canPatch(firstRow, endRow, true)) {
+            resort();
+            return;
+        }
+        for (int row = firstRow; row <= endRow; row++) {
+            if (includes(row)) insertInOrder(row);
+        }
+        fireRowSorterChanged(previous);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        if (viewToModel == null) {
+            resortIfActive();
+            return;
+        }
+        int[] previous = viewToModel.clone();
+        int count = endRow - firstRow + 1;
+        int n = 0;
+        for (int modelRow : viewToModel) {
+            if (modelRow < firstRow) viewToModel[n++] = modelRow;
+            else if (modelRow > endRow) viewToModel[n++] = modelRow - count;
+        }
+        setMapping(Arrays.copyOf(viewToModel, n));
+        // The remaining rows keep their order and filter result
+        if (canPatch(firstRow, endRow, false)) fireRowSorterChanged(previous);
+        else resort();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        if (viewToModel == null) {
+            resortIfActive();
+            return;
+        }
+        if (!canPatch(firstRow, endRow, true)) {
+            resort();
+            return;
+        }
+        int[] previous = null;
+        for (int row = firstRow; row <= endRow; row++) {
+            int view = viewIndexOf(row);
+            boolean keep = includes(row);
+            if (view < 0 ? !keep : keep && isInOrderAt(view)) continue;
+
+            if (previous == null) previous = viewToModel.clone();
+            if (view >= 0) removeAt(view);
+            if (keep) insertInOrder(row);
+        }
+        if (previous != null) fireRowSorterChanged(previous);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        // A column no filter or sort key looks at cannot move a row
+        if (filter == null && sortKeys.stream().noneMatch(k -> k.getColumn() == column)) return;
+        rowsUpdated(firstRow, endRow);
+    }
+
+    private boolean canPatch(int firstRow, int endRow, boolean rowsNeedFilter) {
+        return running == null
+                && endRow - firstRow < PATCH_ROWS
+                && (!rowsNeedFilter || filter == null || rowFilter != null);
+    }
+
+    private boolean includes(int modelRow) {
+        if (filter == null) return true;
+        edtEntry.row = modelRow;
+        return rowFilter.include(edtEntry);
+    }
+
+    private int viewIndexOf(int modelRow) {
+        for (int v = 0; v < viewToModel.length; v++) {
+            if (viewToModel[v] == modelRow) return v;
+        }
+        return -1;
+    }
+
+    private boolean isInOrderAt(int view) {
+        List<Comparator<Object>> comparators = comparators(sortKeys);
+        int row = viewToModel[view];
+        return (view == 0 || compareRows(viewToModel[view - 1], row, comparators) < 0)
+                && (view == viewToModel.length - 1 || compareRows(row, viewToModel[view + 1], comparators) < 0);
+    }
+
+    private void insertInOrder(int modelRow) {
+        List<Comparator<Object>> comparators = comparators(sortKeys);
+        int lo = 0;
+        int hi = viewToModel.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareRows(viewToModel[mid], modelRow, comparators) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        int[] mapping = new int[viewToModel.length + 1];
+        System.arraycopy(viewToModel, 0, mapping, 0, lo);
+        mapping[lo] = modelRow;
+        System.arraycopy(viewToModel, lo, mapping, lo + 1, viewToModel.length - lo);
+        setMapping(mapping);
+    }
+
+    private void removeAt(int view) {
+        int[] mapping = new int[viewToModel.length - 1];
+        System.arraycopy(viewToModel, 0, mapping, 0, view);
+        System.arraycopy(viewToModel, view + 1, mapping, view, mapping.length - view);
+        setMapping(mapping);
+    }
+
+    // The order a run produces: the sort keys, then model row
+    private int compareRows(int a, int b, List<Comparator<Object>> comparators) {
+        for (int k = 0; k < comparators.size(); k++) {
+            int column = sortKeys.get(k).getColumn();
+            int c = comparators.get(k).compare(model.getValueAt(a, column), model.getValueAt(b, column));
+            if (c != 0) return c;
+        }
+        return Integer.compare(a, b);
+    }
+
+    private void shiftRows(int firstRow, int count) {
+        for (int v = 0; v < viewToModel.length; v++) {
+            if (viewToModel[v] >= firstRow) viewToModel[v] += count;
+        }
+        modelToView = null;
+    }
+
+    private void dropRowsFrom(int rowCount) {
+        int n = 0;
+        for (int modelRow : viewToModel) {
+            if (modelRow < rowCount) viewToModel[n++] = modelRow;
+        }
+        setMapping(n == viewToModel.length ? viewToModel : Arrays.copyOf(viewToModel, n));
+    }
+
+    // --- Background runs ---
+
+    private boolean isActive() {
+        return filter != null || !sortKeys.isEmpty();
+    }
+
+    private void resortIfActive() {
+        if (isActive()) resort();
+    }
+
+    private void resort() {
+        generation++;
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+
+        if (!isActive()) {
+            // Identity mapping; nothing to compute
+            int[] previous = viewToModel;
+            setMapping(null);
+            fireRowSorterChanged(previous);
+            return;
+        }
+
+        running = new Worker(generation, sortKeys, filter);
+        running.execute();
+    }
+
+    private List<Comparator<Object>> comparators(List<SortKey> keys) {
+        List<Comparator<Object>> comparators = new ArrayList<>(keys.size());
+        for (SortKey key : keys) {
+            comparators.add(comparator(key.getColumn(), key.getSortOrder()));
+        }
+        return comparators;
+    }
+
+    // Same ordering as TableRowSorter: Comparable column classes compare directly,
+    // everything else by its string form under the default Collator. Nulls sort first.
+    @SuppressWarnings("unchecked")
+    private Comparator<Object> comparator(int column, SortOrder order) {
+        Class<?> type = model.getColumnClass(column);
+        Comparator<Object> byValue;
+        if (type != String.class && Comparable.class.isAssignableFrom(type)) {
+            byValue = (a, b) -> ((Comparable<Object>) a).compareTo(b);
+        } else {
+            Collator collator = Collator.getInstance(); // one per caller: Collator is not thread-safe
+            byValue = (a, b) -> collator.compare(a.toString(), b.toString());
+        }
+        Comparator<Object> c = Comparator.nullsFirst(byValue);
+        return order == SortOrder.DESCENDING ? c.reversed() : c;
+    }
+
+    private void setMapping(int[] mapping) {
+        viewToModel = mapping;
+        modelToView = null;
+    }
+
+    private void apply(int[] mapping) {
+        running = null;
+        int[] previous = viewToModel;
+        setMapping(mapping);
+        fireRowSorterChanged(previous);
+    }
+
+    private final class Worker extends SwingWorker<int[], Void> {
+
+        private final int generation;
+        private final List<SortKey> keys;
+        private final Supplier<? extends RowFilter<? super M, ? super Integer>> filterSource;
+        private int modelRows;
+
+        Worker(int generation, List<SortKey> keys, Supplier<? extends RowFilter<? super M, ? super Integer>> filterSource) {
+            this.generation = generation;
+            this.keys = keys;
+            this.filterSource = filterSource;
+        }
+
+        @Override
+        protected int[] doInBackground() {
+            RowFilter<? super M, ? super Integer> rowFilter = filterSource == null ? null : filterSource.get();
+            modelRows = model.getRowCount();
+
+            int[] rows = new int[modelRows];
+            int n = 0;
+            ModelEntry entry = new ModelEntry();
+            for (int row = 0; row < modelRows; row++) {
+                if (row % CANCEL_CHECK_ROWS == 0 && isCancelled()) return null;
+                entry.row = row;
+                if (rowFilter == null || rowFilter.include(entry)) rows[n++] = row;
+            }
+            rows = Arrays.copyOf(rows, n);
+            return keys.isEmpty() ? rows : sort(rows);
+        }
+
+        /** Reads each sort column once per row, then sorts row positions by those values. */
+        private int[] sort(int[] rows) {
+            Object[][] values = new Object[keys.size()][rows.length];
+            List<Comparator<Object>> comparators = comparators(keys);
+            for (int k = 0; k < keys.size(); k++) {
+                int column = keys.get(k).getColumn();
+                for (int i = 0; i < rows.length; i++) {
+                    if (i % CANCEL_CHECK_ROWS == 0 && isCancelled()) return null;
+                    values[k][i] = model.getValueAt(rows[i], column);
+                }
+            }
+
+            Integer[] order = new Integer[rows.length];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> {
+                for (int k = 0; k < values.length; k++) {
+                    int c = comparators.get(k).compare(values[k][a], values[k][b]);
+                    if (c != 0) return c;
+                }
+                return Integer.compare(rows[a], rows[b]);
+            });
+
+            int[] sorted = new int[rows.length];
+            for (int i = 0; i < sorted.length; i++) sorted[i] = rows[order[i]];
+            return sorted;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || generation != AsyncRowSorter.this.generation) return;
+            try {
+                int[] mapping = get();
+                // Rows changed before their model event arrived; that event will resort
+                if (model.getRowCount() != modelRows) {
+                    resort();
+                    return;
+                }
+                apply(mapping);
+            } catch (ExecutionException e) {
+                // The model changed under the worker (its rows are read without a lock);
+                // the change's own event schedules a fresh run, or this does.
+                if (model.getRowCount() != modelRows) {
+                    resort();
+                    return;
+                }
+                throw new RuntimeException("Failed sorting table", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final class ModelEntry extends RowFilter.Entry<M, Integer> {
+
+        private int row;
+
+        @Override public M getModel() { return model; }
+        @Override public int getValueCount() { return model.getColumnCount(); }
+        @Override public Object getValue(int index) { return model.getValueAt(row, index); }
+        @Override public Integer getIdentifier() { return row; }
+    }
+}
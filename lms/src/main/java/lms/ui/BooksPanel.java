@@ -2,18 +2,25 @@ package lms.ui;
 
 import java.awt.*;
 import javax.swing.*;
-import javax.swing.table.AbstractTableModel;
-import javax.swing.table.TableRowSorter;
+import java.util.List;
+import lms.AvailabilityResult;
+import lms.LibraryChange.Entity;
 import lms.LibraryService;
 import lms.model.Book;
 
 public class BooksPanel extends JPanel {
 
+    private static final String[] COLUMNS = {"ID", "Title", "Author", "Price/Day", "Available"};
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, String.class, String.class, Double.class, Boolean.class};
+
     private final LibraryService service;
+    private final DbPaging paging;
 
-    private final BooksTableModel tableModel;
     private final JTable table;
-    private final TableRowSorter<BooksTableModel> sorter;
+    // Exactly one of these is set: rows loaded into the service, or pages read from the DB
+    private final BooksTableModel tableModel;
+    private final AsyncRowSorter<BooksTableModel> sorter;
+    private final PagedTableModel<Book> pagedModel;
 
     private final JTextField txtSearch;
 
@@ -24,7 +31,13 @@ public class BooksPanel extends JPanel {
     private final JCheckBox chkAvailable;
 
     public BooksPanel(LibraryService service) {
+        this(service, null);
+    }
+
+    /** With {@code paging} set, the table pages books from the database (see {@link DbPaging}). */
+    public BooksPanel(LibraryService service, DbPaging paging) {
         this.service = service;
+        this.paging = paging;
 
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -36,14 +49,25 @@ public class BooksPanel extends JPanel {
         searchPanel.add(txtSearch, BorderLayout.CENTER);
 
         // Table
-        tableModel = new BooksTableModel(service);
-        table = new JTable(tableModel);
+        if (paging == null) {
+            tableModel = new BooksTableModel(service);
+            service.addListener(tableModel);
+            table = new JTable(tableModel);
+            sorter = new AsyncRowSorter<>(tableModel);
+            // Filters and sorts off the EDT; Integer/Double/Boolean columns sort naturally
+            table.setRowSorter(sorter);
+            pagedModel = null;
+        } else {
+            pagedModel = new PagedTableModel<>(paging.db().pagedBooks(), COLUMNS, COLUMN_CLASSES,
+                    List.of(Book::getId, Book::getTitle, Book::getAuthor, Book::getPricePerDay, Book::isAvailable),
+                    paging::awaitWrites);
+            table = new JTable(pagedModel);
+            table.setRowSorter(new PagedRowSorter<>(pagedModel));
+            tableModel = null;
+            sorter = null;
+        }
         table.setRowHeight(26);
 
-        sorter = new TableRowSorter<>(tableModel);
-        // No custom comparator needed: Integer/Double/Boolean columns will sort naturally
-        table.setRowSorter(sorter);
-
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createTitledBorder("Books"));
 
@@ -92,14 +116,8 @@ public class BooksPanel extends JPanel {
         add(rightPanel, BorderLayout.EAST);
 
         // Search filtering
-        txtSearch.getDocument().addDocumentListener((SimpleDocumentListener) e -> {
-            String text = txtSearch.getText().trim();
-            if (text.isEmpty()) {
-                sorter.setRowFilter(null);
-            } else {
-                sorter.setRowFilter(RowFilter.regexFilter("(?i)" + text));
-            }
-        });
+        txtSearch.getDocument().addDocumentListener(
+                SimpleDocumentListener.debounced(SimpleDocumentListener.SEARCH_DELAY_MS, this::applySearch));
 
         // Actions
         btnAdd.addActionListener(e -> onAdd());
@@ -121,6 +139,7 @@ public class BooksPanel extends JPanel {
                 return;
             }
 
+            if (paging != null) paging.loadBook(service, id);
             if (service.findBook(id).isPresent()) {
                 JOptionPane.showMessageDialog(this, "A book with that ID already exists.", "Validation", JOptionPane.WARNING_MESSAGE);
                 return;
@@ -137,6 +156,7 @@ public class BooksPanel extends JPanel {
     private void onRemove() {
         try {
             int id = Integer.parseInt(txtId.getText().trim());
+            if (paging != null) paging.loadBook(service, id);
             service.removeBook(id);
             refreshTable();
         } catch (NumberFormatException ex) {
@@ -151,17 +171,37 @@ public class BooksPanel extends JPanel {
             return;
         }
         int modelRow = table.convertRowIndexToModel(row);
-        Book b = service.getBooks().get(modelRow);
-        b.setAvailable(!b.isAvailable());
+        int id;
+        if (pagedModel != null) {
+            Book b = pagedModel.rowAt(modelRow);
+            if (b == null) return; // page still loading
+            id = b.getId();
+            paging.loadBook(service, id);
+        } else {
+            // The row's id as this table shows it; the service may already be ahead of the table
+            id = tableModel.idAt(modelRow);
+        }
+        switch (service.toggleBookAvailable(id)) {
+            case AvailabilityResult.OnLoan onLoan -> {
+                JOptionPane.showMessageDialog(this, "Book " + onLoan.bookId() + " is out on loan " + onLoan.heldBy().getId()
+                        + "; return the loan to make it available.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            case AvailabilityResult.BookNotFound notFound -> {
+                JOptionPane.showMessageDialog(this, "Book " + notFound.bookId() + " was removed.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            case AvailabilityResult.Updated updated -> { }
+        }
         refreshTable();
     }
 
     private void seed() {
-        if (!service.getBooks().isEmpty()) {
+        if (service.bookCount() > 0) {
             int opt = JOptionPane.showConfirmDialog(this, "Books already exist. Add samples anyway?", "Confirm", JOptionPane.YES_NO_OPTION);
             if (opt != JOptionPane.YES_OPTION) return;
         }
-        int base = service.getBooks().size() + 1;
+        int base = service.bookCount() + 1;
         service.addBook(new Book(100 + base, "Clean Code", "Robert C. Martin", 2.5, true));
         service.addBook(new Book(101 + base, "Effective Java", "Joshua Bloch", 3.0, true));
         service.addBook(new Book(102 + base, "Design Patterns", "GoF", 3.5, true));
@@ -183,43 +223,42 @@ public class BooksPanel extends JPanel {
         panel.add(field, gbc);
     }
 
+    /** Re-reads a paged table; the in-memory table follows the service's change events by itself. */
     public void refreshTable() {
-        tableModel.fireTableDataChanged();
+        if (pagedModel != null) pagedModel.refresh();
     }
 
-    private static class BooksTableModel extends AbstractTableModel {
+    private void applySearch() {
+        String text = txtSearch.getText().trim();
+        if (pagedModel != null) pagedModel.setSearch(text);
+        else if (text.isEmpty()) sorter.setRowFilter(null);
+        else sorter.setRowFilter(() -> IdRowFilter.in(service.matchingBookIds(text), 0),
+                new IdRowFilter<>(id -> service.bookMatches(id, text), 0));
+    }
+
+    private static class BooksTableModel extends ServiceTableModel {
         private final LibraryService service;
-        private final String[] cols = {"ID", "Title", "Author", "Price/Day", "Available"};
 
         BooksTableModel(LibraryService service) {
+            super(Entity.BOOK, service.ids(Entity.BOOK));
             this.service = service;
         }
 
-        @Override public int getRowCount() { return service.getBooks().size(); }
-        @Override public int getColumnCount() { return cols.length; }
-        @Override public String getColumnName(int column) { return cols[column]; }
+        @Override public int getColumnCount() { return COLUMNS.length; }
+        @Override public String getColumnName(int column) { return COLUMNS[column]; }
+        @Override public Class<?> getColumnClass(int columnIndex) { return COLUMN_CLASSES[columnIndex]; }
 
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
-            Book b = service.getBooks().get(rowIndex);
-            return switch (columnIndex) {
-                case 0 -> b.getId();
-                case 1 -> b.getTitle();
-                case 2 -> b.getAuthor();
-                case 3 -> b.getPricePerDay();
-                case 4 -> b.isAvailable();
+            // Reads one column straight from the catalog; no Book is built per cell
+            return service.readBooks(books -> rowIndex >= books.size() ? null : switch (columnIndex) {
+                case 0 -> books.idAt(rowIndex);
+                case 1 -> books.titleAt(rowIndex);
+                case 2 -> books.authorAt(rowIndex);
+                case 3 -> books.pricePerDayAt(rowIndex);
+                case 4 -> books.availableAt(rowIndex);
                 default -> "";
-            };
-        }
-
-        @Override
-        public Class<?> getColumnClass(int columnIndex) {
-            return switch (columnIndex) {
-                case 0 -> Integer.class;
-                case 3 -> Double.class;
-                case 4 -> Boolean.class;
-                default -> String.class;
-            };
+            });
         }
     }
 }
\ No newline at end of file
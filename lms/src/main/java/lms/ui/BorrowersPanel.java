@@ -2,18 +2,24 @@ package lms.ui;
 
 import java.awt.*;
 import javax.swing.*;
-import javax.swing.table.AbstractTableModel;
-import javax.swing.table.TableRowSorter;
+import java.util.List;
+import lms.LibraryChange.Entity;
 import lms.LibraryService;
 import lms.model.Borrower;
 
 public class BorrowersPanel extends JPanel {
 
+    private static final String[] COLUMNS = {"ID", "Name", "Email"};
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, String.class, String.class};
+
     private final LibraryService service;
+    private final DbPaging paging;
 
-    private final BorrowersTableModel tableModel;
     private final JTable table;
-    private final TableRowSorter<BorrowersTableModel> sorter;
+    // Exactly one of these is set: rows loaded into the service, or pages read from the DB
+    private final BorrowersTableModel tableModel;
+    private final AsyncRowSorter<BorrowersTableModel> sorter;
+    private final PagedTableModel<Borrower> pagedModel;
 
     private final JTextField txtSearch;
 
@@ -22,7 +28,13 @@ public class BorrowersPanel extends JPanel {
     private final JTextField txtEmail;
 
     public BorrowersPanel(LibraryService service) {
+        this(service, null);
+    }
+
+    /** With {@code paging} set, the table pages borrowers from the database (see {@link DbPaging}). */
+    public BorrowersPanel(LibraryService service, DbPaging paging) {
         this.service = service;
+        this.paging = paging;
 
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -32,14 +44,24 @@ public class BorrowersPanel extends JPanel {
         searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
         searchPanel.add(txtSearch, BorderLayout.CENTER);
 
-        tableModel = new BorrowersTableModel(service);
-        table = new JTable(tableModel);
+        if (paging == null) {
+            tableModel = new BorrowersTableModel(service);
+            service.addListener(tableModel);
+            table = new JTable(tableModel);
+            sorter = new AsyncRowSorter<>(tableModel);
+            // No custom comparator needed
+            table.setRowSorter(sorter);
+            pagedModel = null;
+        } else {
+            pagedModel = new PagedTableModel<>(paging.db().pagedBorrowers(), COLUMNS, COLUMN_CLASSES,
+                    List.of(Borrower::getId, Borrower::getName, Borrower::getEmail), paging::awaitWrites);
+            table = new JTable(pagedModel);
+            table.setRowSorter(new PagedRowSorter<>(pagedModel));
+            tableModel = null;
+            sorter = null;
+        }
         table.setRowHeight(26);
 
-        sorter = new TableRowSorter<>(tableModel);
-        // No custom comparator needed
-        table.setRowSorter(sorter);
-
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createTitledBorder("Borrowers"));
 
@@ -76,11 +98,8 @@ public class BorrowersPanel extends JPanel {
         add(scrollPane, BorderLayout.CENTER);
         add(rightPanel, BorderLayout.EAST);
 
-        txtSearch.getDocument().addDocumentListener((SimpleDocumentListener) e -> {
-            String text = txtSearch.getText().trim();
-            if (text.isEmpty()) sorter.setRowFilter(null);
-            else sorter.setRowFilter(RowFilter.regexFilter("(?i)" + text));
-        });
+        txtSearch.getDocument().addDocumentListener(
+                SimpleDocumentListener.debounced(SimpleDocumentListener.SEARCH_DELAY_MS, this::applySearch));
 
         btnAdd.addActionListener(e -> onAdd());
         btnRemove.addActionListener(e -> onRemove());
@@ -101,6 +120,7 @@ public class BorrowersPanel extends JPanel {
                 JOptionPane.showMessageDialog(this, "Enter a valid email.", "Validation", JOptionPane.WARNING_MESSAGE);
                 return;
             }
+            if (paging != null) paging.loadBorrower(service, id);
             if (service.findBorrower(id).isPresent()) {
                 JOptionPane.showMessageDialog(this, "A borrower with that ID already exists.", "Validation", JOptionPane.WARNING_MESSAGE);
                 return;
@@ -117,6 +137,7 @@ public class BorrowersPanel extends JPanel {
     private void onRemove() {
         try {
             int id = Integer.parseInt(txtId.getText().trim());
+            if (paging != null) paging.loadBorrower(service, id);
             service.removeBorrower(id);
             refreshTable();
         } catch (NumberFormatException ex) {
@@ -149,25 +170,36 @@ public class BorrowersPanel extends JPanel {
         panel.add(field, gbc);
     }
 
+    /** Re-reads a paged table; the in-memory table follows the service's change events by itself. */
     public void refreshTable() {
-        tableModel.fireTableDataChanged();
+        if (pagedModel != null) pagedModel.refresh();
+    }
+
+    private void applySearch() {
+        String text = txtSearch.getText().trim();
+        if (pagedModel != null) pagedModel.setSearch(text);
+        else if (text.isEmpty()) sorter.setRowFilter(null);
+        else sorter.setRowFilter(() -> IdRowFilter.in(service.matchingBorrowerIds(text), 0),
+                new IdRowFilter<>(id -> service.borrowerMatches(id, text), 0));
     }
 
-    private static class BorrowersTableModel extends AbstractTableModel {
+    private static class BorrowersTableModel extends ServiceTableModel {
         private final LibraryService service;
-        private final String[] cols = {"ID", "Name", "Email"};
 
         BorrowersTableModel(LibraryService service) {
+            super(Entity.BORROWER, service.ids(Entity.BORROWER));
             this.service = service;
         }
 
-        @Override public int getRowCount() { return service.getBorrowers().size(); }
-        @Override public int getColumnCount() { return cols.length; }
-        @Override public String getColumnName(int column) { return cols[column]; }
+        @Override public int getColumnCount() { return COLUMNS.length; }
+        @Override public String getColumnName(int column) { return COLUMNS[column]; }
+        @Override public Class<?> getColumnClass(int columnIndex) { return COLUMN_CLASSES[columnIndex]; }
 
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
-            Borrower b = service.getBorrowers().get(rowIndex);
+            List<Borrower> rows = service.getBorrowers();
+            if (rowIndex >= rows.size()) return null;
+            Borrower b = rows.get(rowIndex);
             return switch (columnIndex) {
                 case 0 -> b.getId();
                 case 1 -> b.getName();
@@ -175,10 +207,5 @@ public class BorrowersPanel extends JPanel {
                 default -> "";
             };
         }
-
-        @Override
-        public Class<?> getColumnClass(int columnIndex) {
-            return columnIndex == 0 ? Integer.class : String.class;
-        }
     }
 }
\ No newline at end of file
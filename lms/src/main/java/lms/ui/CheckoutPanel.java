@@ -2,8 +2,6 @@ package lms.ui;
 
 import java.awt.*;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.stream.Collectors;
 import javax.swing.*;
 import lms.LibraryService;
 import lms.model.Book;
@@ -65,12 +63,8 @@ public class CheckoutPanel extends JPanel {
     }
 
     public void refreshDropdowns() {
-        List<Book> availableBooks = service.getBooks().stream()
-                .filter(Book::isAvailable)
-                .collect(Collectors.toList());
-
         cmbBooks.removeAllItems();
-        for (Book b : availableBooks) {
+        for (Book b : service.getAvailableBooks()) {
             cmbBooks.addItem(b);
         }
 
@@ -88,11 +82,6 @@ public class CheckoutPanel extends JPanel {
             LocalDate startDate = LocalDate.parse(txtStartDate.getText().trim(), Loan.UI_DATE_FORMAT);
             int duration = Integer.parseInt(txtDuration.getText().trim());
 
-            if (service.findLoan(loanId).isPresent()) {
-                JOptionPane.showMessageDialog(this, "A loan with that ID already exists.", "Validation", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
             if (book == null) {
                 JOptionPane.showMessageDialog(this, "No available book selected.", "Validation", JOptionPane.WARNING_MESSAGE);
                 return;
@@ -103,14 +92,15 @@ public class CheckoutPanel extends JPanel {
                 return;
             }
 
-            if (!book.isAvailable()) {
-                JOptionPane.showMessageDialog(this, "Selected book is not available.", "Validation", JOptionPane.WARNING_MESSAGE);
+            // The dropdowns may be stale if someone else checked the book out meanwhile
+            String conflict = LoanMessages.conflict(
+                    service.checkout(loanId, book.getId(), borrower.getId(), startDate, duration));
+            if (conflict != null) {
+                refreshDropdowns();
+                JOptionPane.showMessageDialog(this, conflict, "Validation", JOptionPane.WARNING_MESSAGE);
                 return;
             }
 
-            book.setAvailable(false);
-            service.addLoan(new Loan(loanId, book.getId(), borrower.getId(), startDate, duration));
-
             refreshDropdowns();
             clearInputs();
 
@@ -135,15 +125,11 @@ public class CheckoutPanel extends JPanel {
             }
 
             int loanId = Integer.parseInt(loanIdText);
-            Loan loan = service.findLoan(loanId).orElse(null);
-            if (loan == null) {
+            if (!service.returnLoan(loanId).succeeded()) {
                 JOptionPane.showMessageDialog(this, "Loan not found.", "Info", JOptionPane.INFORMATION_MESSAGE);
                 return;
             }
 
-            service.findBook(loan.getBookId()).ifPresent(b -> b.setAvailable(true));
-            service.removeLoan(loanId);
-
             refreshDropdowns();
             JOptionPane.showMessageDialog(this, "Book returned successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
 
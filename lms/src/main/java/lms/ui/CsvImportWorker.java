@@ -0,0 +1,61 @@
+package lms.ui;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.*;
+import lms.LibraryService;
+import lms.io.CsvImporter;
+import lms.io.CsvImporter.ExistingIds;
+import lms.io.CsvImporter.ImportProgress;
+import lms.io.CsvImporter.ImportResult;
+import lms.storage.StorageEngine;
+
+/**
+ * Runs a {@link CsvImporter} off the EDT and streams its progress into the output area.
+ * Duplicate ids are checked against the live service, which is safe to query from
+ * the worker thread.
+ */
+class CsvImportWorker extends SwingWorker<ImportResult, ImportProgress> {
+
+    private static final int REJECTIONS_SHOWN = 20;
+
+    private final CsvImporter importer;
+    private final Path file;
+    private final JTextArea outputArea;
+
+    CsvImportWorker(StorageEngine db, LibraryService service, Path file, JTextArea outputArea) {
+        this.importer = new CsvImporter(db, new ExistingIds(
+                service::containsBook, service::containsBorrower, service::containsLoan, service::isBookAvailable));
+        this.file = file;
+        this.outputArea = outputArea;
+    }
+
+    @Override
+    protected ImportResult doInBackground() throws Exception {
+        return importer.importFile(file, this::publish);
+    }
+
+    @Override
+    protected void process(List<ImportProgress> updates) {
+        ImportProgress p = updates.getLast();
+        outputArea.setText(String.format(Locale.ROOT,
+                "Importing %s ... %.0f%%%n%,d rows read, %,d imported, %,d rejected (%,.0f rows/s)%n",
+                file.getFileName(), p.percent(), p.rowsRead(), p.accepted(), p.rejected(), p.rowsPerSecond()));
+    }
+
+    /** Summary of a finished import, including the first few rejected lines. */
+    static String describe(Path file, ImportResult r) {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "Imported %s into %s: %,d rows read, %,d imported, %,d rejected in %.1f s (%,.0f rows/s)%n",
+                file.getFileName(), r.kind().name().toLowerCase(Locale.ROOT),
+                r.rowsRead(), r.accepted(), r.rejected(), r.elapsedNanos() / 1e9, r.rowsPerSecond()));
+
+        r.rejections().stream().limit(REJECTIONS_SHOWN).forEach(rej ->
+                sb.append("  line ").append(rej.line()).append(": ").append(rej.reason()).append('\n'));
+        if (r.rejected() > REJECTIONS_SHOWN) {
+            sb.append("  ... and ").append(r.rejected() - REJECTIONS_SHOWN).append(" more\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package lms.ui;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lms.LibraryDB;
+import lms.LibraryService;
+import lms.WriteBehindQueue;
+
+/**
+ * Makes the Books, Borrowers and Loans tables page their rows from the database
+ * ({@code -Dlms.tables=db}) instead of listing what is loaded into the service, so
+ * they work on tables far bigger than memory.
+ *
+ * <p>Edits still go through {@link LibraryService} and reach the database via the
+ * write-behind queue (or "Save to DB" without it). A row edited from a paged table
+ * may exist only in the database, so it is loaded into the service first.
+ */
+public record DbPaging(LibraryDB db, WriteBehindQueue writeBehind) {
+
+    /** Waits for queued edits to reach the database, so a refreshed table shows them. */
+    void awaitWrites() {
+        if (writeBehind == null) return;
+        try {
+            writeBehind.flush(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void loadBook(LibraryService service, int id) {
+        if (!service.containsBook(id)) db.findBook(id).ifPresent(b -> service.addLoadedBooks(List.of(b)));
+    }
+
+    void loadBorrower(LibraryService service, int id) {
+        if (!service.containsBorrower(id)) db.findBorrower(id).ifPresent(b -> service.addLoadedBorrowers(List.of(b)));
+    }
+
+    /** Loads the loan together with its book and borrower, so returning it can update the book. */
+    void loadLoan(LibraryService service, int id) {
+        if (service.containsLoan(id)) return;
+        db.findLoan(id).ifPresent(l -> {
+            loadBook(service, l.getBookId());
+            loadBorrower(service, l.getBorrowerId());
+            service.addLoadedLoans(List.of(l));
+        });
+    }
+}
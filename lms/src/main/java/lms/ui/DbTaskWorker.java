@@ -0,0 +1,81 @@
+package lms.ui;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.*;
+import lms.storage.StorageEngine.ProgressListener;
+
+/**
+ * A save or load that runs off the EDT. It shows rows done, percent and throughput in
+ * the output area and a progress bar, and can be cancelled until it commits to its
+ * result: a cancel and the commit race for the same flag, so exactly one of them wins.
+ */
+abstract class DbTaskWorker<T> extends SwingWorker<T, DbTaskWorker.Progress> {
+
+    private static final int RUNNING = 0;
+    private static final int CANCELLED = 1;
+    private static final int COMMITTED = 2;
+
+    private final String action;
+    private final JTextArea outputArea;
+    private final JProgressBar progressBar;
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+    private final long startNanos = System.nanoTime();
+
+    /** @param action what the output area says is happening, e.g. "Saving to database" */
+    DbTaskWorker(String action, JTextArea outputArea, JProgressBar progressBar) {
+        this.action = action;
+        this.outputArea = outputArea;
+        this.progressBar = progressBar;
+    }
+
+    /** Cancels the task unless it already committed; returns whether it was cancelled. */
+    boolean requestCancel() {
+        if (!state.compareAndSet(RUNNING, CANCELLED)) return false;
+        cancel(true);
+        return true;
+    }
+
+    /** Called by the task right before its first step that cannot be undone; false if cancelled. */
+    protected boolean commit() {
+        if (!state.compareAndSet(RUNNING, COMMITTED)) return false;
+        publish(new Progress(-1, 0, 0));
+        return true;
+    }
+
+    /** Publishes the row counts the database reports, with throughput since the task started. */
+    protected ProgressListener progressListener() {
+        return (rowsDone, totalRows) -> publish(new Progress(rowsDone, totalRows, rowsPerSecond(rowsDone)));
+    }
+
+    double rowsPerSecond(long rows) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? rows / seconds : 0;
+    }
+
+    double elapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    protected void process(List<Progress> updates) {
+        Progress p = updates.getLast();
+        if (p.rowsDone() < 0) {
+            progressBar.setIndeterminate(true);
+            outputArea.setText(action + " ... applying\n");
+            return;
+        }
+        progressBar.setIndeterminate(p.totalRows() == 0);
+        progressBar.setValue((int) p.percent());
+        outputArea.setText(String.format(Locale.ROOT, "%s ... %.0f%%%n%,d of %,d rows (%,.0f rows/s)%n",
+                action, p.percent(), p.rowsDone(), p.totalRows(), p.rowsPerSecond()));
+    }
+
+    /** Rows done so far; {@code rowsDone} is -1 once the task committed and is applying its result. */
+    record Progress(long rowsDone, long totalRows, double rowsPerSecond) {
+        double percent() {
+            return totalRows == 0 ? 0 : Math.min(100.0, 100.0 * rowsDone / totalRows);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package lms.ui;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures how responsive the Swing event thread is: every {@code intervalMs} a
+ * background thread posts an empty task to the EDT and records how long it waited
+ * to start. A blocked EDT shows up as one long sample covering the whole stall.
+ *
+ * <p>Keeps the most recent samples; {@link #stats()} summarises them.
+ */
+public final class EdtLatencyProbe implements AutoCloseable {
+
+    private static final int WINDOW = 256;
+
+    private final long[] samples = new long[WINDOW]; // nanoseconds, ring buffer
+    private int count;
+    private final Thread thread;
+
+    public EdtLatencyProbe(int intervalMs) {
+        thread = Thread.ofPlatform().daemon().name("edt-latency-probe").start(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long posted = System.nanoTime();
+                    long[] started = new long[1];
+                    EventQueue.invokeAndWait(() -> started[0] = System.nanoTime());
+                    record(started[0] - posted);
+                    Thread.sleep(intervalMs);
+                }
+            } catch (InterruptedException e) {
+                // closed
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        });
+    }
+
+    private synchronized void record(long nanos) {
+        samples[count++ % WINDOW] = nanos;
+    }
+
+    /** Drops the samples taken so far, e.g. before starting a measured interaction. */
+    public synchronized void reset() {
+        count = 0;
+    }
+
+    public synchronized Stats stats() {
+        long[] window = Arrays.copyOf(samples, Math.min(count, WINDOW));
+        Arrays.sort(window);
+        if (window.length == 0) return new Stats(0, 0, 0, 0);
+        return new Stats(window.length,
+                percentile(window, 0.50) / 1e6, percentile(window, 0.99) / 1e6, window[window.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))];
+    }
+
+    @Override
+    public void close() {
+        thread.interrupt();
+    }
+
+    /** Latency of the sampled EDT round trips, in milliseconds. */
+    public record Stats(int samples, double p50Ms, double p99Ms, double maxMs) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "EDT latency: p50 %.1f ms, p99 %.1f ms, max %.1f ms (%d samples)",
+                    p50Ms, p99Ms, maxMs, samples);
+        }
+    }
+}
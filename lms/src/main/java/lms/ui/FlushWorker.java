@@ -0,0 +1,28 @@
+package lms.ui;
+
+import java.util.concurrent.TimeUnit;
+import javax.swing.*;
+import lms.WriteBehindQueue;
+
+/**
+ * "Save to DB" with write-behind on: every change is already queued, so this only
+ * waits, off the EDT, until the writer has committed them. A cancel stops the wait;
+ * the queued changes are still written.
+ */
+class FlushWorker extends DbTaskWorker<Boolean> {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final WriteBehindQueue writeBehind;
+
+    FlushWorker(WriteBehindQueue writeBehind, JTextArea outputArea, JProgressBar progressBar) {
+        super("Waiting for queued writes", outputArea, progressBar);
+        this.writeBehind = writeBehind;
+    }
+
+    /** True if everything queued before the call was committed in time. */
+    @Override
+    protected Boolean doInBackground() throws InterruptedException {
+        return writeBehind.flush(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
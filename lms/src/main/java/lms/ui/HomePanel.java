@@ -1,33 +1,53 @@
 package lms.ui;
 
-import lms.LibraryDB;
+import lms.Autosave;
+import lms.Autosave.Checkpoint;
 import lms.LibraryService;
+import lms.WriteBehindQueue;
+import lms.storage.StorageEngine;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
 
 public class HomePanel extends JPanel {
 
     private final LibraryService service;
-    private final LibraryDB db;
+    private final StorageEngine db;
+    private final WriteBehindQueue writeBehind; // null when write-behind is disabled
+    private final Autosave autosave;            // saves instead when write-behind is disabled
 
     private final Runnable refreshAllViews;
     private final Runnable displayAllToOutput;
     private final JTextArea outputArea;
 
+    // Save and load run one at a time in the background
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JButton btnCancel = new JButton("Cancel");
+    private List<JButton> dbButtons = List.of();
+    private DbTaskWorker<?> running;
+
     public HomePanel(
             LibraryService service,
-            LibraryDB db,
+            StorageEngine db,
+            WriteBehindQueue writeBehind,
+            Autosave autosave,
             Runnable refreshAllViews,
             Runnable displayAllToOutput,
             JTextArea outputArea
     ) {
         this.service = service;
         this.db = db;
+        this.writeBehind = writeBehind;
+        this.autosave = autosave;
         this.refreshAllViews = refreshAllViews;
         this.displayAllToOutput = displayAllToOutput;
         this.outputArea = outputArea;
@@ -38,6 +58,10 @@ public class HomePanel extends JPanel {
         add(buildHeader(), BorderLayout.NORTH);
         add(buildCenter(), BorderLayout.CENTER);
         add(buildActions(), BorderLayout.SOUTH);
+
+        if (autosave != null) {
+            autosave.setListener(c -> SwingUtilities.invokeLater(() -> outputArea.append(describe(c))));
+        }
     }
 
     private JComponent buildHeader() {
@@ -139,12 +163,26 @@ public class HomePanel extends JPanel {
         JButton btnSave = new JButton("Save to DB");
         JButton btnLoad = new JButton("Load from DB");
         JButton btnClear = new JButton("Clear All");
+        JButton btnImport = new JButton("Import CSV...");
 
         actions.add(btnSeedAll);
         actions.add(btnDisplayAll);
         actions.add(btnSave);
         actions.add(btnLoad);
         actions.add(btnClear);
+        actions.add(btnImport);
+        actions.add(progressBar);
+        actions.add(btnCancel);
+        dbButtons = List.of(btnSave, btnLoad, btnClear, btnImport);
+
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        btnCancel.setVisible(false);
+        btnCancel.addActionListener(e -> {
+            if (running != null && !running.requestCancel()) {
+                outputArea.append("Too late to cancel; finishing.\n");
+            }
+        });
 
         btnSeedAll.addActionListener(e -> {
             seedIfMissing();
@@ -155,37 +193,159 @@ public class HomePanel extends JPanel {
         btnDisplayAll.addActionListener(e -> displayAllToOutput.run());
 
         btnSave.addActionListener(e -> {
-            try {
-                db.saveAll(service.getBooks(), service.getBorrowers(), service.getLoans());
-                outputArea.setText("Saved all data to database successfully.\n");
-            } catch (Exception ex) {
-                outputArea.setText("ERROR saving to DB:\n" + ex.getMessage());
+            if (writeBehind != null) {
+                flushWriteBehind();
+                return;
             }
-        });
 
-        btnLoad.addActionListener(e -> {
-            try {
-                var loaded = db.loadAll();
-                service.clearAll();
-                loaded.books().forEach(service::addBook);
-                loaded.borrowers().forEach(service::addBorrower);
-                loaded.loans().forEach(service::addLoan);
-                refreshAllViews.run();
-                outputArea.setText("Loaded all data from database successfully.\n");
-            } catch (Exception ex) {
-                outputArea.setText("ERROR loading from DB:\n" + ex.getMessage());
+            if (!service.hasUnsavedChanges()) {
+                outputArea.setText("Nothing to save - no changes since last save.\n");
+                return;
             }
+            // Edits made while saving are tracked afresh and saved next time
+            SaveWorker worker = new SaveWorker(autosave, outputArea, progressBar) {
+                @Override
+                protected void done() {
+                    finished();
+                    try {
+                        reportSaved(get());
+                    } catch (CancellationException ex) {
+                        // The cancel can land between the DB commit and commit(); report what happened
+                        if (saved() != null) reportSaved(saved());
+                        else outputArea.setText("Save cancelled; the changes are still pending.\n");
+                    } catch (Exception ex) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        outputArea.setText("ERROR saving to DB:\n" + cause.getMessage());
+                    }
+                }
+
+                private void reportSaved(Checkpoint saved) {
+                    outputArea.setText(String.format(Locale.ROOT,
+                            "Saved %,d change(s) to database successfully in %.1f s (%,.0f rows/s).%nAutosave: %s%n",
+                            saved.changes(), elapsedSeconds(), rowsPerSecond(saved.changes()), autosave.stats()));
+                }
+            };
+            start(worker);
         });
 
+        btnLoad.addActionListener(e -> loadFromDb(""));
+
         btnClear.addActionListener(e -> {
-            service.clearAll();
+            // replaceAll() forgets unsaved changes (with write-behind there are none: they are queued)
+            if (service.hasUnsavedChanges()) {
+                int opt = JOptionPane.showConfirmDialog(this,
+                        "Unsaved changes will be lost when the data is cleared. Continue?",
+                        "Confirm", JOptionPane.YES_NO_OPTION);
+                if (opt != JOptionPane.YES_OPTION) return;
+            }
+            // Unloads the working set only; with write-behind, clearAll() would delete the rows from the DB
+            service.replaceAll(List.of(), List.of(), List.of());
             refreshAllViews.run();
             outputArea.setText("Cleared all in-memory data.\n");
         });
 
+        btnImport.addActionListener(e -> onImportCsv(btnImport));
+
         return actions;
     }
 
+    private void start(DbTaskWorker<?> worker) {
+        running = worker;
+        dbButtons.forEach(b -> b.setEnabled(false));
+        progressBar.setValue(0);
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(true);
+        btnCancel.setVisible(true);
+        revalidate();
+        worker.execute();
+    }
+
+    private void finished() {
+        running = null;
+        dbButtons.forEach(b -> b.setEnabled(true));
+        progressBar.setVisible(false);
+        btnCancel.setVisible(false);
+        revalidate();
+    }
+
+    private void loadFromDb(String messagePrefix) {
+        LoadWorker worker = new LoadWorker(db, service, writeBehind, autosave, outputArea, progressBar) {
+            @Override
+            protected void done() {
+                finished();
+                try {
+                    int loaded = get();
+                    refreshAllViews.run();
+                    outputArea.setText(String.format(Locale.ROOT,
+                            "%sLoaded %,d rows from database successfully in %.1f s (%,.0f rows/s).%n",
+                            messagePrefix, loaded, elapsedSeconds(), rowsPerSecond(loaded)));
+                } catch (CancellationException ex) {
+                    outputArea.setText(messagePrefix + "Load cancelled; the data in memory is unchanged.\n");
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    outputArea.setText(messagePrefix + "ERROR loading from DB:\n" + cause.getMessage());
+                }
+            }
+        };
+        outputArea.setText(messagePrefix + "Loading from database ...\n");
+        start(worker);
+    }
+
+    private void onImportCsv(JButton btnImport) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import books, borrowers or loans");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        // The import writes straight to the DB and then reloads; the reload saves unsaved changes first
+
+        Path file = chooser.getSelectedFile().toPath();
+        btnImport.setEnabled(false);
+        outputArea.setText("Importing " + file.getFileName() + " ...\n");
+
+        new CsvImportWorker(db, service, file, outputArea) {
+            @Override
+            protected void done() {
+                btnImport.setEnabled(true);
+                try {
+                    loadFromDb(describe(file, get()) + "\n");
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    outputArea.setText("ERROR importing " + file.getFileName() + ":\n" + cause.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private String describe(Checkpoint c) {
+        if (c.error() != null) return "ERROR autosaving (will retry): " + c.error() + "\n";
+        return String.format(Locale.ROOT, "Autosaved %,d change(s) in %.1f ms (every %.1f s; loss window <= %.1f s)%n",
+                c.changes(), c.costMillis(), autosave.intervalMillis() / 1e3, autosave.stats().maxLossWindowMillis() / 1e3);
+    }
+
+    private void flushWriteBehind() {
+        // Every change is already queued for the background writer; just wait for it
+        FlushWorker worker = new FlushWorker(writeBehind, outputArea, progressBar) {
+            @Override
+            protected void done() {
+                finished();
+                try {
+                    outputArea.setText((get()
+                            ? "All changes are saved to the database.\n"
+                            : "ERROR: changes are still pending; the database did not accept them in time.\n")
+                            + "Write-behind: " + writeBehind.stats() + "\n");
+                } catch (CancellationException ex) {
+                    outputArea.setText("Stopped waiting; the changes are still queued and will be written.\n");
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    outputArea.setText("ERROR waiting for queued writes:\n" + cause.getMessage());
+                }
+            }
+        };
+        outputArea.setText("Waiting for queued writes ...\n");
+        start(worker);
+    }
+
     private void seedIfMissing() {
         if (service.getBooks().isEmpty()) {
             service.addBook(new lms.model.Book(1001, "Clean Code", "Robert C. Martin", 2.5, true));
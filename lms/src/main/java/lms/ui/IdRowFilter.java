@@ -0,0 +1,34 @@
+package lms.ui;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import javax.swing.RowFilter;
+
+/**
+ * Keeps the rows whose id (an Integer in {@code idColumn}) passes a test, e.g. is in
+ * the set of ids a search index returned. Checking a row is a lookup, not a regex
+ * over every cell.
+ */
+final class IdRowFilter<M> extends RowFilter<M, Integer> {
+
+    private final IntPredicate matches;
+    private final int idColumn;
+
+    IdRowFilter(IntPredicate matches, int idColumn) {
+        this.matches = matches;
+        this.idColumn = idColumn;
+    }
+
+    /** Rows whose id is one of {@code ids}; a binary search per row. */
+    static <M> IdRowFilter<M> in(int[] ids, int idColumn) {
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        return new IdRowFilter<>(id -> Arrays.binarySearch(sorted, id) >= 0, idColumn);
+    }
+
+    @Override
+    public boolean include(Entry<? extends M, ? extends Integer> entry) {
+        // A row the service removed a moment ago reads as null until its event arrives
+        return entry.getValue(idColumn) instanceof Integer id && matches.test(id);
+    }
+}
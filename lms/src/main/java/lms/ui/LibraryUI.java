@@ -1,40 +1,107 @@
 package lms.ui;
 
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
 import javax.swing.*;
+import lms.Autosave;
 import lms.LibraryDB;
 import lms.LibraryService;
+import lms.WriteBehindQueue;
+import lms.journal.Journal;
+import lms.storage.CachedSqliteStorage;
+import lms.storage.StorageEngine;
+import lms.storage.StorageEngines;
+import lms.catalog.BookCatalog;
+import lms.catalog.ColumnarBookCatalog;
+import lms.catalog.ObjectBookCatalog;
+import lms.catalog.OffHeapBookCatalog;
 
 public class LibraryUI extends JFrame {
 
+    private final BookCatalog catalog;
     private final LibraryService service;
-    private final LibraryDB db;
+    private final StorageEngine db;
+    private final WriteBehindQueue writeBehind;
+    private final Autosave autosave;
+    private final Journal journal;
+    private final EdtLatencyProbe edtProbe;
 
     private final JTextArea outputArea;
 
     public LibraryUI() {
         super("Library Management System (LMS)");
 
-        this.service = new LibraryService();
-        this.db = new LibraryDB();
+        this.catalog = createCatalog();
+        this.service = new LibraryService(catalog);
+        // -Dlms.storage=sqlite|memory|snapshot (-Dlms.storage.location=<file or dir>)
+        this.db = StorageEngines.fromSystemProperties();
+
+        // -Dlms.journal=<dir> logs every change there and restores the library from it on start
+        String journalDir = System.getProperty("lms.journal");
+        this.journal = journalDir == null ? null : Journal.open(Path.of(journalDir));
+        if (journal != null) journal.attach(service);
+
+        // -Dlms.writeBehind=false saves in periodic checkpoints (and on "Save to DB") instead
+        if (Boolean.parseBoolean(System.getProperty("lms.writeBehind", "true"))) {
+            this.writeBehind = new WriteBehindQueue(db);
+            service.addListener(writeBehind);
+            // The queue persists every change, so the service need not remember them for a save
+            service.setChangeTracking(false);
+            this.autosave = null;
+        } else {
+            this.writeBehind = null;
+            // Saves the changes every few seconds (-Dlms.autosave.seconds, 0 = only on "Save to DB")
+            this.autosave = new Autosave(service, db, autosaveIntervalMillis());
+        }
+
+        // -Dlms.edtLatency=true shows how long the event thread takes to respond
+        this.edtProbe = Boolean.getBoolean("lms.edtLatency") ? new EdtLatencyProbe(50) : null;
 
         setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         setMinimumSize(new Dimension(1100, 700));
         setLocationRelativeTo(null);
 
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (edtProbe != null) edtProbe.close();
+                if (writeBehind != null) writeBehind.close();
+                if (autosave != null) autosave.close();
+                if (journal != null) journal.close();
+                db.close();
+                catalog.close();
+            }
+        });
+
         // Output panel (rubric-style display)
         outputArea = new JTextArea(12, 80);
         outputArea.setEditable(false);
         outputArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
         JScrollPane outputScroll = new JScrollPane(outputArea);
         outputScroll.setBorder(BorderFactory.createTitledBorder("Output (for display loop / messages)"));
+        if (journal != null) {
+            outputArea.append("Journal recovered " + journal.recovered() + "\n");
+            journal.setFailureListener(e -> SwingUtilities.invokeLater(() -> {
+                outputArea.append("Journal stopped after a write failure; changes are no longer logged: " + e.getMessage() + "\n");
+                JOptionPane.showMessageDialog(this, "The journal could not write to disk and has stopped:\n" + e.getMessage()
+                        + "\n\nChanges from now on are not journaled.", "Journal failed", JOptionPane.ERROR_MESSAGE);
+            }));
+        }
 
         // Tabs
         JTabbedPane tabs = new JTabbedPane();
 
-        BooksPanel booksPanel = new BooksPanel(service);
-        BorrowersPanel borrowersPanel = new BorrowersPanel(service);
-        LoansPanel loansPanel = new LoansPanel(service);
+        // -Dlms.tables=db pages the tables from the database instead of the loaded data (SQLite only)
+        LibraryDB sqlite = db instanceof CachedSqliteStorage cached ? cached.database()
+                : db instanceof LibraryDB plain ? plain : null;
+        DbPaging paging = "db".equals(System.getProperty("lms.tables")) && sqlite != null
+                ? new DbPaging(sqlite, writeBehind) : null;
+
+        BooksPanel booksPanel = new BooksPanel(service, paging);
+        BorrowersPanel borrowersPanel = new BorrowersPanel(service, paging);
+        LoansPanel loansPanel = new LoansPanel(service, paging);
         CheckoutPanel checkoutPanel = new CheckoutPanel(service);
 
         Runnable refreshAll = () -> {
@@ -46,7 +113,7 @@ public class LibraryUI extends JFrame {
 
         Runnable displayAll = this::displayAllToOutput;
 
-        HomePanel homePanel = new HomePanel(service, db, refreshAll, displayAll, outputArea);
+        HomePanel homePanel = new HomePanel(service, db, writeBehind, autosave, refreshAll, displayAll, outputArea);
 
         tabs.addTab("Home", homePanel);
         tabs.addTab("Books", booksPanel);
@@ -61,6 +128,35 @@ public class LibraryUI extends JFrame {
 
         setLayout(new BorderLayout());
         add(centerPanel, BorderLayout.CENTER);
+
+        if (edtProbe != null) {
+            JLabel latency = new JLabel(" ");
+            latency.setBorder(BorderFactory.createEmptyBorder(2, 8, 2, 8));
+            new Timer(1000, e -> latency.setText(edtProbe.stats().toString())).start();
+            add(latency, BorderLayout.SOUTH);
+        }
+    }
+
+    private static long autosaveIntervalMillis() {
+        String seconds = System.getProperty("lms.autosave.seconds");
+        if (seconds == null) return Autosave.DEFAULT_INTERVAL_MILLIS;
+        return Math.round(Double.parseDouble(seconds) * 1000);
+    }
+
+    /**
+     * Book storage, picked with {@code -Dlms.catalog}: {@code columnar} (primitive columns)
+     * or {@code offheap} (outside the heap; with {@code -Dlms.catalog.file=<path>} the books
+     * are memory-mapped to that file and reappear on the next start). Default: one object per book.
+     */
+    private static BookCatalog createCatalog() {
+        String file = System.getProperty("lms.catalog.file");
+        return switch (System.getProperty("lms.catalog", "object")) {
+            case "columnar" -> new ColumnarBookCatalog();
+            case "offheap" -> file != null
+                    ? OffHeapBookCatalog.open(Path.of(file))
+                    : OffHeapBookCatalog.inMemory(0);
+            default -> new ObjectBookCatalog();
+        };
     }
 
     private void displayAllToOutput() {
@@ -0,0 +1,58 @@
+package lms.ui;
+
+import java.util.concurrent.TimeUnit;
+import javax.swing.*;
+import lms.Autosave;
+import lms.LibraryService;
+import lms.WriteBehindQueue;
+import lms.storage.StorageEngine;
+import lms.storage.StorageEngine.LoadedData;
+
+/**
+ * Reads the whole database off the EDT (with SQLite, the tables in parallel, see
+ * {@link lms.LibraryDB#loadAll}) and only then replaces the service's contents, in one
+ * step. Until that step the service is untouched, so a cancelled or failed load
+ * leaves the previous data in place. Unsaved changes are saved first, since the rows
+ * it reads would not include them: with write-behind on, the load waits for the
+ * queued writes and gives up if they do not reach the database in time; otherwise it
+ * runs an autosave checkpoint and gives up if that fails.
+ */
+class LoadWorker extends DbTaskWorker<Integer> {
+
+    private final StorageEngine db;
+    private final LibraryService service;
+    private final WriteBehindQueue writeBehind; // null when write-behind is disabled
+    private final Autosave autosave;            // saves instead when write-behind is disabled
+
+    LoadWorker(StorageEngine db, LibraryService service, WriteBehindQueue writeBehind, Autosave autosave,
+               JTextArea outputArea, JProgressBar progressBar) {
+        super("Loading from database", outputArea, progressBar);
+        this.db = db;
+        this.service = service;
+        this.writeBehind = writeBehind;
+        this.autosave = autosave;
+    }
+
+    @Override
+    protected Integer doInBackground() throws Exception {
+        // Make sure queued writes are in the DB before reading it back
+        if (writeBehind != null && !writeBehind.flush(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Queued changes have not reached the database yet; load aborted so they "
+                    + "are not overwritten. Try again once they are saved (write-behind: " + writeBehind.stats() + ")");
+        }
+        if (autosave != null) {
+            try {
+                autosave.checkpoint(progressListener());
+            } catch (RuntimeException e) {
+                // The checkpoint kept its changes; replacing the data now would drop them
+                throw new IllegalStateException("Unsaved changes could not be saved; load aborted so they are "
+                        + "not lost: " + e.getMessage(), e);
+            }
+        }
+
+        LoadedData data = db.loadAll(progressListener());
+        if (!commit()) return null;
+        service.replaceAll(data.books(), data.borrowers(), data.loans());
+        return data.rowCount();
+    }
+}
@@ -0,0 +1,23 @@
+package lms.ui;
+
+import lms.CheckoutResult;
+
+/** User-facing text for checkout conflicts, shared by the Checkout and Loans tabs. */
+final class LoanMessages {
+
+    private LoanMessages() {}
+
+    /** Why a checkout was refused, or {@code null} if it succeeded. */
+    static String conflict(CheckoutResult result) {
+        return switch (result) {
+            case CheckoutResult.CheckedOut ok -> null;
+            case CheckoutResult.BookNotFound r -> "Book ID " + r.bookId() + " not found.";
+            case CheckoutResult.BorrowerNotFound r -> "Borrower ID " + r.borrowerId() + " not found.";
+            case CheckoutResult.LoanIdTaken r -> "A loan with ID " + r.loanId() + " already exists.";
+            case CheckoutResult.BookUnavailable r -> r.heldBy() == null
+                    ? "That book is not available."
+                    : "That book is already on loan " + r.heldBy().getId()
+                      + " to borrower " + r.heldBy().getBorrowerId() + ".";
+        };
+    }
+}
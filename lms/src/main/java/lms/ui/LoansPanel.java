@@ -2,9 +2,9 @@ package lms.ui;
 
 import java.awt.*;
 import java.time.LocalDate;
+import java.util.List;
 import javax.swing.*;
-import javax.swing.table.AbstractTableModel;
-import javax.swing.table.TableRowSorter;
+import lms.LibraryChange.Entity;
 import lms.LibraryService;
 import lms.model.Book;
 import lms.model.Borrower;
@@ -12,11 +12,17 @@ import lms.model.Loan;
 
 public class LoansPanel extends JPanel {
 
+    private static final String[] COLUMNS = {"Loan ID", "Book ID", "Borrower ID", "Start Date", "Duration (days)"};
+    private static final Class<?>[] COLUMN_CLASSES = {Integer.class, Integer.class, Integer.class, String.class, Integer.class};
+
     private final LibraryService service;
+    private final DbPaging paging;
 
-    private final LoansTableModel tableModel;
     private final JTable table;
-    private final TableRowSorter<LoansTableModel> sorter;
+    // Exactly one of these is set: rows loaded into the service, or pages read from the DB
+    private final LoansTableModel tableModel;
+    private final AsyncRowSorter<LoansTableModel> sorter;
+    private final PagedTableModel<Loan> pagedModel;
 
     private final JTextField txtSearch;
 
@@ -27,7 +33,13 @@ public class LoansPanel extends JPanel {
     private final JTextField txtDuration;
 
     public LoansPanel(LibraryService service) {
+        this(service, null);
+    }
+
+    /** With {@code paging} set, the table pages loans from the database (see {@link DbPaging}). */
+    public LoansPanel(LibraryService service, DbPaging paging) {
         this.service = service;
+        this.paging = paging;
 
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -37,13 +49,25 @@ public class LoansPanel extends JPanel {
         searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
         searchPanel.add(txtSearch, BorderLayout.CENTER);
 
-        tableModel = new LoansTableModel(service);
-        table = new JTable(tableModel);
+        if (paging == null) {
+            tableModel = new LoansTableModel(service);
+            service.addListener(tableModel);
+            table = new JTable(tableModel);
+            sorter = new AsyncRowSorter<>(tableModel);
+            table.setRowSorter(sorter);
+            pagedModel = null;
+        } else {
+            // Start Date sorts by the stored epoch day, so the DD-MM-YYYY text still sorts by date
+            pagedModel = new PagedTableModel<>(paging.db().pagedLoans(), COLUMNS, COLUMN_CLASSES,
+                    List.of(Loan::getId, Loan::getBookId, Loan::getBorrowerId, Loan::getStartDateUi, Loan::getDurationDays),
+                    paging::awaitWrites);
+            table = new JTable(pagedModel);
+            table.setRowSorter(new PagedRowSorter<>(pagedModel));
+            tableModel = null;
+            sorter = null;
+        }
         table.setRowHeight(26);
 
-        sorter = new TableRowSorter<>(tableModel);
-        table.setRowSorter(sorter);
-
         JScrollPane scrollPane = new JScrollPane(table);
         scrollPane.setBorder(BorderFactory.createTitledBorder("Loans"));
 
@@ -84,11 +108,8 @@ public class LoansPanel extends JPanel {
         add(scrollPane, BorderLayout.CENTER);
         add(rightPanel, BorderLayout.EAST);
 
-        txtSearch.getDocument().addDocumentListener((SimpleDocumentListener) e -> {
-            String text = txtSearch.getText().trim();
-            if (text.isEmpty()) sorter.setRowFilter(null);
-            else sorter.setRowFilter(RowFilter.regexFilter("(?i)" + text));
-        });
+        txtSearch.getDocument().addDocumentListener(
+                SimpleDocumentListener.debounced(SimpleDocumentListener.SEARCH_DELAY_MS, this::applySearch));
 
         btnAdd.addActionListener(e -> onAdd());
         btnRemove.addActionListener(e -> onRemove());
@@ -103,29 +124,16 @@ public class LoansPanel extends JPanel {
             LocalDate startDate = LocalDate.parse(txtStartDate.getText().trim(), Loan.UI_DATE_FORMAT);
             int duration = Integer.parseInt(txtDuration.getText().trim());
 
-            if (service.findLoan(id).isPresent()) {
-                JOptionPane.showMessageDialog(this, "A loan with that ID already exists.", "Validation", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            Book book = service.findBook(bookId).orElse(null);
-            if (book == null) {
-                JOptionPane.showMessageDialog(this, "Book ID not found.", "Validation", JOptionPane.WARNING_MESSAGE);
-                return;
+            if (paging != null) {
+                paging.loadBook(service, bookId);
+                paging.loadBorrower(service, borrowerId);
+                paging.loadLoan(service, id);
             }
-            if (!book.isAvailable()) {
-                JOptionPane.showMessageDialog(this, "That book is not available.", "Validation", JOptionPane.WARNING_MESSAGE);
+            String conflict = LoanMessages.conflict(service.checkout(id, bookId, borrowerId, startDate, duration));
+            if (conflict != null) {
+                JOptionPane.showMessageDialog(this, conflict, "Validation", JOptionPane.WARNING_MESSAGE);
                 return;
             }
-
-            Borrower borrower = service.findBorrower(borrowerId).orElse(null);
-            if (borrower == null) {
-                JOptionPane.showMessageDialog(this, "Borrower ID not found.", "Validation", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            book.setAvailable(false);
-            service.addLoan(new Loan(id, bookId, borrowerId, startDate, duration));
             refreshTable();
             clearInputs();
         } catch (Exception ex) {
@@ -141,11 +149,8 @@ public class LoansPanel extends JPanel {
     private void onRemove() {
         try {
             int id = Integer.parseInt(txtId.getText().trim());
-            Loan loan = service.findLoan(id).orElse(null);
-            if (loan != null) {
-                service.findBook(loan.getBookId()).ifPresent(b -> b.setAvailable(true));
-            }
-            service.removeLoan(id);
+            if (paging != null) paging.loadLoan(service, id);
+            service.returnLoan(id);
             refreshTable();
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Enter a valid Loan ID to remove.", "Validation", JOptionPane.WARNING_MESSAGE);
@@ -163,7 +168,7 @@ public class LoansPanel extends JPanel {
             if (opt != JOptionPane.YES_OPTION) return;
         }
 
-        Book book = service.getBooks().stream().filter(Book::isAvailable).findFirst().orElse(null);
+        Book book = service.getAvailableBooks().stream().findFirst().orElse(null);
         Borrower borrower = service.getBorrowers().stream().findFirst().orElse(null);
 
         if (book == null || borrower == null) {
@@ -174,8 +179,11 @@ public class LoansPanel extends JPanel {
         int base = service.getLoans().size() + 1;
         int loanId = 300 + base;
 
-        book.setAvailable(false);
-        service.addLoan(new Loan(loanId, book.getId(), borrower.getId(), LocalDate.now(), 14));
+        String conflict = LoanMessages.conflict(service.checkout(loanId, book.getId(), borrower.getId(), LocalDate.now(), 14));
+        if (conflict != null) {
+            JOptionPane.showMessageDialog(this, conflict, "Info", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
         refreshTable();
     }
 
@@ -199,26 +207,37 @@ public class LoansPanel extends JPanel {
         panel.add(field, gbc);
     }
 
+    /** Re-reads a paged table; the in-memory table follows the service's change events by itself. */
     public void refreshTable() {
-        tableModel.fireTableDataChanged();
+        if (pagedModel != null) pagedModel.refresh();
+    }
+
+    private void applySearch() {
+        String text = txtSearch.getText().trim();
+        if (pagedModel != null) pagedModel.setSearch(text);
+        else if (text.isEmpty()) sorter.setRowFilter(null);
+        else sorter.setRowFilter(() -> IdRowFilter.in(service.matchingLoanIds(text), 0),
+                new IdRowFilter<>(id -> service.loanMatches(id, text), 0));
     }
 
-    private static class LoansTableModel extends AbstractTableModel {
+    private static class LoansTableModel extends ServiceTableModel {
 
         private final LibraryService service;
-        private final String[] cols = {"Loan ID", "Book ID", "Borrower ID", "Start Date", "Duration (days)"};
 
         LoansTableModel(LibraryService service) {
+            super(Entity.LOAN, service.ids(Entity.LOAN));
             this.service = service;
         }
 
-        @Override public int getRowCount() { return service.getLoans().size(); }
-        @Override public int getColumnCount() { return cols.length; }
-        @Override public String getColumnName(int column) { return cols[column]; }
+        @Override public int getColumnCount() { return COLUMNS.length; }
+        @Override public String getColumnName(int column) { return COLUMNS[column]; }
+        @Override public Class<?> getColumnClass(int columnIndex) { return COLUMN_CLASSES[columnIndex]; }
 
         @Override
         public Object getValueAt(int rowIndex, int columnIndex) {
-            Loan l = service.getLoans().get(rowIndex);
+            List<Loan> rows = service.getLoans();
+            if (rowIndex >= rows.size()) return null;
+            Loan l = rows.get(rowIndex);
             return switch (columnIndex) {
                 case 0 -> l.getId();
                 case 1 -> l.getBookId();
@@ -228,13 +247,5 @@ public class LoansPanel extends JPanel {
                 default -> "";
             };
         }
-
-        @Override
-        public Class<?> getColumnClass(int columnIndex) {
-            return switch (columnIndex) {
-                case 0, 1, 2, 4 -> Integer.class;
-                default -> String.class;
-            };
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package lms.ui;
+
+import java.util.List;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import lms.PagedTable.Order;
+
+/**
+ * Header sorting for a {@link PagedTableModel}: a click changes the ORDER BY the
+ * model reads its pages with, so rows already arrive in view order and the view
+ * maps one-to-one onto the model. Sorts by one column at a time.
+ */
+public class PagedRowSorter<T> extends RowSorter<PagedTableModel<T>> {
+
+    private final PagedTableModel<T> model;
+    private List<SortKey> sortKeys = List.of();
+
+    public PagedRowSorter(PagedTableModel<T> model) {
+        this.model = model;
+    }
+
+    @Override
+    public PagedTableModel<T> getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        boolean ascending = sortKeys.isEmpty()
+                || sortKeys.getFirst().getColumn() != column
+                || sortKeys.getFirst().getSortOrder() != SortOrder.ASCENDING;
+        setSortKeys(List.of(new SortKey(column, ascending ? SortOrder.ASCENDING : SortOrder.DESCENDING)));
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        sortKeys = keys == null || keys.isEmpty() ? List.of() : List.of(keys.getFirst());
+        fireSortOrderChanged();
+        model.setOrder(sortKeys.isEmpty()
+                ? Order.BY_ID
+                : new Order(sortKeys.getFirst().getColumn(), sortKeys.getFirst().getSortOrder() == SortOrder.DESCENDING));
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override public int convertRowIndexToModel(int index) { return index; }
+    @Override public int convertRowIndexToView(int index) { return index; }
+    @Override public int getViewRowCount() { return model.getRowCount(); }
+    @Override public int getModelRowCount() { return model.getRowCount(); }
+
+    // The model's own events already describe the view
+    @Override public void modelStructureChanged() {}
+    @Override public void allRowsChanged() {}
+    @Override public void rowsInserted(int firstRow, int endRow) {}
+    @Override public void rowsDeleted(int firstRow, int endRow) {}
+    @Override public void rowsUpdated(int firstRow, int endRow) {}
+    @Override public void rowsUpdated(int firstRow, int endRow, int column) {}
+}
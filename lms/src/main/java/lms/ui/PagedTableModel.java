@@ -0,0 +1,191 @@
+package lms.ui;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Function;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import lms.PagedTable;
+import lms.PagedTable.Order;
+
+/**
+ * A table model that holds only the pages of rows the table has asked for. Pages are
+ * read from a {@link PagedTable} on a background thread, kept in an LRU cache, and
+ * the next pages in the scroll direction are read ahead. A cell whose page is still
+ * loading shows as empty until it arrives.
+ *
+ * <p>Search and sort order are applied by the database ({@link #setSearch},
+ * {@link #setOrder}), so even a 10M-row table only ever has a few thousand rows in
+ * memory. The newest request is served first, and pages the user has scrolled far
+ * past are skipped.
+ */
+public class PagedTableModel<T> extends AbstractTableModel {
+
+    public static final int PAGE_SIZE = 200;
+    private static final int CACHE_PAGES = 64;
+    private static final int READ_AHEAD_PAGES = 2;
+
+    private final PagedTable<T> source;
+    private final String[] columnNames;
+    private final Class<?>[] columnClasses;
+    private final List<Function<T, Object>> cells;
+    private final Runnable beforeRefresh;
+
+    // Accessed on the EDT only
+    private String search = "";
+    private Order order = Order.BY_ID;
+    private int rowCount;
+    private int lastPage;
+    private final Set<Integer> loading = new HashSet<>();
+    private final Map<Integer, List<T>> pages = new LinkedHashMap<>(CACHE_PAGES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+            return size() > CACHE_PAGES;
+        }
+    };
+
+    // Read by the loader to drop requests made for an older search, order or refresh
+    private volatile int generation;
+    private volatile int focusPage;
+
+    private final LinkedBlockingDeque<Runnable> requests = new LinkedBlockingDeque<>();
+
+    /**
+     * @param cells         the value shown in each column for a row
+     * @param beforeRefresh runs on the loader before rows are counted again, e.g. to
+     *                      wait for queued writes to reach the database
+     */
+    public PagedTableModel(PagedTable<T> source, String[] columnNames, Class<?>[] columnClasses,
+                           List<Function<T, Object>> cells, Runnable beforeRefresh) {
+        this.source = source;
+        this.columnNames = columnNames;
+        this.columnClasses = columnClasses;
+        this.cells = cells;
+        this.beforeRefresh = beforeRefresh;
+
+        Thread.ofVirtual().name("paged-table-loader").start(this::serveRequests);
+        refresh();
+    }
+
+    @Override public int getRowCount() { return rowCount; }
+    @Override public int getColumnCount() { return columnNames.length; }
+    @Override public String getColumnName(int column) { return columnNames[column]; }
+    @Override public Class<?> getColumnClass(int column) { return columnClasses[column]; }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T row = rowAt(rowIndex);
+        return row == null ? null : cells.get(columnIndex).apply(row);
+    }
+
+    /** The row at {@code rowIndex}, or null while its page is loading. */
+    public T rowAt(int rowIndex) {
+        int p = rowIndex / PAGE_SIZE;
+        List<T> page = pages.get(p);
+        if (page == null) request(p);
+        if (p != lastPage) {
+            readAhead(p, p > lastPage ? 1 : -1);
+            lastPage = p;
+        }
+        int i = rowIndex % PAGE_SIZE;
+        return page == null || i >= page.size() ? null : page.get(i);
+    }
+
+    public void setSearch(String text) {
+        if (text.equals(search)) return;
+        search = text;
+        refresh();
+    }
+
+    public void setOrder(Order order) {
+        if (order.equals(this.order)) return;
+        this.order = order;
+        refresh();
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    /** Drops every cached page and counts the rows again, e.g. after an edit. */
+    public void refresh() {
+        int gen = ++generation;
+        pages.clear();
+        loading.clear();
+        String text = search;
+        requests.offerLast(() -> {
+            if (gen != generation) return;
+            beforeRefresh.run();
+            int count = source.count(text);
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                rowCount = count;
+                fireTableDataChanged();
+            });
+        });
+    }
+
+    private void readAhead(int page, int direction) {
+        for (int i = 1; i <= READ_AHEAD_PAGES; i++) {
+            int next = page + i * direction;
+            if (next >= 0 && next * PAGE_SIZE < rowCount && !pages.containsKey(next)) request(next);
+        }
+    }
+
+    private void request(int page) {
+        if (!loading.add(page)) return;
+        focusPage = page;
+
+        int gen = generation;
+        String text = search;
+        Order by = order;
+        // Continue from the previous page's last row when we have it: a seek, not an OFFSET scan
+        List<T> previous = pages.get(page - 1);
+        T after = previous != null && previous.size() == PAGE_SIZE ? previous.getLast() : null;
+
+        requests.offerLast(() -> {
+            if (gen != generation) return;
+            if (Math.abs(page - focusPage) > CACHE_PAGES / 2) {
+                // Scrolled far past it; it is requested again if it comes back into view
+                SwingUtilities.invokeLater(() -> loading.remove(page));
+                return;
+            }
+            List<T> rows = after != null
+                    ? source.pageAfter(text, by, after, PAGE_SIZE)
+                    : source.page(text, by, page * PAGE_SIZE, PAGE_SIZE);
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                loading.remove(page);
+                pages.put(page, rows);
+                int first = page * PAGE_SIZE;
+                int last = Math.min(rowCount, first + rows.size()) - 1;
+                if (first <= last) fireTableRowsUpdated(first, last);
+            });
+        });
+    }
+
+    private void serveRequests() {
+        while (true) {
+            Runnable request;
+            try {
+                // Newest first: the rows the user is looking at now
+                request = requests.takeLast();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                request.run();
+            } catch (RuntimeException e) {
+                // Forget what was in flight so the table asks again, and report on the EDT
+                SwingUtilities.invokeLater(() -> {
+                    loading.clear();
+                    throw e;
+                });
+            }
+        }
+    }
+}
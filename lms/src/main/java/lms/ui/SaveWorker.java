@@ -0,0 +1,36 @@
+package lms.ui;
+
+import javax.swing.*;
+import lms.Autosave;
+import lms.Autosave.Checkpoint;
+
+/**
+ * Saves the changes made since the last checkpoint, off the EDT, through the same
+ * {@link Autosave} that saves them periodically. A cancel rolls the transaction back
+ * and the changes stay pending. A cancel that arrives after the transaction committed
+ * cannot undo it; {@link #saved()} then still reports what was saved.
+ */
+class SaveWorker extends DbTaskWorker<Checkpoint> {
+
+    private final Autosave autosave;
+    private volatile Checkpoint saved;
+
+    SaveWorker(Autosave autosave, JTextArea outputArea, JProgressBar progressBar) {
+        super("Saving to database", outputArea, progressBar);
+        this.autosave = autosave;
+    }
+
+    /** The checkpoint once it committed, even if a cancel marked the worker cancelled; else null. */
+    Checkpoint saved() {
+        return saved;
+    }
+
+    @Override
+    protected Checkpoint doInBackground() {
+        Checkpoint checkpoint = autosave.checkpoint(progressListener());
+        // Committed in the DB; a cancel from now on is too late to undo it
+        saved = checkpoint;
+        commit();
+        return checkpoint;
+    }
+}
@@ -0,0 +1,94 @@
+package lms.ui;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import lms.LibraryChange;
+import lms.LibraryChange.Entity;
+import lms.LibraryListener;
+
+/**
+ * A table model listing one of the service's tables, row for row. It follows the
+ * service's change events and fires the matching rows-inserted/updated/deleted events,
+ * so the table keeps its selection and scroll position and the sorter only revisits
+ * the rows that changed. Register it with {@link lms.LibraryService#addListener}.
+ *
+ * <p>Events arrive on the mutating thread, under the service's lock; they are queued
+ * and replayed on the EDT. The row count the table sees moves with the replayed
+ * events rather than with the service, so the two always agree. A cell read for a row
+ * the service has since removed shows as empty until its event is replayed. The model
+ * keeps the id of each row as of the replayed events, so {@link #idAt} names the row
+ * the user sees even while the service is ahead of it.
+ */
+abstract class ServiceTableModel extends AbstractTableModel implements LibraryListener {
+
+    private final Entity entity;
+
+    private final ConcurrentLinkedQueue<LibraryChange> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean replayScheduled = new AtomicBoolean();
+    // Written on the EDT; read by sorter workers too
+    private volatile int rowCount;
+    // Row ids as of the replayed events; EDT only
+    private int[] ids;
+
+    /** @param ids the table's row ids now ({@link lms.LibraryService#ids}), before any event is received */
+    ServiceTableModel(Entity entity, int[] ids) {
+        this.entity = entity;
+        this.ids = ids;
+        this.rowCount = ids.length;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /** The id of the entity shown at {@code modelRow}; call on the EDT. */
+    int idAt(int modelRow) {
+        if (modelRow < 0 || modelRow >= rowCount) throw new IndexOutOfBoundsException(modelRow);
+        return ids[modelRow];
+    }
+
+    @Override
+    public void libraryChanged(LibraryChange change) {
+        // Runs under the service's write lock: must not read the service from here
+        if (change.entity() != entity) return;
+        pending.add(change);
+        if (replayScheduled.compareAndSet(false, true)) SwingUtilities.invokeLater(this::replay);
+    }
+
+    private void replay() {
+        replayScheduled.set(false);
+        LibraryChange c;
+        while ((c = pending.poll()) != null) {
+            int row = c.row();
+            switch (c.kind()) {
+                case INSERTED -> {
+                    if (row >= ids.length) ids = Arrays.copyOf(ids, Math.max(16, ids.length * 2));
+                    ids[row] = c.id();
+                    rowCount++;
+                    fireTableRowsInserted(row, row);
+                }
+                case UPDATED -> fireTableRowsUpdated(row, row);
+                case DELETED -> {
+                    // The last row moved into the gap, so it is the last row that disappears
+                    int last = --rowCount;
+                    ids[row] = ids[last];
+                    fireTableRowsDeleted(last, last);
+                    if (row != last) fireTableRowsUpdated(row, row);
+                }
+                case RELOADED -> {
+                    // The loaded rows are the last ones; the rows before them are kept
+                    int[] loaded = ((LibraryChange.Loaded) c.value()).ids();
+                    int kept = row - loaded.length;
+                    if (row > ids.length) ids = Arrays.copyOf(ids, row);
+                    System.arraycopy(loaded, 0, ids, kept, loaded.length);
+                    rowCount = row;
+                    fireTableDataChanged();
+                }
+            }
+        }
+    }
+}
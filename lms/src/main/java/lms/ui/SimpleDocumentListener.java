@@ -1,13 +1,27 @@
 package lms.ui;
 
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 
 @FunctionalInterface
 public interface SimpleDocumentListener extends DocumentListener {
 
+    /** Delay after the last keystroke before a debounced search runs. */
+    int SEARCH_DELAY_MS = 150;
+
     void update(DocumentEvent e);
 
+    /**
+     * Runs {@code action} on the EDT once edits have paused for {@code delayMs}, so a
+     * burst of keystrokes triggers one search instead of one per key.
+     */
+    static SimpleDocumentListener debounced(int delayMs, Runnable action) {
+        Timer timer = new Timer(delayMs, e -> action.run());
+        timer.setRepeats(false);
+        return e -> timer.restart();
+    }
+
     @Override
     default void insertUpdate(DocumentEvent e) {
         update(e);
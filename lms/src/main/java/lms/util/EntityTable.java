@@ -0,0 +1,93 @@
+package lms.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * An ordered list of entities with a primary-key index on their {@code int} id.
+ * Lookup, insert and delete by id are O(1): the index maps id to row, and a
+ * delete moves the last row into the freed slot, so rows after it never shift.
+ * The row list is what the table models read; the index always agrees with it.
+ */
+public final class EntityTable<T> {
+
+    private static final int MISSING = -1;
+
+    private final ToIntFunction<T> idOf;
+    private final ArrayList<T> rows = new ArrayList<>();
+    private final List<T> view = Collections.unmodifiableList(rows);
+    private final IntIntHashMap rowById = new IntIntHashMap();
+
+    public EntityTable(ToIntFunction<T> idOf) {
+        this.idOf = idOf;
+    }
+
+    public int size() { return rows.size(); }
+    public boolean isEmpty() { return rows.isEmpty(); }
+
+    /** Read-only live view in row order. */
+    public List<T> rows() { return view; }
+
+    public T at(int row) { return rows.get(row); }
+
+    public boolean contains(int id) {
+        return rowById.containsKey(id);
+    }
+
+    /** Entity with {@code id}, or {@code null}. */
+    public T get(int id) {
+        int row = rowById.get(id, MISSING);
+        return row == MISSING ? null : rows.get(row);
+    }
+
+    /** Row index of {@code id}, or -1. */
+    public int rowOf(int id) {
+        return rowById.get(id, MISSING);
+    }
+
+    /**
+     * Appends {@code entity}, or replaces the entity that already has its id
+     * (keeping that row). Returns the entity it replaced, or {@code null}.
+     */
+    public T put(T entity) {
+        int id = idOf.applyAsInt(entity);
+        int row = rowById.get(id, MISSING);
+        if (row != MISSING) {
+            return rows.set(row, entity);
+        }
+        rowById.put(id, rows.size());
+        rows.add(entity);
+        return null;
+    }
+
+    public void putAll(Collection<? extends T> entities) {
+        rows.ensureCapacity(rows.size() + entities.size());
+        for (T e : entities) {
+            put(e);
+        }
+    }
+
+    /** Removes the entity with {@code id}; returns it, or {@code null} if absent. */
+    public T remove(int id) {
+        int row = rowById.remove(id, MISSING);
+        if (row == MISSING) return null;
+
+        T removed = rows.get(row);
+        int last = rows.size() - 1;
+        if (row != last) {
+            T moved = rows.get(last);
+            rows.set(row, moved);
+            rowById.put(idOf.applyAsInt(moved), row);
+        }
+        rows.remove(last);
+        return removed;
+    }
+
+    public void clear() {
+        rows.clear();
+        rowById.clear();
+    }
+}
@@ -0,0 +1,54 @@
+package lms.util;
+
+import java.util.Arrays;
+
+/**
+ * A set of {@code int}s that can also be walked by position. Add, remove and
+ * contains are O(1); removing moves the last element into the freed position,
+ * so iteration order is not insertion order. Not thread-safe.
+ */
+public final class IntIndexedSet {
+
+    private static final int MISSING = -1;
+
+    private int[] elements = new int[16];
+    private int size;
+    private final IntIntHashMap positions = new IntIntHashMap();
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("index " + index + " of " + size);
+        return elements[index];
+    }
+
+    public boolean contains(int value) {
+        return positions.containsKey(value);
+    }
+
+    public boolean add(int value) {
+        if (positions.containsKey(value)) return false;
+        if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+        positions.put(value, size);
+        elements[size++] = value;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = positions.remove(value, MISSING);
+        if (index == MISSING) return false;
+
+        int last = elements[--size];
+        if (index != size) {
+            elements[index] = last;
+            positions.put(last, index);
+        }
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+        positions.clear();
+    }
+}
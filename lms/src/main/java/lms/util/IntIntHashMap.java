@@ -0,0 +1,143 @@
+package lms.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code int} to {@code int} with no boxing.
+ * Linear probing, deletes by backward shift (no tombstones), so lookups stay O(1)
+ * however many removals happen. Not thread-safe.
+ */
+public final class IntIntHashMap {
+
+    private static final int FREE = 0;          // key 0 is stored out of line
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntHashMap() {
+        this(16);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean containsKey(int key) {
+        if (key == FREE) return hasZeroKey;
+        return keys[slotOf(key)] == key;
+    }
+
+    /** Value for {@code key}, or {@code missing} if absent. */
+    public int get(int key, int missing) {
+        if (key == FREE) return hasZeroKey ? zeroValue : missing;
+        int slot = slotOf(key);
+        return keys[slot] == key ? values[slot] : missing;
+    }
+
+    public void put(int key, int value) {
+        if (key == FREE) {
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int slot = slotOf(key);
+        if (keys[slot] != key) {
+            keys[slot] = key;
+            if (++size >= resizeAt) {
+                values[slot] = value;
+                rehash(keys.length * 2);
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    /** Removes {@code key}; returns its value or {@code missing} if it was absent. */
+    public int remove(int key, int missing) {
+        if (key == FREE) {
+            if (!hasZeroKey) return missing;
+            hasZeroKey = false;
+            return zeroValue;
+        }
+
+        int slot = slotOf(key);
+        if (keys[slot] != key) return missing;
+        int removed = values[slot];
+
+        // Backward-shift: pull later entries of the probe chain into the gap
+        int gap = slot;
+        int i = (gap + 1) & mask;
+        while (keys[i] != FREE) {
+            int home = mix(keys[i]) & mask;
+            // Move entry i into the gap if its home slot is not in (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[gap] = FREE;
+        size--;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    /** Slot holding {@code key}, or the free slot where it would go. */
+    private int slotOf(int key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expected) {
+        int needed = (int) Math.ceil(Math.max(expected, 4) / LOAD_FACTOR);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    // Sequential ids would cluster badly with the identity hash; scramble the bits
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
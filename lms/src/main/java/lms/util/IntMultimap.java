@@ -0,0 +1,51 @@
+package lms.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A non-unique index from an {@code int} key to the values that carry it.
+ * Lookups cost O(1) plus the size of the result; removal scans only the
+ * values under one key.
+ */
+public final class IntMultimap<V> {
+
+    private final Map<Integer, List<V>> buckets = new HashMap<>();
+
+    /** Read-only view of the values under {@code key}; empty if there are none. */
+    public List<V> get(int key) {
+        List<V> bucket = buckets.get(key);
+        return bucket == null ? List.of() : Collections.unmodifiableList(bucket);
+    }
+
+    public boolean containsKey(int key) {
+        return buckets.containsKey(key);
+    }
+
+    public void put(int key, V value) {
+        // Most keys have one or two values (a borrower's loans, a book's loan)
+        buckets.computeIfAbsent(key, k -> new ArrayList<>(2)).add(value);
+    }
+
+    /** Removes {@code value} (compared by identity) from under {@code key}. */
+    public boolean remove(int key, V value) {
+        List<V> bucket = buckets.get(key);
+        if (bucket == null) return false;
+
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == value) {
+                bucket.remove(i);
+                if (bucket.isEmpty()) buckets.remove(key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        buckets.clear();
+    }
+}